@@ -0,0 +1,36 @@
+package com.example.library_system.benchmark;
+
+import com.example.library_system.dto.BookWithDetailsDTO;
+import com.example.library_system.entity.Book;
+import com.example.library_system.service.BookService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookServiceBenchmark {
+
+    @State(Scope.Thread)
+    public static class SearchTerms {
+        private int next;
+
+        String next() {
+            return LibraryState.WORDS[next++ % LibraryState.WORDS.length];
+        }
+    }
+
+    @Benchmark
+    public List<BookWithDetailsDTO> getAllBooksWithDetails(LibraryState library) {
+        return library.bean(BookService.class).getAllBooksWithDetails();
+    }
+
+    @Benchmark
+    public List<Book> searchBooksByTitle(LibraryState library, SearchTerms terms) {
+        return library.bean(BookService.class).searchBooksByTitle(terms.next());
+    }
+}
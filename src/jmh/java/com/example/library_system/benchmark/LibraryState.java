@@ -0,0 +1,148 @@
+package com.example.library_system.benchmark;
+
+import com.example.library_system.LibrarySystemApplication;
+import com.example.library_system.entity.*;
+import com.example.library_system.repository.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Startar applikationen mot en genererad SQLite-databas av valfri storlek.
+// Databasen återanvänds mellan körningar så att bara första körningen betalar för genereringen.
+@State(Scope.Benchmark)
+public class LibraryState {
+
+    // Titlar byggs av dessa ord så att varje sökterm träffar ungefär datasetSize / WORDS.length böcker
+    static final String[] WORDS = {
+            "äventyr", "skugga", "vinter", "drake", "hemlighet", "resa", "stjärna", "skog",
+            "havet", "staden", "kungen", "flickan", "pojken", "natten", "ljuset", "stormen",
+            "bron", "tornet", "dalen", "ön"
+    };
+
+    @Param({"1000"})
+    public int datasetSize;
+
+    public ConfigurableApplicationContext context;
+    public List<Long> bookIds;
+    public List<Long> userIds;
+    public List<String> userEmails;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        Path database = Path.of("target", "jmh", "library-" + datasetSize + ".db");
+        Files.createDirectories(database.getParent());
+
+        context = new SpringApplicationBuilder(LibrarySystemApplication.class)
+                .properties(
+                        "spring.datasource.url=jdbc:sqlite:" + database,
+                        "server.port=0",
+                        "spring.jpa.open-in-view=false",
+                        "logging.level.root=WARN",
+                        "logging.file.name=target/jmh/benchmark.log",
+                        "security.password.bcrypt-strength=10")
+                .run();
+
+        populate();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    private void populate() {
+        AuthorRepository authorRepository = bean(AuthorRepository.class);
+        BookRepository bookRepository = bean(BookRepository.class);
+        UserRepository userRepository = bean(UserRepository.class);
+        RoleRepository roleRepository = bean(RoleRepository.class);
+        LoanRepository loanRepository = bean(LoanRepository.class);
+        TransactionTemplate transaction = bean(TransactionTemplate.class);
+
+        int authorCount = Math.max(1, datasetSize / 10);
+        int userCount = Math.max(10, datasetSize / 10);
+
+        if (bookRepository.count() < datasetSize) {
+            transaction.executeWithoutResult(status -> {
+                List<Author> authors = new ArrayList<>();
+                for (int i = 0; i < authorCount; i++) {
+                    Author author = new Author();
+                    author.setFirstName("Författare");
+                    author.setLastName("Nummer " + i);
+                    author.setBirthYear(1900 + i % 100);
+                    author.setNationality(i % 2 == 0 ? "Swedish" : "Norwegian");
+                    authors.add(author);
+                }
+                authors = authorRepository.saveAll(authors);
+
+                List<Book> books = new ArrayList<>();
+                for (int i = 0; i < datasetSize; i++) {
+                    Book book = new Book();
+                    book.setTitle(WORDS[i % WORDS.length] + " " + i);
+                    book.setPublicationYear(1950 + i % 70);
+                    book.setTotalCopies(5);
+                    book.setAvailableCopies(5);
+                    book.setAuthorId(authors.get(i % authors.size()).getAuthorId());
+                    books.add(book);
+                }
+                bookRepository.saveAll(books);
+
+                // Samma hash för alla användare - lösenordet mäts inte här
+                Role userRole = roleRepository.findByName("USER").orElseThrow();
+                String password = bean(PasswordEncoder.class).encode("Bench123");
+                List<User> users = new ArrayList<>();
+                for (int i = 0; i < userCount; i++) {
+                    User user = new User();
+                    user.setFirstName("Bench");
+                    user.setLastName("Användare " + i);
+                    user.setEmail("bench" + i + "@bibliotek.se");
+                    user.setPassword(password);
+                    user.setRegistrationDate(LocalDate.now());
+                    user.setEnabled(true);
+                    user.setAccountNonLocked(true);
+                    user.setFailedLoginAttempts(0);
+                    user.addRole(userRole);
+                    users.add(user);
+                }
+                users = userRepository.saveAll(users);
+
+                // Historik med återlämnade lån
+                List<Loan> loans = new ArrayList<>();
+                for (int i = 0; i < datasetSize / 2; i++) {
+                    Loan loan = new Loan();
+                    loan.setUserId(users.get(i % users.size()).getUserId());
+                    loan.setBookId(books.get(i % books.size()).getBookId());
+                    loan.setBorrowedDate(LocalDate.now().minusDays(30));
+                    loan.setDueDate(LocalDate.now().minusDays(16));
+                    loan.setReturnedDate(LocalDate.now().minusDays(20));
+                    loans.add(loan);
+                }
+                loanRepository.saveAll(loans);
+            });
+        }
+
+        bookIds = bookRepository.findAll().stream()
+                .filter(book -> book.getAvailableCopies() != null && book.getAvailableCopies() > 0)
+                .map(Book::getBookId)
+                .toList();
+        List<User> benchUsers = userRepository.findAll().stream()
+                .filter(user -> user.getEmail().startsWith("bench"))
+                .toList();
+        userIds = benchUsers.stream().map(User::getUserId).toList();
+        userEmails = benchUsers.stream().map(User::getEmail).toList();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.library_system.benchmark;
+
+import com.example.library_system.entity.Loan;
+import com.example.library_system.service.LoanService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Varje lån lämnas tillbaka (eller skapas) utanför mätningen så att datamängden inte förändras
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoanServiceBenchmark {
+
+    // Roterar användare och böcker så att samma par aldrig har två aktiva lån
+    @State(Scope.Thread)
+    public static class Pairs {
+        private int next;
+
+        long[] next(LibraryState library) {
+            int i = next++;
+            return new long[]{
+                    library.userIds.get(i % library.userIds.size()),
+                    library.bookIds.get(i % library.bookIds.size())
+            };
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class CreatedLoan {
+        Loan loan;
+
+        @TearDown(Level.Invocation)
+        public void returnLoan(LibraryState library) {
+            if (loan != null) {
+                library.bean(LoanService.class).returnBook(loan.getLoanId());
+                loan = null;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OpenLoan {
+        Loan loan;
+
+        @Setup(Level.Invocation)
+        public void openLoan(LibraryState library, Pairs pairs) {
+            long[] pair = pairs.next(library);
+            loan = library.bean(LoanService.class).createLoan(pair[0], pair[1]);
+        }
+    }
+
+    @Benchmark
+    public Loan createLoan(LibraryState library, Pairs pairs, CreatedLoan created) {
+        long[] pair = pairs.next(library);
+        created.loan = library.bean(LoanService.class).createLoan(pair[0], pair[1]);
+        return created.loan;
+    }
+
+    @Benchmark
+    public Loan returnBook(LibraryState library, OpenLoan open) {
+        return library.bean(LoanService.class).returnBook(open.loan.getLoanId());
+    }
+}
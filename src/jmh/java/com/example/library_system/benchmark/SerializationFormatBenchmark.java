@@ -0,0 +1,73 @@
+package com.example.library_system.benchmark;
+
+import com.example.library_system.dto.BookWithDetailsDTO;
+import com.example.library_system.entity.Loan;
+import com.example.library_system.monitoring.TracingCborHttpMessageConverter;
+import com.example.library_system.monitoring.TracingJacksonHttpMessageConverter;
+import com.example.library_system.monitoring.TracingSmileHttpMessageConverter;
+import com.example.library_system.service.BookService;
+import com.example.library_system.service.LoanService;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JSON mot CBOR och Smile för /books/details och /loans, med samma ObjectMapper som konverterarna.
+// Storleken per svar skrivs ut vid setup; encode/decode mäter tiden.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationFormatBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Payload {
+
+        @Param({"json", "cbor", "smile"})
+        public String format;
+
+        @Param({"booksDetails", "loans"})
+        public String endpoint;
+
+        ObjectMapper mapper;
+        Object value;
+        JavaType type;
+        byte[] encoded;
+
+        @Setup(Level.Trial)
+        public void load(LibraryState library) throws IOException {
+            mapper = switch (format) {
+                case "json" -> library.bean(TracingJacksonHttpMessageConverter.class).getObjectMapper();
+                case "cbor" -> library.bean(TracingCborHttpMessageConverter.class).getObjectMapper();
+                case "smile" -> library.bean(TracingSmileHttpMessageConverter.class).getObjectMapper();
+                default -> throw new IllegalArgumentException("Unknown format " + format);
+            };
+            if (endpoint.equals("booksDetails")) {
+                value = library.bean(BookService.class).getAllBooksWithDetails();
+                type = mapper.getTypeFactory().constructCollectionType(List.class, BookWithDetailsDTO.class);
+            } else {
+                value = library.bean(LoanService.class).getAllLoans();
+                type = mapper.getTypeFactory().constructCollectionType(List.class, Loan.class);
+            }
+            encoded = mapper.writeValueAsBytes(value);
+
+            byte[] json = library.bean(TracingJacksonHttpMessageConverter.class).getObjectMapper().writeValueAsBytes(value);
+            System.out.printf("%n%s %s: %d bytes (%.0f%% of JSON)%n",
+                    endpoint, format, encoded.length, 100.0 * encoded.length / json.length);
+        }
+    }
+
+    @Benchmark
+    public byte[] encode(Payload payload) throws IOException {
+        return payload.mapper.writeValueAsBytes(payload.value);
+    }
+
+    @Benchmark
+    public Object decode(Payload payload) throws IOException {
+        return payload.mapper.readValue(payload.encoded, payload.type);
+    }
+}
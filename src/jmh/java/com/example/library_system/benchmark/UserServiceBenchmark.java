@@ -0,0 +1,52 @@
+package com.example.library_system.benchmark;
+
+import com.example.library_system.dto.UserDTO;
+import com.example.library_system.service.CustomUserDetailsService;
+import com.example.library_system.service.UserDetailsCache;
+import com.example.library_system.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    @State(Scope.Thread)
+    public static class Emails {
+        private int next;
+
+        String next(LibraryState library) {
+            return library.userEmails.get(next++ % library.userEmails.size());
+        }
+    }
+
+    // Töm cachen före varje anrop så att databasvägen mäts
+    @State(Scope.Thread)
+    public static class EmptyCache {
+        @Setup(Level.Invocation)
+        public void clear(LibraryState library) {
+            library.bean(UserDetailsCache.class).invalidateAll();
+        }
+    }
+
+    @Benchmark
+    public List<UserDTO> getAllUsers(LibraryState library) {
+        return library.bean(UserService.class).getAllUsers();
+    }
+
+    @Benchmark
+    public UserDetails loadUserByUsername(LibraryState library, Emails emails) {
+        return library.bean(CustomUserDetailsService.class).loadUserByUsername(emails.next(library));
+    }
+
+    @Benchmark
+    public UserDetails loadUserByUsernameUncached(LibraryState library, Emails emails, EmptyCache cache) {
+        return library.bean(CustomUserDetailsService.class).loadUserByUsername(emails.next(library));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.library_system.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Latens (mikrosekunder, mätt från planerad starttid) och utfall för en endpoint
+class EndpointStats {
+
+    private static final long MAX_LATENCY_MICROS = 60_000_000;
+
+    private final String name;
+    private final Histogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    void record(long latencyMicros, int status) {
+        latency.recordValue(Math.min(Math.max(latencyMicros, 0), MAX_LATENCY_MICROS));
+        if (status >= 200 && status < 400) {
+            successes.increment();
+        } else if (status >= 400 && status < 500) {
+            clientErrors.increment();
+        } else {
+            // 5xx, timeout eller nätverksfel (status 0)
+            serverErrors.increment();
+        }
+    }
+
+    void reset() {
+        latency.reset();
+        successes.reset();
+        clientErrors.reset();
+        serverErrors.reset();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Histogram getLatency() {
+        return latency;
+    }
+
+    long getCount() {
+        return latency.getTotalCount();
+    }
+
+    long getClientErrors() {
+        return clientErrors.sum();
+    }
+
+    long getServerErrors() {
+        return serverErrors.sum();
+    }
+
+    double percentileMillis(double percentile) {
+        return latency.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
@@ -0,0 +1,380 @@
+package com.example.library_system.loadtest;
+
+import com.example.library_system.LibrarySystemApplication;
+import com.example.library_system.entity.Role;
+import com.example.library_system.entity.User;
+import com.example.library_system.repository.RoleRepository;
+import com.example.library_system.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+// HTTP-lasttest från början till slut: startar appen mot en temporär kopia av SQLite-databasen,
+// loggar in syntetiska användare med CSRF och kör en blandning av anrop med fast ankomsttakt.
+// Latens mäts från planerad starttid så att köer i appen inte döljs (coordinated omission).
+public class LoadTestRunner {
+
+    private static final String PASSWORD = "Load1234";
+
+    private static final String BOOKS = "GET /books";
+    private static final String SEARCH = "GET /books/search";
+    private static final String BORROW = "POST /loans";
+    private static final String RETURN = "PUT /loans/{id}/return";
+    private static final String ADMIN_LOGS = "GET /api/admin/security-logs";
+    private static final String ADMIN_LOANS = "GET /loans";
+    private static final String ADMIN_USERS = "GET /users";
+
+    private static final String[] SEARCH_TERMS = {"harry", "pippi", "the", "och", "emil", "green", "ronja", "it"};
+
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+    private final List<UserSession> sessions = new ArrayList<>();
+    private final List<Long> bookIds = new ArrayList<>();
+    private UserSession adminSession;
+
+    // Konfiguration - sätts med -Dloadtest.* (se profilen loadtest i pom.xml)
+    private final int users = Integer.getInteger("loadtest.users", 50);
+    private final double rate = Double.parseDouble(System.getProperty("loadtest.rate", "50"));
+    private final int warmupSeconds = Integer.getInteger("loadtest.warmupSeconds", 10);
+    private final int durationSeconds = Integer.getInteger("loadtest.durationSeconds", 60);
+    private final int maxInFlight = Integer.getInteger("loadtest.maxInFlight", 500);
+    private final String mix = System.getProperty("loadtest.mix", "books=40,search=30,borrow=10,return=10,admin=10");
+    private final Path sourceDb = Path.of(System.getProperty("loadtest.sourceDb", "bibblan.db"));
+    private final Path outputDir;
+    private final String threadMode;
+    private final double maxP99Millis = Double.parseDouble(System.getProperty("loadtest.maxP99Millis", "0"));
+    private final double maxErrorRate = Double.parseDouble(System.getProperty("loadtest.maxErrorRate", "0.01"));
+
+    // Per endpoint: genomströmning, p50 och p99 - för jämförelsen mellan trådlägen
+    private final Map<String, double[]> results = new LinkedHashMap<>();
+
+    LoadTestRunner(String threadMode, Path outputDir) {
+        this.threadMode = threadMode;
+        this.outputDir = outputDir;
+    }
+
+    // -Dloadtest.threadModes=platform,virtual kör hela testet en gång per läge och jämför
+    public static void main(String[] args) throws Exception {
+        // Devtools omstart skulle köra main två gånger och blanda ihop trådlägena
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        Path baseDir = Path.of(System.getProperty("loadtest.outputDir", "target/loadtest"));
+        List<String> modes = Arrays.stream(System.getProperty("loadtest.threadModes", "platform").split(","))
+                .map(String::trim)
+                .filter(mode -> !mode.isEmpty())
+                .toList();
+
+        int exitCode = 0;
+        Map<String, LoadTestRunner> runners = new LinkedHashMap<>();
+        for (String mode : modes) {
+            if (!mode.equals("platform") && !mode.equals("virtual")) {
+                throw new IllegalArgumentException("Unknown thread mode " + mode + " (platform or virtual)");
+            }
+            LoadTestRunner runner = new LoadTestRunner(mode, modes.size() > 1 ? baseDir.resolve(mode) : baseDir);
+            System.out.printf("%n=== Thread mode: %s ===%n", mode);
+            exitCode = Math.max(exitCode, runner.run());
+            runners.put(mode, runner);
+        }
+
+        if (runners.size() > 1) {
+            printComparison(runners);
+        }
+        System.exit(exitCode);
+    }
+
+    private static void printComparison(Map<String, LoadTestRunner> runners) {
+        System.out.printf("%n%-30s", "Endpoint");
+        runners.keySet().forEach(mode -> System.out.printf(" %21s", mode + " req/s|p50|p99"));
+        System.out.println();
+
+        Set<String> endpoints = new LinkedHashSet<>();
+        runners.values().forEach(runner -> endpoints.addAll(runner.results.keySet()));
+        for (String endpoint : endpoints) {
+            System.out.printf("%-30s", endpoint);
+            for (LoadTestRunner runner : runners.values()) {
+                double[] result = runner.results.get(endpoint);
+                if (result == null) {
+                    System.out.printf(" %21s", "-");
+                } else {
+                    System.out.printf(" %7.1f|%6.1f|%6.1f", result[0], result[1], result[2]);
+                }
+            }
+            System.out.println();
+        }
+    }
+
+    int run() throws Exception {
+        for (String name : List.of(BOOKS, SEARCH, BORROW, RETURN, ADMIN_LOGS, ADMIN_LOANS, ADMIN_USERS)) {
+            stats.put(name, new EndpointStats(name));
+        }
+        NavigableMap<Integer, String> operations = parseMix(mix);
+
+        Files.createDirectories(outputDir);
+        Path database = Files.createTempFile("library-loadtest", ".db");
+        Files.copy(sourceDb, database, StandardCopyOption.REPLACE_EXISTING);
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(LibrarySystemApplication.class)
+                .properties(
+                        "spring.datasource.url=jdbc:sqlite:" + database,
+                        "server.port=0",
+                        "logging.level.root=WARN",
+                        "logging.file.name=" + outputDir.resolve("app.log"),
+                        // Alla syntetiska användare kommer från samma IP-adress
+                        "security.rate-limit.enabled=false",
+                        "security.stuffing.enabled=false",
+                        "spring.threads.virtual.enabled=" + threadMode.equals("virtual"))
+                .run();
+
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port;
+            System.out.printf("Application started on %s using %s%n", baseUrl, database);
+
+            createUsers(context);
+            loginAll(baseUrl);
+
+            System.out.printf("Warmup: %d s at %.1f req/s%n", warmupSeconds, rate);
+            drive(operations, warmupSeconds);
+            stats.values().forEach(EndpointStats::reset);
+
+            System.out.printf("Measuring: %d s at %.1f req/s (mix %s)%n", durationSeconds, rate, mix);
+            long dropped = drive(operations, durationSeconds);
+
+            return report(dropped);
+        } finally {
+            context.close();
+            Files.deleteIfExists(database);
+        }
+    }
+
+    // Skapa syntetiska användare direkt i databasen med en gemensam hash
+    private void createUsers(ConfigurableApplicationContext context) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        Role userRole = context.getBean(RoleRepository.class).findByName("USER").orElseThrow();
+        String hash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+
+        List<User> created = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            String email = "load" + i + "@bibliotek.se";
+            if (userRepository.existsByEmail(email)) {
+                continue;
+            }
+            User user = new User();
+            user.setFirstName("Last");
+            user.setLastName("Test " + i);
+            user.setEmail(email);
+            user.setPassword(hash);
+            user.setRegistrationDate(LocalDate.now());
+            user.setEnabled(true);
+            user.setAccountNonLocked(true);
+            user.setFailedLoginAttempts(0);
+            user.addRole(userRole);
+            created.add(user);
+        }
+        userRepository.saveAll(created);
+    }
+
+    private void loginAll(String baseUrl) throws Exception {
+        adminSession = new UserSession(baseUrl);
+        adminSession.login("admin@bibliotek.se", "Admin123");
+
+        for (JsonNode book : adminSession.readJson(adminSession.send("GET", "/books", null))) {
+            bookIds.add(book.get("bookId").asLong());
+        }
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<UserSession>> logins = new ArrayList<>();
+            for (int i = 0; i < users; i++) {
+                String email = "load" + i + "@bibliotek.se";
+                logins.add(executor.submit(() -> {
+                    UserSession session = new UserSession(baseUrl);
+                    session.login(email, PASSWORD);
+                    return session;
+                }));
+            }
+            for (Future<UserSession> login : logins) {
+                sessions.add(login.get());
+            }
+        }
+        System.out.printf("Logged in %d users in %d ms%n", sessions.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    // Öppen modell: anrop startas enligt schemat oavsett hur snabbt tidigare anrop svarar
+    private long drive(NavigableMap<Integer, String> operations, int seconds) throws InterruptedException {
+        long intervalNanos = (long) (1_000_000_000L / rate);
+        long total = (long) (rate * seconds);
+        int totalWeight = operations.lastKey();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long dropped = 0;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            long start = System.nanoTime();
+            for (long i = 0; i < total; i++) {
+                long intended = start + i * intervalNanos;
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                String operation = operations.higherEntry(random.nextInt(totalWeight)).getValue();
+                UserSession session = sessions.get(random.nextInt(sessions.size()));
+
+                if (!inFlight.tryAcquire()) {
+                    dropped++;
+                    continue;
+                }
+                executor.execute(() -> {
+                    try {
+                        execute(operation, session, intended);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        return dropped;
+    }
+
+    private void execute(String operation, UserSession session, long intended) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (operation) {
+            case "books" -> call(BOOKS, session, "GET", "/books", null, intended);
+            case "search" -> call(SEARCH, session, "GET",
+                    "/books/search?title=" + SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)], null, intended);
+            case "return" -> {
+                Long loanId = session.getActiveLoans().pollFirst();
+                if (loanId != null) {
+                    call(RETURN, session, "PUT", "/loans/" + loanId + "/return", null, intended);
+                } else {
+                    borrow(session, intended);
+                }
+            }
+            case "borrow" -> borrow(session, intended);
+            case "admin" -> {
+                switch (random.nextInt(3)) {
+                    case 0 -> call(ADMIN_LOGS, adminSession, "GET", "/api/admin/security-logs?limit=50", null, intended);
+                    case 1 -> call(ADMIN_LOANS, adminSession, "GET", "/loans", null, intended);
+                    default -> call(ADMIN_USERS, adminSession, "GET", "/users", null, intended);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+    private void borrow(UserSession session, long intended) {
+        long bookId = bookIds.get(ThreadLocalRandom.current().nextInt(bookIds.size()));
+        String body = "{\"userId\":" + session.getUserId() + ",\"bookId\":" + bookId + "}";
+        HttpResponse<String> response = call(BORROW, session, "POST", "/loans", body, intended);
+        if (response != null && response.statusCode() == 201) {
+            try {
+                session.getActiveLoans().addLast(session.readJson(response).get("loanId").asLong());
+            } catch (IOException e) {
+                // Räknas redan som lyckat anrop - lånet lämnas bara inte tillbaka
+            }
+        }
+    }
+
+    private HttpResponse<String> call(String endpoint, UserSession session, String method, String path,
+                                      String body, long intended) {
+        HttpResponse<String> response = null;
+        int status = 0;
+        try {
+            response = session.send(method, path, body);
+            status = response.statusCode();
+        } catch (IOException e) {
+            // Status 0 räknas som serverfel
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        stats.get(endpoint).record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended), status);
+        return response;
+    }
+
+    private int report(long dropped) throws IOException {
+        PrintStream out = System.out;
+        out.println();
+        out.printf("%-30s %8s %9s %6s %6s %9s %9s %9s %9s %9s%n", "Endpoint", "Count", "req/s", "4xx", "5xx",
+                "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        long requests = 0;
+        long errors = dropped;
+        boolean sloViolated = false;
+        StringBuilder csv = new StringBuilder("endpoint,count,throughput,client_errors,server_errors,p50_ms,p95_ms,p99_ms,p999_ms,max_ms\n");
+
+        for (EndpointStats endpoint : stats.values()) {
+            if (endpoint.getCount() == 0) {
+                continue;
+            }
+            double throughput = (double) endpoint.getCount() / durationSeconds;
+            double max = endpoint.getLatency().getMaxValue() / 1000.0;
+            out.printf("%-30s %8d %9.1f %6d %6d %9.1f %9.1f %9.1f %9.1f %9.1f%n", endpoint.getName(),
+                    endpoint.getCount(), throughput, endpoint.getClientErrors(), endpoint.getServerErrors(),
+                    endpoint.percentileMillis(50), endpoint.percentileMillis(95), endpoint.percentileMillis(99),
+                    endpoint.percentileMillis(99.9), max);
+            csv.append(String.format(Locale.ROOT, "%s,%d,%.2f,%d,%d,%.2f,%.2f,%.2f,%.2f,%.2f%n", endpoint.getName(),
+                    endpoint.getCount(), throughput, endpoint.getClientErrors(), endpoint.getServerErrors(),
+                    endpoint.percentileMillis(50), endpoint.percentileMillis(95), endpoint.percentileMillis(99),
+                    endpoint.percentileMillis(99.9), max));
+
+            // Hela fördelningen i HdrHistograms .hgrm-format (millisekunder)
+            Path file = outputDir.resolve(endpoint.getName().replaceAll("[^A-Za-z0-9]+", "_") + ".hgrm");
+            try (PrintStream hgrm = new PrintStream(Files.newOutputStream(file))) {
+                endpoint.getLatency().outputPercentileDistribution(hgrm, 1000.0);
+            }
+
+            results.put(endpoint.getName(), new double[]{throughput,
+                    endpoint.percentileMillis(50), endpoint.percentileMillis(99)});
+
+            requests += endpoint.getCount();
+            errors += endpoint.getServerErrors();
+            if (maxP99Millis > 0 && endpoint.percentileMillis(99) > maxP99Millis) {
+                out.printf("SLO violated: %s p99 %.1f ms > %.1f ms%n", endpoint.getName(),
+                        endpoint.percentileMillis(99), maxP99Millis);
+                sloViolated = true;
+            }
+        }
+        Files.writeString(outputDir.resolve("summary.csv"), csv);
+
+        double errorRate = requests + dropped > 0 ? (double) errors / (requests + dropped) : 0;
+        out.printf("%nTotal: %d requests, %.1f req/s, %d dropped (max in flight %d), error rate %.2f%%%n",
+                requests, (double) requests / durationSeconds, dropped, maxInFlight, errorRate * 100);
+        out.printf("Histograms and summary written to %s%n", outputDir.toAbsolutePath());
+
+        if (errorRate > maxErrorRate) {
+            out.printf("SLO violated: error rate %.2f%% > %.2f%%%n", errorRate * 100, maxErrorRate * 100);
+            sloViolated = true;
+        }
+        return sloViolated ? 1 : 0;
+    }
+
+    // "books=40,search=30" -> kumulativa vikter för slumpvalet
+    private static NavigableMap<Integer, String> parseMix(String mix) {
+        NavigableMap<Integer, String> operations = new TreeMap<>();
+        int cumulative = 0;
+        for (String part : mix.split(",")) {
+            String[] entry = part.trim().split("=");
+            int weight = Integer.parseInt(entry[1].trim());
+            if (weight > 0) {
+                cumulative += weight;
+                operations.put(cumulative, entry[0].trim());
+            }
+        }
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix has no operations: " + mix);
+        }
+        return operations;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.library_system.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+
+// En inloggad syntetisk användare med egen cookie-burk (session + XSRF-TOKEN)
+class UserSession {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String baseUrl;
+    private final HttpClient client;
+    private final Deque<Long> activeLoans = new ConcurrentLinkedDeque<>();
+    private volatile String csrfToken;
+    private long userId;
+
+    UserSession(String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    // Logga in via /api/auth/login med CSRF-token, precis som webbklienten
+    void login(String email, String password) throws IOException, InterruptedException {
+        refreshCsrfToken();
+        String body = objectMapper.writeValueAsString(java.util.Map.of("email", email, "password", password));
+        HttpResponse<String> response = send("POST", "/api/auth/login", body);
+        // Hashningskön avvisar med 503 när många loggar in samtidigt - försök igen efter Retry-After
+        for (int attempt = 1; response.statusCode() == 503 && attempt < 5; attempt++) {
+            long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+            Thread.sleep(Duration.ofSeconds(Math.max(1, retryAfter)));
+            response = send("POST", "/api/auth/login", body);
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Login failed for " + email + ": " + response.statusCode() + " " + response.body());
+        }
+        userId = objectMapper.readTree(response.body()).get("userId").asLong();
+
+        // Spring Security byter token vid inloggning
+        refreshCsrfToken();
+    }
+
+    HttpResponse<String> send(String method, String path, String jsonBody) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Accept", "application/json");
+
+        if (jsonBody != null) {
+            request.header("Content-Type", "application/json");
+        }
+        if (!"GET".equals(method) && csrfToken != null) {
+            request.header("X-XSRF-TOKEN", csrfToken);
+        }
+        request.method(method, jsonBody != null
+                ? HttpRequest.BodyPublishers.ofString(jsonBody)
+                : HttpRequest.BodyPublishers.noBody());
+
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    JsonNode readJson(HttpResponse<String> response) throws IOException {
+        return objectMapper.readTree(response.body());
+    }
+
+    long getUserId() {
+        return userId;
+    }
+
+    Deque<Long> getActiveLoans() {
+        return activeLoans;
+    }
+
+    private void refreshCsrfToken() throws IOException, InterruptedException {
+        HttpResponse<String> response = send("GET", "/api/auth/csrf", null);
+        csrfToken = objectMapper.readTree(response.body()).path("token").asText(null);
+    }
+}
@@ -1,17 +1,28 @@
 package com.example.library_system.config;
 
+import com.example.library_system.entity.PasswordHashCalibration;
+import com.example.library_system.repository.PasswordHashCalibrationRepository;
+import com.example.library_system.repository.SchemaMarkerRepository;
+import com.example.library_system.security.CalibratedPasswordEncoder;
+import com.example.library_system.security.LoginFailureHandler;
+import com.example.library_system.security.PasswordHashingExecutor;
+import com.example.library_system.security.StatelessTokenAuthenticationFilter;
 import com.example.library_system.service.CustomUserDetailsService;
+import com.example.library_system.service.SessionTokenService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -24,12 +35,57 @@ import java.util.Arrays;
 @EnableMethodSecurity
 public class ApiSecurityConfig {
 
+    private static final String BCRYPT = "bcrypt";
+    // Tidigare sparades kostnaden i schema_markers; raden tas bort vid nästa kalibrering
+    private static final String LEGACY_BCRYPT_STRENGTH_MARKER = "bcrypt-strength";
+
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private SessionTokenService sessionTokenService;
+
+    // Egen trådpool för BCrypt - storlek 0 betyder antal kärnor minus en
+    @Bean(destroyMethod = "shutdown")
+    public PasswordHashingExecutor passwordHashingExecutor(
+            @Value("${security.password-hashing.threads:0}") int threads,
+            @Value("${security.password-hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${security.password-hashing.max-wait-millis:2000}") long maxWaitMillis) {
+        if (threads <= 0) {
+            threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        }
+        return new PasswordHashingExecutor(threads, queueCapacity, maxWaitMillis);
+    }
+
+    // BCrypt-kostnaden kalibreras mot måltiden om ingen fast kostnad är angiven.
+    // Den kalibrerade kostnaden sparas med målet den gäller för, så att den inte ändras mellan
+    // omstarter eller noder - annars skulle varje omstart på en annan maskin skriva om hasharna
+    // vid nästa inloggning. Ändras target-hash-millis, min- eller max-strength kalibreras den om.
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public CalibratedPasswordEncoder passwordEncoder(
+            PasswordHashingExecutor passwordHashingExecutor,
+            PasswordHashCalibrationRepository calibrationRepository,
+            SchemaMarkerRepository schemaMarkerRepository,
+            @Value("${security.password.target-hash-millis:100}") long targetHashMillis,
+            @Value("${security.password.bcrypt-strength:0}") int bcryptStrength,
+            @Value("${security.password.min-strength:10}") int minStrength,
+            @Value("${security.password.max-strength:14}") int maxStrength) {
+        int strength = bcryptStrength;
+        if (strength <= 0) {
+            strength = calibrationRepository.findById(BCRYPT)
+                    .filter(stored -> stored.matches(targetHashMillis, minStrength, maxStrength))
+                    .map(PasswordHashCalibration::getStrength)
+                    .orElseGet(() -> {
+                        int calibrated = CalibratedPasswordEncoder.calibrate(targetHashMillis, minStrength, maxStrength);
+                        calibrationRepository.save(new PasswordHashCalibration(BCRYPT, calibrated,
+                                targetHashMillis, minStrength, maxStrength));
+                        schemaMarkerRepository.findById(LEGACY_BCRYPT_STRENGTH_MARKER)
+                                .ifPresent(schemaMarkerRepository::delete);
+                        return calibrated;
+                    });
+        }
+        return new CalibratedPasswordEncoder(passwordHashingExecutor, targetHashMillis,
+                strength, minStrength, maxStrength, passwordHashingExecutor.getThreads());
     }
 
     @Bean
@@ -37,6 +93,29 @@ public class ApiSecurityConfig {
         return config.getAuthenticationManager();
     }
 
+    // Actuator: Basic Auth för Prometheus-skrapning eller befintlig admin-session, bara health är publik
+    @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher("/actuator/**")
+                .csrf(csrf -> csrf.disable())
+                .authorizeHttpRequests(authz -> authz
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                        .anyRequest().hasRole("ADMIN")
+                )
+                .httpBasic(Customizer.withDefaults())
+                .sessionManagement(session -> session
+                        .sessionCreationPolicy(SessionCreationPolicy.NEVER));
+
+        if (sessionTokenService.isStateless()) {
+            http.addFilterBefore(new StatelessTokenAuthenticationFilter(sessionTokenService),
+                    UsernamePasswordAuthenticationFilter.class);
+        }
+
+        return http.build();
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
@@ -81,6 +160,7 @@ public class ApiSecurityConfig {
                         .requestMatchers("/books/**").hasAnyRole("USER", "ADMIN")
                         .requestMatchers("/loans/**").hasAnyRole("USER", "ADMIN")
                         .requestMatchers("/users/**").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers("/catalog/**").hasAnyRole("USER", "ADMIN")
 
                         // Alla andra kräver autentisering
                         .anyRequest().authenticated()
@@ -93,7 +173,7 @@ public class ApiSecurityConfig {
                         .usernameParameter("username")
                         .passwordParameter("password")
                         .defaultSuccessUrl("/dashboard.html", true)
-                        .failureUrl("/login.html?error=true")
+                        .failureHandler(new LoginFailureHandler("/login.html?error=true"))
                         .permitAll()
                 )
 
@@ -102,7 +182,10 @@ public class ApiSecurityConfig {
                         .logoutUrl("/api/auth/logout")
                         .logoutSuccessUrl("/login.html?logout=true")
                         .invalidateHttpSession(true)
-                        .deleteCookies("JSESSIONID", "XSRF-TOKEN")
+                        .deleteCookies("JSESSIONID", "XSRF-TOKEN", sessionTokenService.getCookieName())
+                        // Spärra sessionstoken i tillståndslöst läge
+                        .addLogoutHandler((request, response, authentication) ->
+                                sessionTokenService.revoke(sessionTokenService.extractToken(request)))
                         .permitAll()
                 )
 
@@ -134,6 +217,15 @@ public class ApiSecurityConfig {
                         })
                 );
 
+        // Tillståndslöst läge: signerad token i stället för HttpSession
+        if (sessionTokenService.isStateless()) {
+            http
+                    .sessionManagement(session -> session
+                            .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                    .addFilterBefore(new StatelessTokenAuthenticationFilter(sessionTokenService),
+                            UsernamePasswordAuthenticationFilter.class);
+        }
+
         return http.build();
     }
 
@@ -0,0 +1,50 @@
+package com.example.library_system.config;
+
+import com.example.library_system.monitoring.TracingCborHttpMessageConverter;
+import com.example.library_system.monitoring.TracingSmileHttpMessageConverter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+// application/cbor och application/x-jackson-smile bredvid JSON i alla svar (för kioskerna); förfrågningar
+// tas bara emot som JSON.
+// Konverterarna byggs från Boots Jackson2ObjectMapperBuilder så att datum, tidszon och moduler är samma
+// som för JSON. Fabrikerna är singletons så att Smiles namntabeller och buffertar återanvänds mellan svaren.
+@Configuration
+public class BinaryFormatConfig implements WebMvcConfigurer {
+
+    @Bean
+    public TracingCborHttpMessageConverter tracingCborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new TracingCborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    // Delade fältnamn: varje fältnamn skrivs en gång per dokument, sedan som en en-bytes referens.
+    // Delade strängvärden gör samma sak för korta upprepade värden (t.ex. nationality).
+    @Bean
+    public TracingSmileHttpMessageConverter tracingSmileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        SmileFactory factory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        return new TracingSmileHttpMessageConverter(builder.factory(factory).build());
+    }
+
+    // Boot behåller Springs egna CBOR/Smile-konverterare efter våra; de kan läsa förfrågningar,
+    // så de tas bort och bara de spårade (som enbart skriver) blir kvar
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> (converter instanceof MappingJackson2CborHttpMessageConverter
+                && !(converter instanceof TracingCborHttpMessageConverter))
+                || (converter instanceof MappingJackson2SmileHttpMessageConverter
+                && !(converter instanceof TracingSmileHttpMessageConverter)));
+    }
+}
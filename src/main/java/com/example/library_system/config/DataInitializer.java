@@ -17,6 +17,10 @@ public class DataInitializer {
 
     private static final Logger logger = LoggerFactory.getLogger(DataInitializer.class);
 
+    // Höj versionen när exempeldatan ändras så att befintliga databaser seedas om
+    private static final String SEED_MARKER = "sample-data";
+    private static final int SEED_VERSION = 1;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -24,9 +28,18 @@ public class DataInitializer {
     CommandLineRunner init(UserRepository userRepository,
                            RoleRepository roleRepository,
                            BookRepository bookRepository,
-                           AuthorRepository authorRepository) {
+                           AuthorRepository authorRepository,
+                           SchemaMarkerRepository schemaMarkerRepository) {
 
         return args -> {
+            // En uppslagning på primärnyckel i stället för alla existenskontroller vid varje start
+            if (schemaMarkerRepository.findById(SEED_MARKER)
+                    .filter(marker -> marker.getVersion() >= SEED_VERSION)
+                    .isPresent()) {
+                logger.info("Sample data already initialized (version {}), skipping seeding", SEED_VERSION);
+                return;
+            }
+
             logger.info("=====================================");
             logger.info("Starting Data Initialization...");
             logger.info("=====================================");
@@ -166,6 +179,8 @@ public class DataInitializer {
             logger.info("");
             logger.info("✅ System ready to use!");
             logger.info("");
+
+            schemaMarkerRepository.save(new SchemaMarker(SEED_MARKER, SEED_VERSION));
         };
     }
 
@@ -0,0 +1,118 @@
+package com.example.library_system.config;
+
+import com.example.library_system.persistence.ConnectionLimitingDataSource;
+import com.example.library_system.persistence.SingleFlightInterceptor;
+import com.example.library_system.persistence.SqliteBusyRetryInterceptor;
+import com.example.library_system.security.CalibratedPasswordEncoder;
+import com.example.library_system.security.PasswordHashingExecutor;
+import com.example.library_system.security.RateLimitFilter;
+import com.example.library_system.service.AvailabilityStreamService;
+import com.example.library_system.service.CatalogChangeLogService;
+import com.example.library_system.service.CredentialStuffingDetector;
+import com.example.library_system.service.FlightRecorderService;
+import com.example.library_system.service.LibraryStatisticsService;
+import com.example.library_system.service.PasswordUpgradeService;
+import com.example.library_system.service.UserDetailsCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Exponerar statistiken som redan finns i cachar, pooler och detektorer som Micrometer-gauges
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder libraryStatisticsMetrics(UserDetailsCache userDetailsCache,
+                                                PasswordHashingExecutor passwordHashingExecutor,
+                                                CalibratedPasswordEncoder passwordEncoder,
+                                                PasswordUpgradeService passwordUpgradeService,
+                                                CredentialStuffingDetector credentialStuffingDetector,
+                                                RateLimitFilter rateLimitFilter,
+                                                SqliteBusyRetryInterceptor sqliteBusyRetryInterceptor,
+                                                SingleFlightInterceptor singleFlightInterceptor,
+                                                FlightRecorderService flightRecorderService,
+                                                AvailabilityStreamService availabilityStreamService,
+                                                LibraryStatisticsService libraryStatisticsService,
+                                                CatalogChangeLogService catalogChangeLogService,
+                                                ObjectProvider<ConnectionLimitingDataSource> connectionLimitingDataSource) {
+        return registry -> {
+            bindStatistics(registry, "library.user.details.cache", userDetailsCache::getStatistics);
+            bindStatistics(registry, "library.password.hashing", passwordHashingExecutor::getStatistics);
+            bindStatistics(registry, "library.password.encoder", passwordEncoder::getStatistics);
+            bindStatistics(registry, "library.password.upgrades", passwordUpgradeService::getStatistics);
+            bindStatistics(registry, "library.credential.stuffing", credentialStuffingDetector::getStatistics);
+            bindStatistics(registry, "library.sqlite.busy.retry", sqliteBusyRetryInterceptor::getStatistics);
+            bindStatistics(registry, "library.single.flight", singleFlightInterceptor::getStatistics);
+            bindStatistics(registry, "library.virtual.threads", flightRecorderService::getPinningStatistics);
+            bindStatistics(registry, "library.availability.stream", availabilityStreamService::getStatistics);
+            bindStatistics(registry, "library.stats", libraryStatisticsService::getStatistics);
+            bindStatistics(registry, "library.catalog.changes", catalogChangeLogService::getStatistics);
+            connectionLimitingDataSource.ifAvailable(guard ->
+                    bindStatistics(registry, "library.db.concurrency.guard", guard::getStatistics));
+
+            Gauge.builder("library.rate.limit.tracked.keys", rateLimitFilter, RateLimitFilter::getTrackedKeyCount)
+                    .register(registry);
+        };
+    }
+
+    // En gauge per numeriskt värde i statistikkartan, t.ex. hitRatio -> <prefix>.hit.ratio
+    void bindStatistics(MeterRegistry registry, String prefix, Supplier<Map<String, Object>> statistics) {
+        new StatisticsGauges(registry, prefix, statistics).snapshot();
+    }
+
+    private static String toMeterName(String key) {
+        return key.replaceAll("([a-z0-9])([A-Z])", "$1.$2").toLowerCase();
+    }
+
+    // Gaugarna under ett prefix delar en läsning av statistikkartan, så en scrape anropar
+    // getStatistics() en gång i stället för en gång per gauge. Numeriska nycklar som dyker upp
+    // senare (t.ex. en räknare som var null vid start) får sin gauge vid nästa läsning.
+    private static final class StatisticsGauges {
+
+        // Kortare än ett scrape-intervall men längre än det tar att läsa alla gauges i en scrape
+        private static final long MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+        private final MeterRegistry registry;
+        private final String prefix;
+        private final Supplier<Map<String, Object>> statistics;
+        private final Set<String> registeredKeys = ConcurrentHashMap.newKeySet();
+
+        private Map<String, Object> snapshot;
+        private long readAt;
+
+        StatisticsGauges(MeterRegistry registry, String prefix, Supplier<Map<String, Object>> statistics) {
+            this.registry = registry;
+            this.prefix = prefix;
+            this.statistics = statistics;
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            long now = System.nanoTime();
+            if (snapshot == null || now - readAt > MAX_AGE_NANOS) {
+                snapshot = statistics.get();
+                readAt = now;
+                snapshot.forEach((key, value) -> {
+                    if (value instanceof Number && registeredKeys.add(key)) {
+                        Gauge.builder(prefix + "." + toMeterName(key), this, gauges -> {
+                                    Object current = gauges.snapshot().get(key);
+                                    return current instanceof Number number ? number.doubleValue() : Double.NaN;
+                                })
+                                // Registret håller bara svaga referenser, och ingen annan håller den här
+                                .strongReference(true)
+                                .register(registry);
+                    }
+                });
+            }
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.library_system.config;
+
+import com.example.library_system.security.CredentialStuffingFilter;
+import com.example.library_system.security.FailedLoginBlockFilter;
+import com.example.library_system.security.RateLimitFilter;
+import com.example.library_system.security.RateLimitProperties;
+import com.example.library_system.service.CredentialStuffingDetector;
+import com.example.library_system.service.SecurityLogService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+
+    @Bean
+    public RateLimitFilter rateLimitFilter(RateLimitProperties properties,
+                                           SecurityLogService securityLogService,
+                                           ObjectMapper objectMapper) {
+        return new RateLimitFilter(properties, securityLogService, objectMapper);
+    }
+
+    // Registrera filtret före Spring Securitys filterkedja
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(RateLimitFilter rateLimitFilter,
+                                                                               RateLimitProperties properties) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(rateLimitFilter);
+        properties.getEndpoints().values().forEach(limit -> registration.addUrlPatterns(limit.getPath()));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 10);
+        return registration;
+    }
+
+    // Blockering av flaggade IP-adresser, före rate limitern
+    @Bean
+    public FilterRegistrationBean<CredentialStuffingFilter> credentialStuffingFilterRegistration(
+            CredentialStuffingDetector detector, SecurityLogService securityLogService) {
+        FilterRegistrationBean<CredentialStuffingFilter> registration =
+                new FilterRegistrationBean<>(new CredentialStuffingFilter(detector, securityLogService));
+        registration.addUrlPatterns("/api/auth/*");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 20);
+        return registration;
+    }
+
+    // IP-adresser med för många misslyckade inloggningar, för båda inloggningsvägarna
+    @Bean
+    public FilterRegistrationBean<FailedLoginBlockFilter> failedLoginBlockFilterRegistration(
+            SecurityLogService securityLogService) {
+        FilterRegistrationBean<FailedLoginBlockFilter> registration =
+                new FilterRegistrationBean<>(new FailedLoginBlockFilter(securityLogService));
+        registration.addUrlPatterns("/api/auth/login", "/api/auth/form-login");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 15);
+        return registration;
+    }
+}
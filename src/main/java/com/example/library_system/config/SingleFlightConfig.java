@@ -0,0 +1,35 @@
+package com.example.library_system.config;
+
+import com.example.library_system.persistence.SingleFlight;
+import com.example.library_system.persistence.SingleFlightInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+// Delade körningar för metoder märkta med @SingleFlight.
+// Ytterst, så att efterföljarna inte öppnar egna transaktioner eller anslutningar medan de väntar.
+@Configuration
+public class SingleFlightConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static SingleFlightInterceptor singleFlightInterceptor(
+            @Value("${single-flight.enabled:true}") boolean enabled) {
+        return new SingleFlightInterceptor(enabled);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor singleFlightAdvisor(SingleFlightInterceptor singleFlightInterceptor) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(SingleFlight.class), singleFlightInterceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+}
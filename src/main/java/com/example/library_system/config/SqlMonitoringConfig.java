@@ -0,0 +1,46 @@
+package com.example.library_system.config;
+
+import com.example.library_system.monitoring.SqlBudgetFilter;
+import com.example.library_system.monitoring.StatementCountingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+// SQL-budget per förfrågan: JDBC-proxy runt datakällan och ett filter som utvärderar budgeten
+@Configuration
+@ConditionalOnProperty(name = "sql.monitoring.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlMonitoringConfig {
+
+    // Statisk så att den registreras innan datakällan skapas
+    @Bean
+    public static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource
+                        ? StatementCountingDataSource.wrap(dataSource)
+                        : bean;
+            }
+        };
+    }
+
+    // Direkt efter spårningsfiltret så att även SQL från säkerhetsfiltren räknas
+    @Bean
+    public FilterRegistrationBean<SqlBudgetFilter> sqlBudgetFilterRegistration(
+            @Value("${sql.budget.max-statements:20}") int maxStatements,
+            @Value("${sql.budget.max-db-millis:250}") long maxDbMillis,
+            @Value("${sql.budget.repeat-threshold:5}") int repeatThreshold,
+            MeterRegistry registry) {
+        FilterRegistrationBean<SqlBudgetFilter> registration = new FilterRegistrationBean<>(
+                new SqlBudgetFilter(maxStatements, maxDbMillis, repeatThreshold, registry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.library_system.config;
+
+import com.example.library_system.persistence.RetryOnSqliteBusy;
+import com.example.library_system.persistence.SqliteBusyRetryInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+// Omförsök vid SQLITE_BUSY för metoder märkta med @RetryOnSqliteBusy.
+// Högsta prioritet så att interceptorn ligger utanför transaktionen och varje försök får en ny.
+@Configuration
+public class SqliteRetryConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static SqliteBusyRetryInterceptor sqliteBusyRetryInterceptor(
+            @Value("${sqlite.busy-retry.max-attempts:8}") int maxAttempts,
+            @Value("${sqlite.busy-retry.initial-backoff-millis:2}") long initialBackoffMillis,
+            @Value("${sqlite.busy-retry.serialize-writers:true}") boolean serializeWriters) {
+        return new SqliteBusyRetryInterceptor(maxAttempts, initialBackoffMillis, serializeWriters);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor sqliteBusyRetryAdvisor(SqliteBusyRetryInterceptor sqliteBusyRetryInterceptor) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(RetryOnSqliteBusy.class), sqliteBusyRetryInterceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.library_system.config;
+
+import com.example.library_system.monitoring.SlowTraceStore;
+import com.example.library_system.monitoring.TracingFilter;
+import com.example.library_system.monitoring.TracingInterceptor;
+import com.example.library_system.monitoring.TracingJacksonHttpMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+// Spårning av långsamma förfrågningar: filter, spans runt controller/service/repository,
+// SQL (via JDBC-proxyn), BCrypt (via hashningspoolen) och Jackson-serialisering.
+// tracing.sample-rate=0 stänger av all spårning utan att ta bort proxyerna.
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    public SlowTraceStore slowTraceStore(@Value("${tracing.capacity:50}") int capacity) {
+        return new SlowTraceStore(capacity);
+    }
+
+    // Före SQL-budgetfiltret så att hela kedjan ingår i spåret
+    @Bean
+    public FilterRegistrationBean<TracingFilter> tracingFilterRegistration(
+            @Value("${tracing.sample-rate:0.01}") double sampleRate,
+            @Value("${tracing.slow-threshold-millis:250}") long slowThresholdMillis,
+            @Value("${tracing.max-spans:200}") int maxSpans,
+            SlowTraceStore slowTraceStore) {
+        FilterRegistrationBean<TracingFilter> registration = new FilterRegistrationBean<>(
+                new TracingFilter(sampleRate, slowThresholdMillis, maxSpans, slowTraceStore));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    // Infrastrukturroll så att Springs befintliga auto-proxy (samma som för @Transactional) plockar upp den
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor tracingAdvisor() {
+        StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return Modifier.isPublic(method.getModifiers()) && method.getDeclaringClass() != Object.class;
+            }
+        };
+        pointcut.setClassFilter(type -> TracingInterceptor.phaseOf(type) != null);
+        return new DefaultPointcutAdvisor(pointcut, new TracingInterceptor());
+    }
+
+    // Ersätter Boots standardkonverterare men använder samma konfigurerade ObjectMapper
+    @Bean
+    public TracingJacksonHttpMessageConverter tracingJacksonHttpMessageConverter(ObjectMapper objectMapper) {
+        return new TracingJacksonHttpMessageConverter(objectMapper);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.library_system.config;
+
+import com.example.library_system.persistence.ConnectionLimitingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+// Virtuella trådar slås på med spring.threads.virtual.enabled=true (Tomcat, applicationTaskExecutor
+// och @Scheduled). Då läggs en semafor framför datakällan så att högst poolstorleken antal
+// trådar åt gången använder SQLite, i stället för att obegränsat många köar i Hikari.
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+@ConditionalOnProperty(name = "db.concurrency-guard.enabled", havingValue = "true", matchIfMissing = true)
+public class VirtualThreadConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    // 0 permits = samma som Hikaris maximumPoolSize (standard 10)
+    @Bean
+    public static ConnectionLimitingDataSource connectionLimitingDataSource(
+            @Value("${db.concurrency-guard.permits:0}") int permits,
+            @Value("${db.concurrency-guard.acquire-timeout-millis:5000}") long acquireTimeoutMillis,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        int maxPermits = permits > 0 ? permits : poolSize;
+        logger.info("Virtual threads enabled; limiting concurrent database access to {} connections", maxPermits);
+        return new ConnectionLimitingDataSource(maxPermits, acquireTimeoutMillis);
+    }
+
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(ConnectionLimitingDataSource guard) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource ? guard.wrap(dataSource) : bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.library_system.controller;
+
+import com.example.library_system.entity.SecurityEventRollup;
+import com.example.library_system.entity.SecurityLog;
+import com.example.library_system.monitoring.RequestTrace;
+import com.example.library_system.persistence.ConnectionLimitingDataSource;
+import com.example.library_system.persistence.SingleFlightInterceptor;
+import com.example.library_system.monitoring.SlowTraceStore;
+import com.example.library_system.security.CalibratedPasswordEncoder;
+import com.example.library_system.security.PasswordHashingExecutor;
+import com.example.library_system.service.CredentialStuffingDetector;
+import com.example.library_system.service.FlightRecorderService;
+import com.example.library_system.service.LibraryStatisticsService;
+import com.example.library_system.service.PasswordUpgradeService;
+import com.example.library_system.service.SecurityLogService;
+import com.example.library_system.service.SecurityRollupService;
+import com.example.library_system.service.UserDetailsCache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.env.Environment;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Lazy: används bara av administratörer, så den skapas vid första anropet i stället för vid start
+@Lazy
+@RestController
+@RequestMapping("/api/admin")
+public class AdminApiController {
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @Autowired
+    private CalibratedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private PasswordUpgradeService passwordUpgradeService;
+
+    @Autowired
+    private SecurityLogService securityLogService;
+
+    @Autowired
+    private SecurityRollupService securityRollupService;
+
+    @Autowired
+    private CredentialStuffingDetector credentialStuffingDetector;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private SlowTraceStore slowTraceStore;
+
+    @Autowired
+    private FlightRecorderService flightRecorderService;
+
+    // Finns bara när virtuella trådar är påslagna
+    @Autowired(required = false)
+    private ConnectionLimitingDataSource connectionLimitingDataSource;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private LibraryStatisticsService libraryStatistics;
+
+    @Autowired
+    private SingleFlightInterceptor singleFlightInterceptor;
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    // GET /api/admin/stats - Antal böcker, författare, användare och aktiva lån för adminpanelen
+    @GetMapping("/stats")
+    public Map<String, Object> getLibraryStatistics() {
+        return libraryStatistics.getStatistics();
+    }
+
+    // GET /api/admin/single-flight - Hur många katalogläsningar som delat på en pågående databasfråga
+    @GetMapping("/single-flight")
+    public Map<String, Object> getSingleFlightStatistics() {
+        return singleFlightInterceptor.getStatistics();
+    }
+
+    // GET /api/admin/cache/user-details - Statistik för inloggningscachen
+    @GetMapping("/cache/user-details")
+    public Map<String, Object> getUserDetailsCacheStatistics() {
+        return userDetailsCache.getStatistics();
+    }
+
+    // DELETE /api/admin/cache/user-details - Töm inloggningscachen
+    @DeleteMapping("/cache/user-details")
+    public ResponseEntity<Void> clearUserDetailsCache() {
+        userDetailsCache.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+
+    // GET /api/admin/password-hashing - Kö- och hashtider, kalibrering och uppgraderingar
+    @GetMapping("/password-hashing")
+    public Map<String, Object> getPasswordHashingStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pool", passwordHashingExecutor.getStatistics());
+        stats.put("encoder", passwordEncoder.getStatistics());
+        stats.put("upgrades", passwordUpgradeService.getStatistics());
+        return stats;
+    }
+
+    // GET /api/admin/security-logs - Säkerhetsloggar sida för sida (cursor = sista logId från föregående sida)
+    @GetMapping("/security-logs")
+    public Map<String, Object> getSecurityLogs(
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String eventType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        List<SecurityLog> logs = (from != null || to != null)
+                ? securityLogService.getSecurityLogsBetween(
+                        from != null ? from : LocalDateTime.of(1970, 1, 1, 0, 0),
+                        to != null ? to : LocalDateTime.now(), before, pageSize, eventType)
+                : securityLogService.getSecurityLogPage(before, pageSize, eventType);
+
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("items", logs);
+        page.put("nextCursor", logs.size() == pageSize ? logs.get(logs.size() - 1).getLogId() : null);
+        return page;
+    }
+
+    // GET /api/admin/security-logs/rollups - Antal händelser per minut eller timme
+    @GetMapping("/security-logs/rollups")
+    public List<SecurityEventRollup> getSecurityLogRollups(
+            @RequestParam(defaultValue = SecurityEventRollup.HOUR) String granularity,
+            @RequestParam(defaultValue = "24") int hours) {
+        LocalDateTime now = LocalDateTime.now();
+        return securityRollupService.getRollups(granularity.toUpperCase(), now.minusHours(hours), now.plusMinutes(1));
+    }
+
+    // GET /api/admin/security-logs/top-ips - IP-adresser med flest misslyckade händelser
+    @GetMapping("/security-logs/top-ips")
+    public List<Map<String, Object>> getTopSecurityLogIps(
+            @RequestParam(defaultValue = SecurityEventRollup.HOUR) String granularity,
+            @RequestParam(defaultValue = "24") int hours,
+            @RequestParam(defaultValue = "10") int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        return securityRollupService.getTopIps(granularity.toUpperCase(), now.minusHours(hours), now.plusMinutes(1),
+                Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    // GET /api/admin/credential-stuffing - Detektorns statistik och blockerade IP-adresser
+    @GetMapping("/credential-stuffing")
+    public Map<String, Object> getCredentialStuffingStatus() {
+        Map<String, Object> status = new LinkedHashMap<>(credentialStuffingDetector.getStatistics());
+        status.put("blockedIps", credentialStuffingDetector.getBlockedIps());
+        return status;
+    }
+
+    // GET /api/admin/credential-stuffing/{ip} - Uppskattningar för en IP-adress
+    @GetMapping("/credential-stuffing/{ip:.+}")
+    public Map<String, Object> getCredentialStuffingEstimates(@PathVariable String ip) {
+        return credentialStuffingDetector.getEstimates(ip);
+    }
+
+    // DELETE /api/admin/credential-stuffing/{ip} - Häv blockering
+    @DeleteMapping("/credential-stuffing/{ip:.+}")
+    public ResponseEntity<Void> unblockIp(@PathVariable String ip) {
+        return credentialStuffingDetector.unblock(ip)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    // GET /api/admin/hibernate-statistics - Frågor, entitetsladdningar och långsammaste frågan
+    @GetMapping("/hibernate-statistics")
+    public Map<String, Object> getHibernateStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", statistics.isStatisticsEnabled());
+        stats.put("queryExecutions", statistics.getQueryExecutionCount());
+        stats.put("prepareStatements", statistics.getPrepareStatementCount());
+        stats.put("entityLoads", statistics.getEntityLoadCount());
+        stats.put("entityFetches", statistics.getEntityFetchCount());
+        stats.put("collectionLoads", statistics.getCollectionLoadCount());
+        stats.put("transactions", statistics.getTransactionCount());
+        stats.put("slowestQueryMillis", statistics.getQueryExecutionMaxTime());
+        stats.put("slowestQuery", statistics.getQueryExecutionMaxTimeQueryString());
+        return stats;
+    }
+
+    // GET /api/admin/traces/slow - De senaste långsamma förfrågningarna med tid per fas, långsammast först
+    @GetMapping("/traces/slow")
+    public List<Map<String, Object>> getSlowTraces() {
+        return slowTraceStore.getTraces().stream()
+                .map(trace -> {
+                    Map<String, Object> summary = new LinkedHashMap<>();
+                    summary.put("id", trace.getId());
+                    summary.put("method", trace.getMethod());
+                    summary.put("uri", trace.getUri());
+                    summary.put("status", trace.getStatus());
+                    summary.put("startedAt", trace.getStartedAt());
+                    summary.put("totalMillis", trace.getTotalMillis());
+                    summary.put("phases", trace.getPhases());
+                    return summary;
+                })
+                .toList();
+    }
+
+    // GET /api/admin/traces/slow/{id} - Ett spår med alla spans
+    @GetMapping("/traces/slow/{id}")
+    public ResponseEntity<RequestTrace> getSlowTrace(@PathVariable long id) {
+        return slowTraceStore.getTrace(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // DELETE /api/admin/traces/slow - Töm bufferten
+    @DeleteMapping("/traces/slow")
+    public ResponseEntity<Void> clearSlowTraces() {
+        slowTraceStore.clear();
+        return ResponseEntity.noContent().build();
+    }
+
+    // GET /api/admin/jfr - Status för den kontinuerliga JFR-inspelningen och tidigare dumpar
+    @GetMapping("/jfr")
+    public Map<String, Object> getFlightRecorderStatus() {
+        return flightRecorderService.getStatus();
+    }
+
+    // POST /api/admin/jfr/dump?minutes=5 - Skriv de senaste minuterna till fil
+    @PostMapping("/jfr/dump")
+    public ResponseEntity<Map<String, Object>> dumpFlightRecording(@RequestParam(defaultValue = "5") int minutes) {
+        if (!flightRecorderService.isRecording()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", "JFR recording is not running"));
+        }
+        try {
+            int window = Math.max(1, Math.min(minutes, 60));
+            Path file = flightRecorderService.dump(window, "manual");
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("file", file.toString());
+            result.put("minutes", window);
+            result.put("sizeBytes", Files.size(file));
+            return ResponseEntity.ok(result);
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // GET /api/admin/virtual-threads - Trådläge, databassemaforen och fastnålade virtuella trådar
+    @GetMapping("/virtual-threads")
+    public Map<String, Object> getVirtualThreadStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("virtualThreads", Threading.VIRTUAL.isActive(environment));
+        status.put("databaseGuard", connectionLimitingDataSource != null
+                ? connectionLimitingDataSource.getStatistics()
+                : Map.of("enabled", false));
+        status.put("pinning", flightRecorderService.getPinningStatistics());
+        return status;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.library_system.controller;
+
+import com.example.library_system.persistence.InvalidFieldsException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+// Felsvar som är gemensamma för flera controllers
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    // Ogiltig ?fields= ger 400 med samma meddelande som tidigare
+    @ExceptionHandler(InvalidFieldsException.class)
+    public ResponseEntity<String> handleInvalidFields(InvalidFieldsException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+}
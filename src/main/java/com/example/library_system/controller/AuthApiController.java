@@ -4,16 +4,25 @@ import com.example.library_system.dto.LoginRequest;
 import com.example.library_system.dto.RegistrationDTO;
 import com.example.library_system.entity.Role;
 import com.example.library_system.entity.User;
+import com.example.library_system.monitoring.LoginEvent;
 import com.example.library_system.repository.RoleRepository;
 import com.example.library_system.repository.UserRepository;
+import com.example.library_system.security.PasswordHashingOverloadedException;
+import com.example.library_system.service.CustomUserDetailsService.CustomUserDetails;
+import com.example.library_system.service.LibraryStatisticsService;
+import com.example.library_system.service.PasswordUpgradeService;
 import com.example.library_system.service.SecurityLogService;
+import com.example.library_system.service.SessionTokenService;
+import com.example.library_system.service.UserDetailsCache;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -52,6 +61,18 @@ public class AuthApiController {
     @Autowired
     private SecurityLogService securityLogService;
 
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private PasswordUpgradeService passwordUpgradeService;
+
+    @Autowired
+    private SessionTokenService sessionTokenService;
+
+    @Autowired
+    private LibraryStatisticsService libraryStatistics;
+
     // CSRF Token endpoint - VIKTIGT!
     @GetMapping("/csrf")
     public ResponseEntity<?> getCsrfToken(HttpServletRequest request) {
@@ -73,6 +94,11 @@ public class AuthApiController {
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest,
                                    HttpServletRequest request) {
+        LoginEvent loginEvent = new LoginEvent(loginRequest.getEmail());
+        loginEvent.begin();
+
+        // IP-adresser med för många misslyckade försök stoppas redan i FailedLoginBlockFilter
+
         try {
             // Använd email som username för Spring Security
             Authentication authentication = authenticationManager.authenticate(
@@ -85,34 +111,64 @@ public class AuthApiController {
             // Sätt authentication i SecurityContext
             SecurityContextHolder.getContext().setAuthentication(authentication);
 
-            // Skapa session
-            HttpSession session = request.getSession(true);
-            session.setAttribute("SPRING_SECURITY_CONTEXT", SecurityContextHolder.getContext());
+            // Användaren laddades redan vid autentiseringen - läs inte om den
+            CustomUserDetails user = (CustomUserDetails) authentication.getPrincipal();
+
+            // Skapa session, eller en signerad token i tillståndslöst läge
+            String sessionId = null;
+            String token = null;
+            ResponseCookie tokenCookie = null;
+            if (sessionTokenService.isStateless()) {
+                token = sessionTokenService.issueToken(user);
+                tokenCookie = ResponseCookie.from(sessionTokenService.getCookieName(), token)
+                        .httpOnly(true)
+                        .secure(request.isSecure())
+                        .sameSite("Lax")
+                        .path("/")
+                        .maxAge(sessionTokenService.getTtlSeconds())
+                        .build();
+            } else {
+                HttpSession session = request.getSession(true);
+                session.setAttribute("SPRING_SECURITY_CONTEXT", SecurityContextHolder.getContext());
+                sessionId = session.getId();
+            }
 
             // Logga lyckad inloggning
-            securityLogService.logSuccessfulLogin(loginRequest.getEmail(), request);
+            securityLogService.logSuccessfulLogin(user, request);
 
-            // Hämta användarinfo
-            User user = userRepository.findByEmail(loginRequest.getEmail()).orElseThrow();
+            // Byt hash i bakgrunden om dess kostnad skiljer sig från den kalibrerade
+            passwordUpgradeService.upgradeIfNeeded(user, loginRequest.getPassword());
 
             // Skapa response
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Inloggning lyckades");
-            response.put("sessionId", session.getId());
-            response.put("email", user.getEmail());
+            if (token != null) {
+                response.put("token", token);
+            } else {
+                response.put("sessionId", sessionId);
+            }
+            response.put("email", user.getUsername());
             response.put("firstName", user.getFirstName());
             response.put("lastName", user.getLastName());
             response.put("userId", user.getUserId());
-            response.put("roles", user.getRoles().stream()
-                    .map(Role::getName)
-                    .collect(Collectors.toList()));
+            response.put("roles", user.getRoleNames());
 
+            loginEvent.complete("OK");
+            if (tokenCookie != null) {
+                return ResponseEntity.ok()
+                        .header(HttpHeaders.SET_COOKIE, tokenCookie.toString())
+                        .body(response);
+            }
             return ResponseEntity.ok(response);
 
+        } catch (PasswordHashingOverloadedException e) {
+            loginEvent.complete("OVERLOADED");
+            return serviceUnavailable(e);
+
         } catch (AuthenticationException e) {
-            // Logga misslyckad inloggning
-            securityLogService.logFailedLogin(loginRequest.getEmail(), request, e.getMessage());
+            // Försöket loggas och räknas en gång, av AuthenticationEventListener
+            loginEvent.complete("FAILED");
 
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
@@ -173,6 +229,7 @@ public class AuthApiController {
 
             newUser.addRole(userRole);
             User savedUser = userRepository.save(newUser);
+            libraryStatistics.increment(LibraryStatisticsService.Count.USERS);
 
             logger.info("Ny användare registrerad: {} med {} roller",
                     savedUser.getEmail(), savedUser.getRoles().size());
@@ -185,6 +242,9 @@ public class AuthApiController {
             response.put("userId", savedUser.getUserId());
             return ResponseEntity.ok(response);
 
+        } catch (PasswordHashingOverloadedException e) {
+            return serviceUnavailable(e);
+
         } catch (Exception e) {
             logger.error("Fel vid registrering", e);
             securityLogService.logRegistration(registrationDTO.getEmail(), request, false,
@@ -195,6 +255,18 @@ public class AuthApiController {
         }
     }
 
+    // Svar när lösenordspoolen är överbelastad - klienten ska försöka igen strax
+    private ResponseEntity<?> serviceUnavailable(PasswordHashingOverloadedException e) {
+        logger.warn("Lösenordshashning överbelastad: {}", e.getMessage());
+
+        Map<String, Object> error = new HashMap<>();
+        error.put("success", false);
+        error.put("message", "Tjänsten är tillfälligt överbelastad, försök igen om en stund");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(error);
+    }
+
     // Logout endpoint
     @PostMapping("/logout")
     public ResponseEntity<?> logout(HttpServletRequest request) {
@@ -203,6 +275,11 @@ public class AuthApiController {
             securityLogService.logLogout(auth.getName(), request);
         }
 
+        // Spärra sessionstoken i tillståndslöst läge
+        if (sessionTokenService.isStateless()) {
+            sessionTokenService.revoke(sessionTokenService.extractToken(request));
+        }
+
         // Invalidera sessionen
         HttpSession session = request.getSession(false);
         if (session != null) {
@@ -287,6 +364,9 @@ public class AuthApiController {
                 result.put("unlocked", "Kontot har låsts upp");
             }
 
+            // Roller och status kan ha ändrats
+            userDetailsCache.invalidate(user.getEmail());
+
             return ResponseEntity.ok(result);
 
         } catch (Exception e) {
@@ -371,6 +451,8 @@ public class AuthApiController {
                 }
             }
 
+            userDetailsCache.invalidateAll();
+
             result.put("success", true);
             result.put("usersFixed", fixedCount);
             result.put("totalUsers", allUsers.size());
@@ -2,11 +2,15 @@ package com.example.library_system.controller;
 
 import com.example.library_system.entity.Author;
 import com.example.library_system.service.AuthorService;
+import com.example.library_system.persistence.SparseFieldsetQuery;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,12 +21,23 @@ public class AuthorController {
     @Autowired
     private AuthorService authorService;
 
+    @Autowired
+    private SparseFieldsetQuery sparseFieldsetQuery;
+
     // GET /authors - Lista alla författare
     @GetMapping
     public List<Author> getAllAuthors() {
         return authorService.getAllAuthors();
     }
 
+    // GET /authors?fields=a,b - Bara valda fält, läses som kolumner (delas mellan samtidiga anrop)
+    @GetMapping(params = "fields")
+    public void getAuthorFields(@RequestParam String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response) throws IOException {
+        sparseFieldsetQuery.write(SparseFieldsetQuery.Resource.AUTHORS, fields, accept, response);
+    }
+
     // GET /authors/name/{lastName} - Hämta författare via efternamn
     @GetMapping("/name/{lastName}")
     public List<Author> getAuthorsByLastName(@PathVariable String lastName) {
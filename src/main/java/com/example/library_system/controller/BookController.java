@@ -1,13 +1,20 @@
 package com.example.library_system.controller;
 
 import com.example.library_system.entity.Book;
+import com.example.library_system.service.AvailabilityStreamService;
 import com.example.library_system.service.BookService;
+import com.example.library_system.persistence.SparseFieldsetQuery;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import com.example.library_system.dto.BookWithDetailsDTO;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,12 +25,26 @@ public class BookController {
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private SparseFieldsetQuery sparseFieldsetQuery;
+
+    @Autowired
+    private AvailabilityStreamService availabilityStreamService;
+
     // GET /books - Lista alla böcker
     @GetMapping
     public List<Book> getAllBooks() {
         return bookService.getAllBooks();
     }
 
+    // GET /books?fields=a,b - Bara valda fält, läses som kolumner (delas mellan samtidiga anrop)
+    @GetMapping(params = "fields")
+    public void getBookFields(@RequestParam String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response) throws IOException {
+        sparseFieldsetQuery.write(SparseFieldsetQuery.Resource.BOOKS, fields, accept, response);
+    }
+
     // GET /books/search - Sök böcker på title
     @GetMapping("/search")
     public List<Book> searchBooks(@RequestParam(required = false) String title) {
@@ -33,6 +54,18 @@ public class BookController {
         return bookService.getAllBooks(); // Om ingen sökning, returnera alla
     }
 
+    // GET /books/availability/stream - SSE med {bookId, availableCopies} när exemplar lånas eller lämnas
+    // tillbaka; EventSource skickar Last-Event-ID vid återanslutning och får då det den missat
+    @GetMapping(value = "/availability/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamAvailability(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        try {
+            return ResponseEntity.ok(availabilityStreamService.subscribe(lastEventId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
     // GET /books/{id} - Hämta specifik bok
     @GetMapping("/{id}")
     public ResponseEntity<Book> getBookById(@PathVariable Long id) {
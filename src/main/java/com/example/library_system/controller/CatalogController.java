@@ -0,0 +1,32 @@
+package com.example.library_system.controller;
+
+import com.example.library_system.service.CatalogChangeLogService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/catalog")
+public class CatalogController {
+
+    @Autowired
+    private CatalogChangeLogService catalogChangeLogService;
+
+    @Value("${catalog.changes.max-limit:1000}")
+    private int maxLimit;
+
+    // GET /catalog/changes?since=<next> - Böcker/författare som ändrats eller tagits bort sedan cursorn.
+    // fullResync=true: hämta /books och /authors på nytt och fortsätt från next
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(@RequestParam(required = false) Long since,
+                                        @RequestParam(defaultValue = "500") int limit) {
+        if ((since != null && since < 0) || limit < 1 || limit > maxLimit) {
+            return ResponseEntity.badRequest().body("since must be >= 0 and limit between 1 and " + maxLimit);
+        }
+        Map<String, Object> changes = catalogChangeLogService.getChanges(since, limit);
+        return ResponseEntity.ok(changes);
+    }
+}
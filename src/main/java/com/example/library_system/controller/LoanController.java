@@ -1,12 +1,20 @@
 package com.example.library_system.controller;
 
+import com.example.library_system.dto.LoanDetailsDTO;
 import com.example.library_system.entity.Loan;
+import com.example.library_system.security.CurrentUser;
 import com.example.library_system.service.LoanService;
+import com.example.library_system.persistence.SparseFieldsetQuery;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -15,15 +23,31 @@ import java.util.Optional;
 @RequestMapping
 public class LoanController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private LoanService loanService;
 
+    @Autowired
+    private SparseFieldsetQuery sparseFieldsetQuery;
+
     // GET /loans - Lista alla lån
     @GetMapping("/loans")
     public List<Loan> getAllLoans() {
         return loanService.getAllLoans();
     }
 
+    // GET /loans?fields=a,b - Bara valda fält, läses som kolumner och skrivs direkt till svaret.
+    // Bara egna lån, utom för ADMIN.
+    @GetMapping(value = "/loans", params = "fields")
+    public void getLoanFields(@RequestParam String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            Authentication authentication,
+            HttpServletResponse response) throws IOException {
+        sparseFieldsetQuery.write(SparseFieldsetQuery.Resource.LOANS, fields,
+                CurrentUser.ownerScope(authentication), accept, response);
+    }
+
     // GET /loans/{id} - Hämta specifikt lån
     @GetMapping("/loans/{id}")
     public ResponseEntity<Loan> getLoanById(@PathVariable Long id) {
@@ -41,6 +65,32 @@ public class LoanController {
         return ResponseEntity.ok(loans);
     }
 
+    // GET /users/{userId}/loans/details - Användarens lån med titel och författare, sida för sida
+    // (status=all|active|returned, cursor = sista loanId från föregående sida).
+    // Bara den egna lånehistoriken, utom för ADMIN.
+    @GetMapping("/users/{userId}/loans/details")
+    public ResponseEntity<?> getUserLoanDetails(@PathVariable Long userId,
+            @RequestParam(defaultValue = "all") String status,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "20") int limit,
+            Authentication authentication) {
+        if (!CurrentUser.isSelfOrAdmin(authentication, userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<LoanDetailsDTO> loans;
+        try {
+            loans = loanService.getUserLoanDetails(userId, status, before, pageSize);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("items", loans);
+        page.put("nextCursor", loans.size() == pageSize ? loans.get(loans.size() - 1).getLoanId() : null);
+        return ResponseEntity.ok(page);
+    }
+
     // POST /loans - Låna bok (kräver userId och bookId)
     @PostMapping("/loans")
     public ResponseEntity<?> createLoan(@RequestBody Map<String, Long> request) {
@@ -86,4 +136,4 @@ public class LoanController {
     public List<Loan> getOverdueLoans() {
         return loanService.getOverdueLoans();
     }
-}
\ No newline at end of file
+}
@@ -2,12 +2,18 @@ package com.example.library_system.controller;
 
 import com.example.library_system.dto.UserDTO;
 import com.example.library_system.entity.User;
+import com.example.library_system.security.CurrentUser;
 import com.example.library_system.service.UserService;
+import com.example.library_system.persistence.SparseFieldsetQuery;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,12 +24,26 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private SparseFieldsetQuery sparseFieldsetQuery;
+
     // GET /users - Lista alla användare (returnerar DTOs utan password)
     @GetMapping
     public List<UserDTO> getAllUsers() {
         return userService.getAllUsers();
     }
 
+    // GET /users?fields=a,b - Bara valda fält, läses som kolumner och skrivs direkt till svaret.
+    // Bara den egna raden (t.ex. email), utom för ADMIN.
+    @GetMapping(params = "fields")
+    public void getUserFields(@RequestParam String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            Authentication authentication,
+            HttpServletResponse response) throws IOException {
+        sparseFieldsetQuery.write(SparseFieldsetQuery.Resource.USERS, fields,
+                CurrentUser.ownerScope(authentication), accept, response);
+    }
+
     // GET /users/email/{email} - Hämta användare via email
     @GetMapping("/email/{email}")
     public ResponseEntity<UserDTO> getUserByEmail(@PathVariable String email) {
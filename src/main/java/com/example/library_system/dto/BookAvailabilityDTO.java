@@ -0,0 +1,32 @@
+package com.example.library_system.dto;
+
+// Kompakt tillgänglighet för SSE-strömmen: bara bok-ID och tillgängliga exemplar
+public class BookAvailabilityDTO {
+    private Long bookId;
+    private Integer availableCopies;
+
+    // Default constructor
+    public BookAvailabilityDTO() {}
+
+    public BookAvailabilityDTO(Long bookId, Integer availableCopies) {
+        this.bookId = bookId;
+        this.availableCopies = availableCopies;
+    }
+
+    // Getters och Setters
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public Integer getAvailableCopies() {
+        return availableCopies;
+    }
+
+    public void setAvailableCopies(Integer availableCopies) {
+        this.availableCopies = availableCopies;
+    }
+}
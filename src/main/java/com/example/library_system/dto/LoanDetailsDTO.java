@@ -0,0 +1,105 @@
+package com.example.library_system.dto;
+
+import java.time.LocalDate;
+
+// Lån med bokens titel och författare, läst med en join för "Mina lån"
+public class LoanDetailsDTO {
+    private Long loanId;
+    private Long userId;
+    private Long bookId;
+    private String title;
+    private String authorFirstName;
+    private String authorLastName;
+    private LocalDate borrowedDate;
+    private LocalDate dueDate;
+    private LocalDate returnedDate;
+
+    // Default constructor
+    public LoanDetailsDTO() {}
+
+    public LoanDetailsDTO(Long loanId, Long userId, Long bookId, String title, String authorFirstName,
+                          String authorLastName, LocalDate borrowedDate, LocalDate dueDate, LocalDate returnedDate) {
+        this.loanId = loanId;
+        this.userId = userId;
+        this.bookId = bookId;
+        this.title = title;
+        this.authorFirstName = authorFirstName;
+        this.authorLastName = authorLastName;
+        this.borrowedDate = borrowedDate;
+        this.dueDate = dueDate;
+        this.returnedDate = returnedDate;
+    }
+
+    // Getters och Setters
+    public Long getLoanId() {
+        return loanId;
+    }
+
+    public void setLoanId(Long loanId) {
+        this.loanId = loanId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getAuthorFirstName() {
+        return authorFirstName;
+    }
+
+    public void setAuthorFirstName(String authorFirstName) {
+        this.authorFirstName = authorFirstName;
+    }
+
+    public String getAuthorLastName() {
+        return authorLastName;
+    }
+
+    public void setAuthorLastName(String authorLastName) {
+        this.authorLastName = authorLastName;
+    }
+
+    public LocalDate getBorrowedDate() {
+        return borrowedDate;
+    }
+
+    public void setBorrowedDate(LocalDate borrowedDate) {
+        this.borrowedDate = borrowedDate;
+    }
+
+    public LocalDate getDueDate() {
+        return dueDate;
+    }
+
+    public void setDueDate(LocalDate dueDate) {
+        this.dueDate = dueDate;
+    }
+
+    public LocalDate getReturnedDate() {
+        return returnedDate;
+    }
+
+    public void setReturnedDate(LocalDate returnedDate) {
+        this.returnedDate = returnedDate;
+    }
+}
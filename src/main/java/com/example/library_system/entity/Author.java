@@ -26,6 +26,15 @@ public class Author {
     // Default constructor
     public Author() {}
 
+    // Frikopplad kopia, för resultat som delas mellan anrop (@SingleFlight)
+    public Author(Author other) {
+        this.authorId = other.authorId;
+        this.firstName = other.firstName;
+        this.lastName = other.lastName;
+        this.birthYear = other.birthYear;
+        this.nationality = other.nationality;
+    }
+
     // Getters och Setters
     public Long getAuthorId() {
         return authorId;
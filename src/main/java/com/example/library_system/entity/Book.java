@@ -29,6 +29,16 @@ public class Book {
     // Default constructor (krävs av JPA)
     public Book() {}
 
+    // Frikopplad kopia, för resultat som delas mellan anrop (@SingleFlight)
+    public Book(Book other) {
+        this.bookId = other.bookId;
+        this.title = other.title;
+        this.publicationYear = other.publicationYear;
+        this.availableCopies = other.availableCopies;
+        this.totalCopies = other.totalCopies;
+        this.authorId = other.authorId;
+    }
+
     // Getters och Setters
     public Long getBookId() {
         return bookId;
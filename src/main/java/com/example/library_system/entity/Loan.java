@@ -4,7 +4,12 @@ import jakarta.persistence.*;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "loans")
+// Täckande index för en användares lån sida för sida: user_id + loan_id ger intervallet i
+// cursor-ordning och övriga kolumner gör att loans-tabellen aldrig behöver läsas
+@Table(name = "loans", indexes = {
+        @Index(name = "idx_loans_user_details",
+                columnList = "user_id, loan_id, returned_date, book_id, borrowed_date, due_date")
+})
 public class Loan {
 
     @Id
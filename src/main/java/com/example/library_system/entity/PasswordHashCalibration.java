@@ -0,0 +1,101 @@
+package com.example.library_system.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Kalibrerad BCrypt-kostnad tillsammans med målet den kalibrerades mot. Delas via databasen så att
+// alla noder och omstarter använder samma kostnad; ändras målet (eller min/max) kalibreras den om.
+@Entity
+@Table(name = "password_hash_calibrations")
+public class PasswordHashCalibration {
+
+    @Id
+    @Column(name = "algorithm", length = 20)
+    private String algorithm;
+
+    @Column(name = "strength", nullable = false)
+    private int strength;
+
+    @Column(name = "target_hash_millis", nullable = false)
+    private long targetHashMillis;
+
+    @Column(name = "min_strength", nullable = false)
+    private int minStrength;
+
+    @Column(name = "max_strength", nullable = false)
+    private int maxStrength;
+
+    @Column(name = "calibrated_at", nullable = false)
+    private LocalDateTime calibratedAt;
+
+    // Default constructor
+    public PasswordHashCalibration() {}
+
+    public PasswordHashCalibration(String algorithm, int strength, long targetHashMillis,
+                                   int minStrength, int maxStrength) {
+        this.algorithm = algorithm;
+        this.strength = strength;
+        this.targetHashMillis = targetHashMillis;
+        this.minStrength = minStrength;
+        this.maxStrength = maxStrength;
+        this.calibratedAt = LocalDateTime.now();
+    }
+
+    // Kalibrerad mot samma inställningar som nu gäller
+    public boolean matches(long targetHashMillis, int minStrength, int maxStrength) {
+        return this.targetHashMillis == targetHashMillis
+                && this.minStrength == minStrength
+                && this.maxStrength == maxStrength
+                && strength >= minStrength && strength <= maxStrength;
+    }
+
+    // Getters och Setters
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    public void setStrength(int strength) {
+        this.strength = strength;
+    }
+
+    public long getTargetHashMillis() {
+        return targetHashMillis;
+    }
+
+    public void setTargetHashMillis(long targetHashMillis) {
+        this.targetHashMillis = targetHashMillis;
+    }
+
+    public int getMinStrength() {
+        return minStrength;
+    }
+
+    public void setMinStrength(int minStrength) {
+        this.minStrength = minStrength;
+    }
+
+    public int getMaxStrength() {
+        return maxStrength;
+    }
+
+    public void setMaxStrength(int maxStrength) {
+        this.maxStrength = maxStrength;
+    }
+
+    public LocalDateTime getCalibratedAt() {
+        return calibratedAt;
+    }
+
+    public void setCalibratedAt(LocalDateTime calibratedAt) {
+        this.calibratedAt = calibratedAt;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.library_system.entity;
+
+import jakarta.persistence.*;
+
+// En spärrad sessionstoken i tillståndslöst läge. Delas via databasen så att
+// en utloggning gäller på alla noder, och rensas när tokenen ändå har gått ut.
+@Entity
+@Table(name = "revoked_tokens", indexes = {
+        @Index(name = "idx_revoked_tokens_expires", columnList = "expires_at")
+})
+public class RevokedToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "revocation_seq")
+    private Long revocationSeq;
+
+    @Column(name = "token_id", nullable = false, unique = true, length = 36)
+    private String tokenId;
+
+    // Tokenens utgångstid i sekunder sedan epoch
+    @Column(name = "expires_at", nullable = false)
+    private long expiresAt;
+
+    // Default constructor
+    public RevokedToken() {}
+
+    public RevokedToken(String tokenId, long expiresAt) {
+        this.tokenId = tokenId;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters och Setters
+    public Long getRevocationSeq() {
+        return revocationSeq;
+    }
+
+    public void setRevocationSeq(Long revocationSeq) {
+        this.revocationSeq = revocationSeq;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public void setTokenId(String tokenId) {
+        this.tokenId = tokenId;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.library_system.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Markering att ett steg i databasens uppsättning är gjort, t.ex. att exempeldata har skapats
+@Entity
+@Table(name = "schema_markers")
+public class SchemaMarker {
+
+    @Id
+    @Column(name = "marker_name")
+    private String name;
+
+    @Column(name = "marker_version", nullable = false)
+    private int version;
+
+    @Column(name = "applied_at", nullable = false)
+    private LocalDateTime appliedAt;
+
+    // Default constructor
+    public SchemaMarker() {}
+
+    public SchemaMarker(String name, int version) {
+        this.name = name;
+        this.version = version;
+        this.appliedAt = LocalDateTime.now();
+    }
+
+    // Getters och Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public LocalDateTime getAppliedAt() {
+        return appliedAt;
+    }
+
+    public void setAppliedAt(LocalDateTime appliedAt) {
+        this.appliedAt = appliedAt;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.library_system.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Förräknat antal säkerhetshändelser per tidsintervall, händelsetyp och utfall.
+// Unikt index på (granularity, bucket_start, event_type, success) skapas av SecurityRollupService.
+@Entity
+@Table(name = "security_event_rollups")
+public class SecurityEventRollup {
+
+    // Granularitet konstanter
+    public static final String MINUTE = "MINUTE";
+    public static final String HOUR = "HOUR";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "rollup_id")
+    private Long rollupId;
+
+    @Column(name = "granularity", nullable = false)
+    private String granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "event_type", nullable = false)
+    private String eventType;
+
+    @Column(name = "success", nullable = false)
+    private boolean success;
+
+    @Column(name = "event_count", nullable = false)
+    private long eventCount;
+
+    // Default constructor
+    public SecurityEventRollup() {}
+
+    // Getters och Setters
+    public Long getRollupId() {
+        return rollupId;
+    }
+
+    public void setRollupId(Long rollupId) {
+        this.rollupId = rollupId;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    public void setEventCount(long eventCount) {
+        this.eventCount = eventCount;
+    }
+}
@@ -47,6 +47,7 @@ public class SecurityLog {
     public static final String ACCOUNT_UNLOCKED = "ACCOUNT_UNLOCKED";
     public static final String ACCESS_DENIED = "ACCESS_DENIED";
     public static final String ROLE_CHANGE = "ROLE_CHANGE";
+    public static final String CREDENTIAL_STUFFING = "CREDENTIAL_STUFFING";
 
     // Default constructor
     public SecurityLog() {
@@ -1,5 +1,6 @@
 package com.example.library_system.listener;
 
+import com.example.library_system.security.PasswordHashingOverloadedException;
 import com.example.library_system.service.SecurityLogService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,9 +28,13 @@ public class AuthenticationEventListener {
         // Loggning sker i AuthController för att undvika dubbelloggar
     }
 
-    // Lyssna på misslyckade inloggningar
+    // Lyssna på misslyckade inloggningar. En överbelastad lösenordspool är inget fel av användaren
+    // och räknas inte mot kontot (annars kunde en lastspik låsa konton).
     @EventListener
     public void onAuthenticationFailure(AbstractAuthenticationFailureEvent event) {
+        if (event.getException() instanceof PasswordHashingOverloadedException) {
+            return;
+        }
         String username = event.getAuthentication().getName();
         String reason = event.getException().getMessage();
         HttpServletRequest request = getHttpServletRequest();
@@ -0,0 +1,27 @@
+package com.example.library_system.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("library.CatalogSerialization")
+@Label("Catalog Serialization")
+@Category("Library")
+@Description("JSON-serialisering av böcker och författare")
+@StackTrace(false)
+public class CatalogSerializationEvent extends Event {
+
+    @Label("Payload Type")
+    String payloadType;
+
+    @Label("Elements")
+    int elements;
+
+    public CatalogSerializationEvent(String payloadType, int elements) {
+        this.payloadType = payloadType;
+        this.elements = elements;
+    }
+}
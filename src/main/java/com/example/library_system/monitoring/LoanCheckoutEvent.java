@@ -0,0 +1,35 @@
+package com.example.library_system.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("library.LoanCheckout")
+@Label("Loan Checkout")
+@Category("Library")
+@Description("Utlåning av en bok, från kontroll till sparat lån")
+@StackTrace(false)
+public class LoanCheckoutEvent extends Event {
+
+    @Label("User ID")
+    long userId;
+
+    @Label("Book ID")
+    long bookId;
+
+    @Label("Outcome")
+    String outcome;
+
+    public LoanCheckoutEvent(long userId, long bookId) {
+        this.userId = userId;
+        this.bookId = bookId;
+    }
+
+    public void complete(String outcome) {
+        this.outcome = outcome;
+        commit();
+    }
+}
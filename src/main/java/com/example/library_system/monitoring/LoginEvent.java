@@ -0,0 +1,31 @@
+package com.example.library_system.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("library.Login")
+@Label("Login")
+@Category("Library")
+@Description("Inloggning via API:t, inklusive BCrypt-kontroll och sessionsskapande")
+@StackTrace(false)
+public class LoginEvent extends Event {
+
+    @Label("Email")
+    String email;
+
+    @Label("Outcome")
+    String outcome;
+
+    public LoginEvent(String email) {
+        this.email = email;
+    }
+
+    public void complete(String outcome) {
+        this.outcome = outcome;
+        commit();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.library_system.monitoring;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Ett spår för en HTTP-förfrågan: spans i ordning och tid per fas.
+// Fastiden är självtid (spanets tid minus barnens), så faserna summerar till hela förfrågan.
+public class RequestTrace {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    public record SpanRecord(String phase, String name, int depth, double offsetMillis, double durationMillis) {
+    }
+
+    private final long id = SEQUENCE.incrementAndGet();
+    private final String method;
+    private final String uri;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final long startNanos = System.nanoTime();
+    private final int maxSpans;
+    private final List<SpanRecord> spans = new ArrayList<>();
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private final Deque<OpenSpan> stack = new ArrayDeque<>();
+    private int droppedSpans;
+    private long durationNanos;
+    private int status;
+
+    RequestTrace(String method, String uri, int maxSpans) {
+        this.method = method;
+        this.uri = uri;
+        this.maxSpans = maxSpans;
+    }
+
+    Tracer.Span open(String phase, String name) {
+        OpenSpan span = new OpenSpan(phase, name, stack.size());
+        stack.push(span);
+        return span;
+    }
+
+    void finish(int status) {
+        while (!stack.isEmpty()) {
+            stack.peek().close();
+        }
+        this.status = status;
+        this.durationNanos = System.nanoTime() - startNanos;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public double getTotalMillis() {
+        return durationNanos / 1_000_000.0;
+    }
+
+    public Map<String, Double> getPhases() {
+        Map<String, Double> phases = new LinkedHashMap<>();
+        phaseNanos.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(entry -> phases.put(entry.getKey(), entry.getValue() / 1_000_000.0));
+        return phases;
+    }
+
+    public List<SpanRecord> getSpans() {
+        return spans.stream().sorted(Comparator.comparingDouble(SpanRecord::offsetMillis)).toList();
+    }
+
+    public int getDroppedSpans() {
+        return droppedSpans;
+    }
+
+    private final class OpenSpan implements Tracer.Span {
+        private final String phase;
+        private final String name;
+        private final int depth;
+        private final long start = System.nanoTime();
+        private long childNanos;
+        private boolean closed;
+
+        private OpenSpan(String phase, String name, int depth) {
+            this.phase = phase;
+            this.name = name;
+            this.depth = depth;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            // Stäng även barn som inte stängts (t.ex. vid undantag)
+            while (!stack.isEmpty() && stack.peek() != this) {
+                stack.peek().close();
+            }
+            closed = true;
+            stack.poll();
+
+            long duration = System.nanoTime() - start;
+            OpenSpan parent = stack.peek();
+            if (parent != null) {
+                parent.childNanos += duration;
+            }
+            phaseNanos.merge(phase, duration - childNanos, Long::sum);
+
+            if (spans.size() < maxSpans) {
+                spans.add(new SpanRecord(phase, name, depth,
+                        (start - startNanos) / 1_000_000.0, duration / 1_000_000.0));
+            } else {
+                droppedSpans++;
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.library_system.monitoring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+// Ringbuffert med de senaste långsamma spåren; äldsta skrivs över när bufferten är full
+public class SlowTraceStore {
+
+    private final RequestTrace[] ring;
+    private int next;
+
+    public SlowTraceStore(int capacity) {
+        this.ring = new RequestTrace[capacity];
+    }
+
+    public synchronized void add(RequestTrace trace) {
+        ring[next] = trace;
+        next = (next + 1) % ring.length;
+    }
+
+    // Långsammast först
+    public synchronized List<RequestTrace> getTraces() {
+        List<RequestTrace> traces = new ArrayList<>();
+        for (RequestTrace trace : ring) {
+            if (trace != null) {
+                traces.add(trace);
+            }
+        }
+        traces.sort(Comparator.comparingDouble(RequestTrace::getTotalMillis).reversed());
+        return traces;
+    }
+
+    public synchronized Optional<RequestTrace> getTrace(long id) {
+        for (RequestTrace trace : ring) {
+            if (trace != null && trace.getId() == id) {
+                return Optional.of(trace);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(ring, null);
+        next = 0;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.library_system.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Räknar SQL-satser och databastid per HTTP-förfrågan och loggar förfrågningar som
+// går över budgeten, tillsammans med de fingeravtryck som upprepas (N+1).
+public class SqlBudgetFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlBudgetFilter.class);
+
+    private final int maxStatements;
+    private final long maxDbMillis;
+    private final int repeatThreshold;
+    private final DistributionSummary statementsPerRequest;
+    private final DistributionSummary dbMillisPerRequest;
+    private final Counter budgetExceeded;
+
+    public SqlBudgetFilter(int maxStatements, long maxDbMillis, int repeatThreshold, MeterRegistry registry) {
+        this.maxStatements = maxStatements;
+        this.maxDbMillis = maxDbMillis;
+        this.repeatThreshold = repeatThreshold;
+        this.statementsPerRequest = DistributionSummary.builder("library.sql.statements.per.request")
+                .description("SQL-satser per HTTP-förfrågan")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        this.dbMillisPerRequest = DistributionSummary.builder("library.sql.time.per.request")
+                .description("Databastid per HTTP-förfrågan")
+                .baseUnit("milliseconds")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        this.budgetExceeded = Counter.builder("library.sql.budget.exceeded")
+                .description("Förfrågningar över SQL-budgeten")
+                .register(registry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        SqlStatementStats stats = SqlStatementRecorder.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlStatementRecorder.end(stats);
+            check(request, stats);
+        }
+    }
+
+    private void check(HttpServletRequest request, SqlStatementStats stats) {
+        if (stats.getStatementCount() == 0) {
+            return;
+        }
+        statementsPerRequest.record(stats.getStatementCount());
+        dbMillisPerRequest.record(stats.getTotalMillis());
+
+        Map<String, Integer> repeated = stats.getRepeatedFingerprints(repeatThreshold);
+        boolean overBudget = stats.getStatementCount() > maxStatements || stats.getTotalMillis() > maxDbMillis;
+        if (!overBudget && repeated.isEmpty()) {
+            return;
+        }
+
+        budgetExceeded.increment();
+        StringBuilder details = new StringBuilder();
+        repeated.forEach((fingerprint, count) ->
+                details.append("\n  ").append(count).append("x ").append(fingerprint));
+        logger.warn("SQL budget exceeded for {} {}: {} statements (max {}), {} ms in database (max {}){}",
+                request.getMethod(), request.getRequestURI(), stats.getStatementCount(), maxStatements,
+                String.format("%.1f", stats.getTotalMillis()), maxDbMillis,
+                repeated.isEmpty() ? "" : ", repeated statements:" + details);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.library_system.monitoring;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+// Kopplar SQL-satser till pågående områden på den aktuella tråden.
+// Områden kan nästlas (t.ex. ett test runt en förfrågan) - varje sats räknas i alla öppna områden.
+public final class SqlStatementRecorder {
+
+    private static final ThreadLocal<Deque<SqlStatementStats>> SCOPES = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private SqlStatementRecorder() {
+    }
+
+    public static SqlStatementStats begin() {
+        SqlStatementStats stats = new SqlStatementStats();
+        SCOPES.get().push(stats);
+        return stats;
+    }
+
+    public static void end(SqlStatementStats stats) {
+        Deque<SqlStatementStats> scopes = SCOPES.get();
+        scopes.remove(stats);
+        if (scopes.isEmpty()) {
+            SCOPES.remove();
+        }
+    }
+
+    static void record(String sql, long nanos) {
+        Deque<SqlStatementStats> scopes = SCOPES.get();
+        if (scopes.isEmpty()) {
+            SCOPES.remove();
+            return;
+        }
+        for (SqlStatementStats stats : scopes) {
+            stats.record(sql, nanos);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.library_system.monitoring;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// SQL-satser och databastid inom ett avgränsat område (en HTTP-förfrågan eller ett test).
+// Används bara från en tråd i taget.
+public class SqlStatementStats {
+
+    // Begränsa hur mycket rå SQL som sparas om en förfrågan skenar
+    private static final int MAX_RECORDED_STATEMENTS = 1000;
+
+    private final List<String> statements = new ArrayList<>();
+    private final Map<String, Integer> fingerprintCounts = new LinkedHashMap<>();
+    private int statementCount;
+    private long totalNanos;
+
+    void record(String sql, long nanos) {
+        statementCount++;
+        totalNanos += nanos;
+        if (statements.size() < MAX_RECORDED_STATEMENTS) {
+            statements.add(sql);
+        }
+        fingerprintCounts.merge(SqlFingerprint.of(sql), 1, Integer::sum);
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public double getTotalMillis() {
+        return totalNanos / 1_000_000.0;
+    }
+
+    public List<String> getStatements() {
+        return Collections.unmodifiableList(statements);
+    }
+
+    // Fingeravtryck som körts minst threshold gånger, flest först - typiskt N+1
+    public Map<String, Integer> getRepeatedFingerprints(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        fingerprintCounts.entrySet().stream()
+                .filter(entry -> entry.getValue() >= threshold)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .forEach(entry -> repeated.put(entry.getKey(), entry.getValue()));
+        return repeated;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.library_system.monitoring;
+
+// Lättviktig spårning inom en tråd. Utan pågående spår (ej samplad förfrågan) returneras en
+// delad no-op-span, så kostnaden är en ThreadLocal-läsning per anrop.
+public final class Tracer {
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    private static final Span NOOP = () -> {
+    };
+
+    private Tracer() {
+    }
+
+    public interface Span extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public static Span span(String phase, String name) {
+        RequestTrace trace = CURRENT.get();
+        return trace != null ? trace.open(phase, name) : NOOP;
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    static RequestTrace begin(String method, String uri, int maxSpans) {
+        RequestTrace trace = new RequestTrace(method, uri, maxSpans);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    static void end(RequestTrace trace, int status) {
+        trace.finish(status);
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.library_system.monitoring;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Startar ett spår för samplade förfrågningar. Rot-spanets självtid är filterkedjan
+// (säkerhet, rate limiting m.m.) eftersom allt annat hamnar i egna faser.
+public class TracingFilter extends OncePerRequestFilter {
+
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final int maxSpans;
+    private final SlowTraceStore store;
+
+    public TracingFilter(double sampleRate, long slowThresholdMillis, int maxSpans, SlowTraceStore store) {
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = slowThresholdMillis * 1_000_000;
+        this.maxSpans = maxSpans;
+        this.store = store;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        RequestTrace trace = Tracer.begin(request.getMethod(), request.getRequestURI(), maxSpans);
+        try (Tracer.Span ignored = Tracer.span("filters", request.getMethod() + " " + request.getRequestURI())) {
+            filterChain.doFilter(request, response);
+        } finally {
+            Tracer.end(trace, response.getStatus());
+            if (trace.getTotalMillis() * 1_000_000 >= slowThresholdNanos) {
+                store.add(trace);
+            }
+        }
+    }
+}
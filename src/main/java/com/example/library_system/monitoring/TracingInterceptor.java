@@ -0,0 +1,56 @@
+package com.example.library_system.monitoring;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Controller;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Proxy;
+
+// Span runt controller-, service- och repository-metoder. Utan pågående spår går anropet rakt igenom.
+public class TracingInterceptor implements MethodInterceptor {
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (!Tracer.isActive()) {
+            return invocation.proceed();
+        }
+
+        Class<?> targetClass = invocation.getThis() != null
+                ? AopUtils.getTargetClass(invocation.getThis())
+                : invocation.getMethod().getDeclaringClass();
+        String name = ownerName(targetClass) + "." + invocation.getMethod().getName();
+
+        try (Tracer.Span ignored = Tracer.span(phaseOf(targetClass), name)) {
+            return invocation.proceed();
+        }
+    }
+
+    // Spring Data-repositories är JDK-proxyer; använd repository-gränssnittets namn
+    private static String ownerName(Class<?> type) {
+        if (Proxy.isProxyClass(type)) {
+            for (Class<?> candidate : type.getInterfaces()) {
+                if (Repository.class.isAssignableFrom(candidate)) {
+                    return candidate.getSimpleName();
+                }
+            }
+        }
+        return type.getSimpleName();
+    }
+
+    public static String phaseOf(Class<?> type) {
+        if (Repository.class.isAssignableFrom(type)) {
+            return "repository";
+        }
+        if (AnnotatedElementUtils.hasAnnotation(type, Controller.class)) {
+            return "controller";
+        }
+        if (AnnotatedElementUtils.hasAnnotation(type, Service.class)) {
+            return "service";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.library_system.monitoring;
+
+import com.example.library_system.dto.BookWithDetailsDTO;
+import com.example.library_system.entity.Author;
+import com.example.library_system.entity.Book;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+// Jackson-konverteraren med ett span runt serialiseringen av svaret,
+// och ett JFR-event när svaret är katalogdata (böcker/författare).
+// Finns i samma form för CBOR och Smile (TracingCborHttpMessageConverter, TracingSmileHttpMessageConverter).
+public class TracingJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    public TracingJacksonHttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        traced(object, () -> super.writeInternal(object, type, outputMessage));
+    }
+
+    // Delas med CBOR- och Smile-konverterarna så att alla format spåras likadant
+    static void traced(Object object, Write write) throws IOException {
+        CatalogSerializationEvent event = catalogEvent(object);
+        if (event != null) {
+            event.begin();
+        }
+        try (Tracer.Span ignored = Tracer.span("serialization",
+                object != null ? object.getClass().getSimpleName() : "null")) {
+            write.write();
+        } finally {
+            if (event != null) {
+                event.commit();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface Write {
+        void write() throws IOException;
+    }
+
+    private static CatalogSerializationEvent catalogEvent(Object object) {
+        Object sample = object;
+        int elements = 1;
+        if (object instanceof Collection<?> collection) {
+            if (collection.isEmpty()) {
+                return null;
+            }
+            sample = collection.iterator().next();
+            elements = collection.size();
+        }
+        if (sample instanceof Book || sample instanceof Author || sample instanceof BookWithDetailsDTO) {
+            CatalogSerializationEvent event = new CatalogSerializationEvent(sample.getClass().getSimpleName(), elements);
+            return event.isEnabled() ? event : null;
+        }
+        return null;
+    }
+}
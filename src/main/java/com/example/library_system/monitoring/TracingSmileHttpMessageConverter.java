@@ -0,0 +1,31 @@
+package com.example.library_system.monitoring;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+// application/x-jackson-smile med samma spårning som JSON-konverteraren
+public class TracingSmileHttpMessageConverter extends MappingJackson2SmileHttpMessageConverter {
+
+    public TracingSmileHttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    // Bara för svar: Smile i en @RequestBody skulle gå förbi filter som läser kroppen som JSON
+    // (t.ex. RateLimitFilter.extractAccount vid inloggning), så inkommande Smile ger 415
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        TracingJacksonHttpMessageConverter.traced(object, () -> super.writeInternal(object, type, outputMessage));
+    }
+}
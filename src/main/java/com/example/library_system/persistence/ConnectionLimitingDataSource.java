@@ -0,0 +1,108 @@
+package com.example.library_system.persistence;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Begränsar hur många trådar som samtidigt håller en databasanslutning. Med virtuella trådar
+// finns ingen trådpool som naturligt begränsar antalet, så tusentals förfrågningar kan annars
+// köa inne i Hikari. Semaforen är rättvis och parkerar virtuella trådar billigt; den som inte
+// får plats inom timeouten får ett fel direkt i stället för att vänta ut Hikaris connectionTimeout.
+public class ConnectionLimitingDataSource {
+
+    private final Semaphore permits;
+    private final int maxPermits;
+    private final long acquireTimeoutMillis;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    public ConnectionLimitingDataSource(int maxPermits, long acquireTimeoutMillis) {
+        this.permits = new Semaphore(maxPermits, true);
+        this.maxPermits = maxPermits;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    public DataSource wrap(DataSource dataSource) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (!method.getName().equals("getConnection")) {
+                return invoke(dataSource, method, args);
+            }
+            acquire();
+            try {
+                return releasingOnClose((Connection) invoke(dataSource, method, args));
+            } catch (Throwable e) {
+                permits.release();
+                throw e;
+            }
+        };
+        return (DataSource) Proxy.newProxyInstance(ConnectionLimitingDataSource.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, handler);
+    }
+
+    private void acquire() throws SQLTransientConnectionException, InterruptedException {
+        long start = System.nanoTime();
+        if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            timeouts.increment();
+            throw new SQLTransientConnectionException("Database concurrency limit of " + maxPermits
+                    + " reached, waited " + acquireTimeoutMillis + " ms");
+        }
+        long waited = System.nanoTime() - start;
+        acquired.increment();
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulate(waited);
+    }
+
+    // Platsen lämnas tillbaka när anslutningen stängs (återlämnas till poolen), bara en gång
+    private Connection releasingOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().equals("close")) {
+                try {
+                    return invoke(connection, method, args);
+                } finally {
+                    if (released.compareAndSet(false, true)) {
+                        permits.release();
+                    }
+                }
+            }
+            return invoke(connection, method, args);
+        };
+        return (Connection) Proxy.newProxyInstance(ConnectionLimitingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        long count = acquired.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxPermits", maxPermits);
+        stats.put("availablePermits", permits.availablePermits());
+        stats.put("waitingThreads", permits.getQueueLength());
+        stats.put("acquired", count);
+        stats.put("timeouts", timeouts.sum());
+        stats.put("avgWaitMillis", count > 0 ? totalWaitNanos.sum() / 1_000_000.0 / count : 0.0);
+        stats.put("maxWaitMillis", maxWaitNanos.get() / 1_000_000.0);
+        return stats;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.library_system.persistence;
+
+// Kastas när ?fields= innehåller okända fält eller inga fält alls (400 via ApiExceptionHandler)
+public class InvalidFieldsException extends IllegalArgumentException {
+
+    public InvalidFieldsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.library_system.persistence;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Kör om hela transaktionen när SQLite svarar SQLITE_BUSY/SQLITE_LOCKED.
+// Sätts på samma metod som @Transactional; försöken görs utanför transaktionen.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RetryOnSqliteBusy {
+}
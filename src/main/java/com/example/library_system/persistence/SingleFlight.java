@@ -0,0 +1,17 @@
+package com.example.library_system.persistence;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Samtidiga anrop med samma argument delar på en körning och dess resultat.
+// Bara för läsningar; resultatet delas mellan anroparna och får inte ändras. Returnera oföränderliga
+// listor med kopior eller DTO:er, aldrig hanterade entiteter: med open-in-view hör de till ledarens
+// EntityManager, som andra trådar inte får röra.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface SingleFlight {
+}
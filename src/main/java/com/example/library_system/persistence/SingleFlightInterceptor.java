@@ -0,0 +1,95 @@
+package com.example.library_system.persistence;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+// När en hel klass öppnar dashboarden samtidigt kommer samma /books-läsning många gånger på en gång.
+// Första anropet (ledaren) kör frågan; de som kommer medan den pågår väntar på samma future och får
+// samma resultat (eller undantag). När ledaren är klar tas nyckeln bort, så nästa anrop läser på nytt
+// - ingen cache, bara delning av det som redan är på väg. En efterföljare kan alltså få data som
+// lästes strax innan den själv anropade. Inuti en transaktion körs metoden alltid själv, så att den
+// ser transaktionens egna ändringar.
+public class SingleFlightInterceptor implements MethodInterceptor {
+
+    private record Key(Method method, List<Object> arguments) {
+    }
+
+    private final boolean enabled;
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final Map<String, LongAdder> coalescedByMethod = new ConcurrentHashMap<>();
+
+    public SingleFlightInterceptor(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return invocation.proceed();
+        }
+        calls.increment();
+
+        Key key = new Key(invocation.getMethod(), Arrays.asList(invocation.getArguments()));
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            coalesced.increment();
+            coalescedByMethod.computeIfAbsent(methodName(invocation.getMethod()), name -> new LongAdder()).increment();
+            return await(leader);
+        }
+
+        executions.increment();
+        try {
+            Object result = invocation.proceed();
+            flight.complete(result);
+            return result;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> leader) throws Throwable {
+        try {
+            return leader.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String methodName(Method method) {
+        return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long total = calls.sum();
+        stats.put("enabled", enabled);
+        stats.put("calls", total);
+        stats.put("executions", executions.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("coalescedRatio", total > 0 ? (double) coalesced.sum() / total : 0.0);
+        stats.put("inFlight", inFlight.size());
+        Map<String, Long> byMethod = new LinkedHashMap<>();
+        coalescedByMethod.forEach((method, count) -> byMethod.put(method, count.sum()));
+        stats.put("coalescedByMethod", byMethod);
+        return stats;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.library_system.persistence;
+
+import com.example.library_system.monitoring.TracingCborHttpMessageConverter;
+import com.example.library_system.monitoring.TracingJacksonHttpMessageConverter;
+import com.example.library_system.monitoring.TracingSmileHttpMessageConverter;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// ?fields=bookId,title - läser bara de valda kolumnerna med en egen SELECT (SparseFieldsetReader)
+// och skriver raderna till JSON-generatorn, utan entiteter. Katalogen (böcker och författare) är liten
+// och läses av många samtidigt, så den läsningen delas mellan samtidiga anrop och buffras därför i minnet.
+// Lån och användare växer med tiden och filtreras per användare; de delas inte utan strömmas rad för rad.
+// Fältnamnen är samma som i de vanliga svaren och bara fälten nedan går att välja
+// (t.ex. aldrig users.password). Formatet följer Accept som för övriga svar (JSON, CBOR eller Smile).
+@Component
+public class SparseFieldsetQuery {
+
+    public enum Resource {
+        BOOKS("books", "book_id", null, true, fields(
+                "bookId", "book_id", ColumnType.LONG,
+                "title", "title", ColumnType.STRING,
+                "publicationYear", "publication_year", ColumnType.INTEGER,
+                "availableCopies", "available_copies", ColumnType.INTEGER,
+                "totalCopies", "total_copies", ColumnType.INTEGER,
+                "authorId", "author_id", ColumnType.LONG)),
+        AUTHORS("authors", "author_id", null, true, fields(
+                "authorId", "author_id", ColumnType.LONG,
+                "firstName", "first_name", ColumnType.STRING,
+                "lastName", "last_name", ColumnType.STRING,
+                "birthYear", "birth_year", ColumnType.INTEGER,
+                "nationality", "nationality", ColumnType.STRING)),
+        LOANS("loans", "loan_id", "user_id", false, fields(
+                "loanId", "loan_id", ColumnType.LONG,
+                "userId", "user_id", ColumnType.LONG,
+                "bookId", "book_id", ColumnType.LONG,
+                "borrowedDate", "borrowed_date", ColumnType.DATE,
+                "dueDate", "due_date", ColumnType.DATE,
+                "returnedDate", "returned_date", ColumnType.DATE)),
+        USERS("users", "user_id", "user_id", false, fields(
+                "userId", "user_id", ColumnType.LONG,
+                "firstName", "first_name", ColumnType.STRING,
+                "lastName", "last_name", ColumnType.STRING,
+                "email", "email", ColumnType.STRING,
+                "registrationDate", "registration_date", ColumnType.DATE));
+
+        private final String table;
+        private final String idColumn;
+        // Användaren som äger raden, för listningar som begränsas till den inloggade (null = publik)
+        private final String ownerColumn;
+        // Läsningen delas mellan samtidiga anrop (buffras), annars strömmas den
+        private final boolean shared;
+        private final Map<String, Column> columns;
+
+        Resource(String table, String idColumn, String ownerColumn, boolean shared, Map<String, Column> columns) {
+            this.table = table;
+            this.idColumn = idColumn;
+            this.ownerColumn = ownerColumn;
+            this.shared = shared;
+            this.columns = columns;
+        }
+
+        public Set<String> getFieldNames() {
+            return columns.keySet();
+        }
+
+        String table() {
+            return table;
+        }
+
+        String idColumn() {
+            return idColumn;
+        }
+
+        String ownerColumn() {
+            return ownerColumn;
+        }
+
+        Column column(String field) {
+            return columns.get(field);
+        }
+    }
+
+    enum ColumnType { LONG, INTEGER, STRING, DATE }
+
+    record Column(String name, ColumnType type) {
+    }
+
+    @Autowired
+    private SparseFieldsetReader reader;
+
+    @Autowired
+    private TracingJacksonHttpMessageConverter jsonConverter;
+
+    @Autowired
+    private TracingCborHttpMessageConverter cborConverter;
+
+    @Autowired
+    private TracingSmileHttpMessageConverter smileConverter;
+
+    // Tolka fields-parametern och skriv de valda kolumnerna som svar.
+    // Ogiltiga fält ger InvalidFieldsException innan något har skrivits till svaret.
+    public void write(Resource resource, String fields, String accept, HttpServletResponse response)
+            throws IOException {
+        write(resource, fields, null, accept, response);
+    }
+
+    // Som ovan, men bara rader som ägs av ownerId (null = alla rader)
+    public void write(Resource resource, String fields, Long ownerId, String accept, HttpServletResponse response)
+            throws IOException {
+        if (ownerId != null && resource.ownerColumn == null) {
+            throw new IllegalArgumentException(resource + " has no owner column");
+        }
+        write(resource, parseFields(resource, fields), ownerId, accept, response);
+    }
+
+    // Tolka fields-parametern; okända fält ger InvalidFieldsException
+    public List<String> parseFields(Resource resource, String fields) {
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!resource.columns.containsKey(name)) {
+                throw new InvalidFieldsException("Unknown field '" + name + "', allowed: "
+                        + String.join(",", resource.getFieldNames()));
+            }
+            selected.add(name);
+        }
+        if (selected.isEmpty()) {
+            throw new InvalidFieldsException("fields must name at least one of: "
+                    + String.join(",", resource.getFieldNames()));
+        }
+        return List.copyOf(selected);
+    }
+
+    void write(Resource resource, List<String> fields, Long ownerId, String accept, HttpServletResponse response)
+            throws IOException {
+        // Den delade läsningen görs innan svaret öppnas, så att ett fel i frågan fortfarande blir ett felsvar
+        List<List<Object>> rows = resource.shared ? reader.read(resource, fields, ownerId) : null;
+
+        AbstractJackson2HttpMessageConverter converter = converterFor(accept);
+        response.setContentType(converter.getSupportedMediaTypes().get(0).toString());
+        try (JsonGenerator generator = converter.getObjectMapper().getFactory()
+                .createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            if (rows != null) {
+                for (List<Object> row : rows) {
+                    writeRow(generator, fields, row);
+                }
+            } else {
+                reader.stream(resource, fields, ownerId, row -> writeRow(generator, fields, row));
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private static void writeRow(JsonGenerator generator, List<String> fields, List<Object> row) throws IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < fields.size(); i++) {
+            generator.writeFieldName(fields.get(i));
+            writeValue(generator, row.get(i));
+        }
+        generator.writeEndObject();
+    }
+
+    // Första format i Accept som någon av konverterarna skriver; JSON för */* och okända typer
+    private AbstractJackson2HttpMessageConverter converterFor(String accept) {
+        List<AbstractJackson2HttpMessageConverter> converters = List.of(jsonConverter, cborConverter, smileConverter);
+        if (accept != null) {
+            try {
+                for (MediaType requested : MediaType.parseMediaTypes(accept)) {
+                    for (AbstractJackson2HttpMessageConverter converter : converters) {
+                        if (converter.getSupportedMediaTypes().stream().anyMatch(requested::includes)) {
+                            return converter;
+                        }
+                    }
+                }
+            } catch (InvalidMediaTypeException e) {
+                // Trasig Accept-header - svara med JSON
+            }
+        }
+        return jsonConverter;
+    }
+
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof Long number) {
+            generator.writeNumber(number);
+        } else if (value instanceof Integer number) {
+            generator.writeNumber(number);
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    private static Map<String, Column> fields(Object... definitions) {
+        Map<String, Column> columns = new LinkedHashMap<>();
+        for (int i = 0; i < definitions.length; i += 3) {
+            columns.put((String) definitions[i], new Column((String) definitions[i + 1], (ColumnType) definitions[i + 2]));
+        }
+        return columns;
+    }
+}
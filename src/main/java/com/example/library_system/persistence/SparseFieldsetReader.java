@@ -0,0 +1,116 @@
+package com.example.library_system.persistence;
+
+import com.example.library_system.persistence.SparseFieldsetQuery.Column;
+import com.example.library_system.persistence.SparseFieldsetQuery.ColumnType;
+import com.example.library_system.persistence.SparseFieldsetQuery.Resource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Läser de valda kolumnerna åt SparseFieldsetQuery. En egen böna så att read() går via proxyn och
+// @SingleFlight gäller: när en hel klass öppnar dashboarden delar samtidiga /books?fields=-läsningar
+// med samma fält på en SELECT. Priset är att hela svaret buffras, så read() är bara för de små
+// katalogtabellerna; stream() lämnar en rad i taget och håller inget kvar. Raderna från read() delas
+// mellan anroparna och är därför oföränderliga; värdena är Long, Integer, String (datum som yyyy-MM-dd) eller null.
+@Component
+public class SparseFieldsetReader {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Tar emot en rad i taget från stream(); raden gäller bara under anropet
+    @FunctionalInterface
+    public interface RowWriter {
+        void write(List<Object> row) throws IOException;
+    }
+
+    // ownerId begränsar till rader som ägs av den användaren (null = alla rader)
+    @SingleFlight
+    public List<List<Object>> read(Resource resource, List<String> fields, Long ownerId) {
+        List<Column> columns = fields.stream().map(resource::column).toList();
+        List<List<Object>> rows = jdbcTemplate.query(sql(resource, columns, ownerId),
+                (rs, rowNum) -> Collections.unmodifiableList(Arrays.asList(readRow(rs, columns, new Object[columns.size()]))),
+                arguments(ownerId));
+        return Collections.unmodifiableList(rows);
+    }
+
+    // Som read(), men varje rad lämnas till writer medan resultatet läses
+    public void stream(Resource resource, List<String> fields, Long ownerId, RowWriter writer) throws IOException {
+        List<Column> columns = fields.stream().map(resource::column).toList();
+        Object[] values = new Object[columns.size()];
+        List<Object> row = Arrays.asList(values);
+        try {
+            jdbcTemplate.query(sql(resource, columns, ownerId), rs -> {
+                readRow(rs, columns, values);
+                try {
+                    writer.write(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, arguments(ownerId));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String sql(Resource resource, List<Column> columns, Long ownerId) {
+        return "SELECT " + columns.stream().map(Column::name).collect(Collectors.joining(", "))
+                + " FROM " + resource.table()
+                + (ownerId != null ? " WHERE " + resource.ownerColumn() + " = ?" : "")
+                + " ORDER BY " + resource.idColumn();
+    }
+
+    private static Object[] arguments(Long ownerId) {
+        return ownerId != null ? new Object[] {ownerId} : new Object[0];
+    }
+
+    private static Object[] readRow(ResultSet rs, List<Column> columns, Object[] values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readValue(rs, i + 1, columns.get(i).type());
+        }
+        return values;
+    }
+
+    private static Object readValue(ResultSet rs, int index, ColumnType type) throws SQLException {
+        return switch (type) {
+            case LONG -> {
+                long value = rs.getLong(index);
+                yield rs.wasNull() ? null : value;
+            }
+            case INTEGER -> {
+                int value = rs.getInt(index);
+                yield rs.wasNull() ? null : value;
+            }
+            case STRING -> rs.getString(index);
+            case DATE -> {
+                LocalDate value = toLocalDate(rs.getObject(index));
+                yield value == null ? null : value.toString();
+            }
+        };
+    }
+
+    // Datum ligger både som text (exempeldatan, "2024-01-15 10:00:00") och som epoch-millis
+    // (Hibernate). Drivrutinens getDate klarar bara sitt eget textformat, så vi tolkar själva.
+    static LocalDate toLocalDate(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number millis) {
+            return Instant.ofEpochMilli(millis.longValue()).atZone(ZoneId.systemDefault()).toLocalDate();
+        }
+        String text = value.toString();
+        return LocalDate.parse(text.length() > 10 ? text.substring(0, 10) : text);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.library_system.persistence;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// SQLite tillåter bara en skrivare. När två transaktioner som båda läst försöker skriva
+// ger SQLite SQLITE_BUSY direkt till den ena (busy_timeout hjälper inte vid den låsningen),
+// så transaktionen måste göras om från början. Backoff med jitter för att inte krocka igen.
+// Med serializeWriters körs de märkta transaktionerna en i taget inom JVM:en, så de krockar
+// bara med övriga skrivningar (säkerhetsloggar m.m.) i stället för med varandra.
+public class SqliteBusyRetryInterceptor implements MethodInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqliteBusyRetryInterceptor.class);
+
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final ReentrantLock writerLock;
+
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    public SqliteBusyRetryInterceptor(int maxAttempts, long initialBackoffMillis, boolean serializeWriters) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.writerLock = serializeWriters ? new ReentrantLock(true) : null;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        // Inuti en pågående transaktion kan vi inte göra om bara en del; låt den yttre hantera det
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return invocation.proceed();
+        }
+
+        invocations.increment();
+        if (writerLock == null) {
+            return proceedWithRetry(invocation);
+        }
+        writerLock.lockInterruptibly();
+        try {
+            return proceedWithRetry(invocation);
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    private Object proceedWithRetry(MethodInvocation invocation) throws Throwable {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // Ny kopia per försök, proceed() får bara anropas en gång per invocation
+                return ((ProxyMethodInvocation) invocation).invocableClone().proceed();
+            } catch (RuntimeException e) {
+                if (!isBusy(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    logger.warn("SQLite still busy after {} attempts in {}", attempt, invocation.getMethod().getName());
+                    throw e;
+                }
+                retries.increment();
+                sleepBeforeRetry(attempt);
+            }
+        }
+    }
+
+    private void sleepBeforeRetry(int attempt) throws InterruptedException {
+        long backoff = initialBackoffMillis << Math.min(attempt - 1, 6);
+        TimeUnit.MILLISECONDS.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff + 1));
+    }
+
+    static boolean isBusy(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                int code = sqlException.getErrorCode();
+                if (code == SQLITE_BUSY || code == SQLITE_LOCKED
+                        || String.valueOf(sqlException.getMessage()).contains("SQLITE_BUSY")) {
+                    return true;
+                }
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("invocations", invocations.sum());
+        stats.put("retries", retries.sum());
+        stats.put("exhausted", exhausted.sum());
+        stats.put("maxAttempts", maxAttempts);
+        stats.put("waitingWriters", writerLock != null ? writerLock.getQueueLength() : 0);
+        return stats;
+    }
+}
@@ -1,11 +1,14 @@
 package com.example.library_system.repository;
 
+import com.example.library_system.dto.BookAvailabilityDTO;
 import com.example.library_system.entity.Book;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -22,4 +25,21 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     // Kombinerad sökning på titel ELLER författar-ID
     @Query("SELECT b FROM Book b WHERE LOWER(b.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR b.authorId = :authorId")
     List<Book> searchBooks(@Param("searchTerm") String searchTerm, @Param("authorId") Long authorId);
-}
\ No newline at end of file
+
+    // Minska tillgängliga kopior i en sats - villkoret gör att antalet aldrig blir negativt
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Book b SET b.availableCopies = b.availableCopies - 1 WHERE b.bookId = :bookId AND b.availableCopies > 0")
+    int decrementAvailableCopies(@Param("bookId") Long bookId);
+
+    // Öka tillgängliga kopior i en sats, aldrig över totalt antal
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Book b SET b.availableCopies = b.availableCopies + 1 WHERE b.bookId = :bookId AND b.availableCopies < b.totalCopies")
+    int incrementAvailableCopies(@Param("bookId") Long bookId);
+
+    // Bara tillgängligheten, utan att ladda entiteterna (för SSE-strömmen)
+    @Query("SELECT new com.example.library_system.dto.BookAvailabilityDTO(b.bookId, b.availableCopies) FROM Book b WHERE b.bookId IN :bookIds")
+    List<BookAvailabilityDTO> findAvailabilityByBookIds(@Param("bookIds") Collection<Long> bookIds);
+
+    @Query("SELECT new com.example.library_system.dto.BookAvailabilityDTO(b.bookId, b.availableCopies) FROM Book b ORDER BY b.bookId")
+    List<BookAvailabilityDTO> findAllAvailability();
+}
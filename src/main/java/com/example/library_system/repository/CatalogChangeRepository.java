@@ -0,0 +1,40 @@
+package com.example.library_system.repository;
+
+import com.example.library_system.entity.CatalogChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CatalogChangeRepository extends JpaRepository<CatalogChange, Long> {
+
+    // Ändringar efter klientens cursor, äldst först
+    List<CatalogChange> findByChangeSeqGreaterThanOrderByChangeSeqAsc(Long changeSeq, Limit limit);
+
+    @Query("SELECT COALESCE(MAX(c.changeSeq), 0) FROM CatalogChange c")
+    long findMaxChangeSeq();
+
+    // Tidigare rader för samma bok/författare - den nya raden har redan ett högre nummer
+    @Modifying
+    @Query("DELETE FROM CatalogChange c WHERE c.entityType = :entityType AND c.entityId = :entityId AND c.changeSeq < :changeSeq")
+    int deleteSuperseded(@Param("entityType") String entityType, @Param("entityId") Long entityId,
+                         @Param("changeSeq") Long changeSeq);
+
+    // Senaste gravstenen som är äldre än gränsen, men aldrig loggens sista rad (då skulle numret återanvändas)
+    @Query("SELECT MAX(c.changeSeq) FROM CatalogChange c WHERE c.operation = 'DELETE' AND c.changedAt < :cutoff " +
+            "AND c.changeSeq < (SELECT MAX(m.changeSeq) FROM CatalogChange m)")
+    Long findLastExpiredTombstone(@Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("DELETE FROM CatalogChange c WHERE c.operation = 'DELETE' AND c.changeSeq <= :changeSeq")
+    int deleteTombstonesThrough(@Param("changeSeq") Long changeSeq);
+
+    @Query("SELECT c.entityId FROM CatalogChange c WHERE c.entityType = :entityType")
+    List<Long> findEntityIds(@Param("entityType") String entityType);
+}
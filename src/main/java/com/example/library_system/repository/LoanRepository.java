@@ -1,6 +1,8 @@
 package com.example.library_system.repository;
 
+import com.example.library_system.dto.LoanDetailsDTO;
 import com.example.library_system.entity.Loan;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,12 +14,30 @@ import java.util.Optional;
 @Repository
 public interface LoanRepository extends JpaRepository<Loan, Long> {
 
+    String LOAN_DETAILS = "SELECT new com.example.library_system.dto.LoanDetailsDTO(l.loanId, l.userId, l.bookId, " +
+            "b.title, a.firstName, a.lastName, l.borrowedDate, l.dueDate, l.returnedDate) " +
+            "FROM Loan l LEFT JOIN Book b ON b.bookId = l.bookId LEFT JOIN Author a ON a.authorId = b.authorId " +
+            "WHERE l.userId = :userId AND l.loanId < :before ";
+
     // Hitta alla lån för en specifik användare
     List<Loan> findByUserId(Long userId);
 
     // Hitta alla aktiva lån för en användare (ej återlämnade)
     List<Loan> findByUserIdAndReturnedDateIsNull(Long userId);
 
+    // Användarens lån med titel och författare, nyast först (en sida, cursor = sista loanId)
+    @Query(LOAN_DETAILS + "ORDER BY l.loanId DESC")
+    List<LoanDetailsDTO> findLoanDetailsByUserId(@Param("userId") Long userId, @Param("before") Long before,
+                                                 Pageable pageable);
+
+    @Query(LOAN_DETAILS + "AND l.returnedDate IS NULL ORDER BY l.loanId DESC")
+    List<LoanDetailsDTO> findActiveLoanDetailsByUserId(@Param("userId") Long userId, @Param("before") Long before,
+                                                       Pageable pageable);
+
+    @Query(LOAN_DETAILS + "AND l.returnedDate IS NOT NULL ORDER BY l.loanId DESC")
+    List<LoanDetailsDTO> findReturnedLoanDetailsByUserId(@Param("userId") Long userId, @Param("before") Long before,
+                                                         Pageable pageable);
+
     // Hitta alla lån för en specifik bok
     List<Loan> findByBookId(Long bookId);
 
@@ -28,6 +48,9 @@ public interface LoanRepository extends JpaRepository<Loan, Long> {
     @Query("SELECT l FROM Loan l WHERE l.userId = :userId AND l.bookId = :bookId AND l.returnedDate IS NULL")
     Optional<Loan> findActiveLoadByUserIdAndBookId(@Param("userId") Long userId, @Param("bookId") Long bookId);
 
+    // Antal aktiva lån (för avstämning av adminstatistiken)
+    long countByReturnedDateIsNull();
+
     // Hitta alla försenade lån
     @Query("SELECT l FROM Loan l WHERE l.returnedDate IS NULL AND l.dueDate < CURRENT_DATE")
     List<Loan> findOverdueLoans();
@@ -0,0 +1,9 @@
+package com.example.library_system.repository;
+
+import com.example.library_system.entity.PasswordHashCalibration;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PasswordHashCalibrationRepository extends JpaRepository<PasswordHashCalibration, String> {
+}
@@ -0,0 +1,56 @@
+package com.example.library_system.repository;
+
+import com.example.library_system.entity.SecurityEventRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SecurityEventRollupRepository extends JpaRepository<SecurityEventRollup, Long> {
+
+    // Hämta rollups för en granularitet inom ett tidsintervall
+    List<SecurityEventRollup> findByGranularityAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStartAsc(
+            String granularity, LocalDateTime from, LocalDateTime to);
+
+    // Lägg till antal i en befintlig rollup-rad, returnerar 0 om raden saknas
+    @Modifying
+    @Query("UPDATE SecurityEventRollup r SET r.eventCount = r.eventCount + :delta " +
+            "WHERE r.granularity = :granularity AND r.bucketStart = :bucketStart " +
+            "AND r.eventType = :eventType AND r.success = :success")
+    int increment(@Param("granularity") String granularity,
+                  @Param("bucketStart") LocalDateTime bucketStart,
+                  @Param("eventType") String eventType,
+                  @Param("success") boolean success,
+                  @Param("delta") long delta);
+
+    // Slå ihop dubbletter av samma hink i den äldsta raden (innan det unika indexet finns)
+    @Modifying
+    @Query(value = "UPDATE security_event_rollups SET event_count = (SELECT SUM(d.event_count) " +
+            "FROM security_event_rollups d WHERE d.granularity = security_event_rollups.granularity " +
+            "AND d.bucket_start = security_event_rollups.bucket_start " +
+            "AND d.event_type = security_event_rollups.event_type AND d.success = security_event_rollups.success) " +
+            "WHERE rollup_id IN (SELECT MIN(rollup_id) FROM security_event_rollups " +
+            "GROUP BY granularity, bucket_start, event_type, success HAVING COUNT(*) > 1)", nativeQuery = true)
+    int mergeDuplicateBuckets();
+
+    @Modifying
+    @Query(value = "DELETE FROM security_event_rollups WHERE rollup_id NOT IN (SELECT MIN(rollup_id) " +
+            "FROM security_event_rollups GROUP BY granularity, bucket_start, event_type, success)", nativeQuery = true)
+    int deleteDuplicateBuckets();
+
+    // Skapas efter mergeDuplicateBuckets (se SecurityRollupService.ensureBucketIndexes), inte med @Index
+    @Modifying
+    @Query(value = "CREATE UNIQUE INDEX IF NOT EXISTS idx_security_event_rollups_bucket " +
+            "ON security_event_rollups (granularity, bucket_start, event_type, success)", nativeQuery = true)
+    void createBucketIndex();
+
+    // Ta bort gamla rollups
+    @Modifying
+    @Query("DELETE FROM SecurityEventRollup r WHERE r.granularity = :granularity AND r.bucketStart < :before")
+    int deleteOlderThan(@Param("granularity") String granularity, @Param("before") LocalDateTime before);
+}
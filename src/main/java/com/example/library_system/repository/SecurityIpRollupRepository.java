@@ -0,0 +1,65 @@
+package com.example.library_system.repository;
+
+import com.example.library_system.entity.SecurityIpRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SecurityIpRollupRepository extends JpaRepository<SecurityIpRollup, Long> {
+
+    // IP-adresser med flest misslyckade händelser inom ett tidsintervall: [ip, events, failures]
+    @Query("SELECT r.ipAddress, SUM(r.eventCount), SUM(r.failureCount) FROM SecurityIpRollup r " +
+            "WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to " +
+            "GROUP BY r.ipAddress ORDER BY SUM(r.failureCount) DESC, SUM(r.eventCount) DESC")
+    List<Object[]> findTopIps(@Param("granularity") String granularity,
+                              @Param("from") LocalDateTime from,
+                              @Param("to") LocalDateTime to,
+                              Pageable pageable);
+
+    // Lägg till antal i en befintlig rollup-rad, returnerar 0 om raden saknas
+    @Modifying
+    @Query("UPDATE SecurityIpRollup r SET r.eventCount = r.eventCount + :events, " +
+            "r.failureCount = r.failureCount + :failures " +
+            "WHERE r.granularity = :granularity AND r.bucketStart = :bucketStart AND r.ipAddress = :ipAddress")
+    int increment(@Param("granularity") String granularity,
+                  @Param("bucketStart") LocalDateTime bucketStart,
+                  @Param("ipAddress") String ipAddress,
+                  @Param("events") long events,
+                  @Param("failures") long failures);
+
+    // Slå ihop dubbletter av samma hink i den äldsta raden (innan det unika indexet finns)
+    @Modifying
+    @Query(value = "UPDATE security_ip_rollups SET " +
+            "event_count = (SELECT SUM(d.event_count) FROM security_ip_rollups d " +
+            "WHERE d.granularity = security_ip_rollups.granularity AND d.bucket_start = security_ip_rollups.bucket_start " +
+            "AND d.ip_address = security_ip_rollups.ip_address), " +
+            "failure_count = (SELECT SUM(d.failure_count) FROM security_ip_rollups d " +
+            "WHERE d.granularity = security_ip_rollups.granularity AND d.bucket_start = security_ip_rollups.bucket_start " +
+            "AND d.ip_address = security_ip_rollups.ip_address) " +
+            "WHERE rollup_id IN (SELECT MIN(rollup_id) FROM security_ip_rollups " +
+            "GROUP BY granularity, bucket_start, ip_address HAVING COUNT(*) > 1)", nativeQuery = true)
+    int mergeDuplicateBuckets();
+
+    @Modifying
+    @Query(value = "DELETE FROM security_ip_rollups WHERE rollup_id NOT IN (SELECT MIN(rollup_id) " +
+            "FROM security_ip_rollups GROUP BY granularity, bucket_start, ip_address)", nativeQuery = true)
+    int deleteDuplicateBuckets();
+
+    // Skapas efter mergeDuplicateBuckets (se SecurityRollupService.ensureBucketIndexes), inte med @Index
+    @Modifying
+    @Query(value = "CREATE UNIQUE INDEX IF NOT EXISTS idx_security_ip_rollups_bucket " +
+            "ON security_ip_rollups (granularity, bucket_start, ip_address)", nativeQuery = true)
+    void createBucketIndex();
+
+    // Ta bort gamla rollups
+    @Modifying
+    @Query("DELETE FROM SecurityIpRollup r WHERE r.granularity = :granularity AND r.bucketStart < :before")
+    int deleteOlderThan(@Param("granularity") String granularity, @Param("before") LocalDateTime before);
+}
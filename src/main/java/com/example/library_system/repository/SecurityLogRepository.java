@@ -1,6 +1,7 @@
 package com.example.library_system.repository;
 
 import com.example.library_system.entity.SecurityLog;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -19,6 +20,17 @@ public interface SecurityLogRepository extends JpaRepository<SecurityLog, Long>
     List<SecurityLog> findByEventTimeBetweenOrderByEventTimeDesc(
             LocalDateTime startTime, LocalDateTime endTime);
 
+    // Cursor-baserad sidhämtning: loggar äldre än ett givet log-ID, nyast först
+    List<SecurityLog> findByLogIdLessThanOrderByLogIdDesc(Long logId, Pageable pageable);
+
+    List<SecurityLog> findByEventTypeAndLogIdLessThanOrderByLogIdDesc(String eventType, Long logId, Pageable pageable);
+
+    List<SecurityLog> findByEventTimeBetweenAndLogIdLessThanOrderByLogIdDesc(
+            LocalDateTime startTime, LocalDateTime endTime, Long logId, Pageable pageable);
+
+    List<SecurityLog> findByEventTypeAndEventTimeBetweenAndLogIdLessThanOrderByLogIdDesc(
+            String eventType, LocalDateTime startTime, LocalDateTime endTime, Long logId, Pageable pageable);
+
     // Hitta misslyckade inloggningsförsök
     List<SecurityLog> findByEventTypeAndSuccessFalse(String eventType);
 
@@ -2,8 +2,13 @@ package com.example.library_system.repository;
 
 import com.example.library_system.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -12,6 +17,24 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Hitta användare via email
     Optional<User> findByEmail(String email);
 
+    // Hitta användare via email med rollerna i samma fråga (används vid inloggning)
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.roles WHERE u.email = :email")
+    Optional<User> findByEmailWithRoles(@Param("email") String email);
+
     // Kontrollera om email redan existerar
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    // Registrera lyckad inloggning med en enda UPDATE
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.lastLogin = :loginTime, u.failedLoginAttempts = 0 WHERE u.userId = :userId")
+    int recordSuccessfulLogin(@Param("userId") Long userId, @Param("loginTime") LocalDateTime loginTime);
+
+    // Byt lösenordshash, men bara om den inte har ändrats sedan den lästes
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.userId = :userId AND u.password = :oldHash")
+    int updatePasswordHash(@Param("userId") Long userId,
+                           @Param("oldHash") String oldHash,
+                           @Param("newHash") String newHash);
+}
@@ -0,0 +1,138 @@
+package com.example.library_system.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// BCrypt-encoder vars kostnad (work factor) kalibreras mot en önskad hashtid.
+// Hashningen körs i PasswordHashingExecutor och varje anrops tid mäts.
+// Hashar med annan kostnad än målet flaggas via upgradeEncoding så att de kan bytas ut.
+public class CalibratedPasswordEncoder implements PasswordEncoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CalibratedPasswordEncoder.class);
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$.{53}$");
+    private static final int CALIBRATION_ROUNDS = 3;
+
+    private final int strength;
+    private final long targetHashMillis;
+    private final int poolThreads;
+    private final double measuredHashMillis;
+    private final PasswordEncoder delegate;
+
+    private final LongAdder encodeCount = new LongAdder();
+    private final LongAdder matchCount = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public CalibratedPasswordEncoder(PasswordHashingExecutor executor, long targetHashMillis,
+                                     int configuredStrength, int minStrength, int maxStrength,
+                                     int poolThreads) {
+        this.targetHashMillis = targetHashMillis;
+        this.poolThreads = poolThreads;
+        this.strength = configuredStrength > 0
+                ? configuredStrength
+                : calibrate(targetHashMillis, minStrength, maxStrength);
+        this.measuredHashMillis = measure(new BCryptPasswordEncoder(strength));
+        this.delegate = new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), executor);
+    }
+
+    // Hitta den högsta kostnaden vars hashtid inte överstiger målet.
+    // Varje steg i BCrypt-kostnad dubblar tiden, så det räcker att mäta den lägsta.
+    public static int calibrate(long targetHashMillis, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        probe.encode("calibration-warmup");
+
+        double baseMillis = Double.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+            baseMillis = Math.min(baseMillis, measure(probe));
+        }
+
+        int strength = minStrength;
+        while (strength < maxStrength && baseMillis * (1L << (strength + 1 - minStrength)) <= targetHashMillis) {
+            strength++;
+        }
+
+        logger.info("BCrypt calibrated: cost {} takes {} ms, selected cost {} (~{} ms, target {} ms)",
+                minStrength, String.format("%.1f", baseMillis), strength,
+                String.format("%.1f", baseMillis * (1L << (strength - minStrength))), targetHashMillis);
+        return strength;
+    }
+
+    private static double measure(BCryptPasswordEncoder encoder) {
+        long start = System.nanoTime();
+        encoder.encode("calibration-password");
+        return (System.nanoTime() - start) / 1_000_000.0;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        long start = System.nanoTime();
+        try {
+            return delegate.encode(rawPassword);
+        } finally {
+            record(start);
+            encodeCount.increment();
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        long start = System.nanoTime();
+        try {
+            return delegate.matches(rawPassword, encodedPassword);
+        } finally {
+            record(start);
+            matchCount.increment();
+        }
+    }
+
+    // Hasha om allt som avviker från målet: för låg kostnad är svagare än avsett, för hög kostar
+    // inloggningskapacitet (t.ex. efter att måltiden sänkts eller servern bytts mot en långsammare)
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        int cost = costOf(encodedPassword);
+        return cost > 0 && cost != strength;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    public Map<String, Object> getStatistics() {
+        long count = encodeCount.sum() + matchCount.sum();
+        double avgMillis = count == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / count;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("strength", strength);
+        stats.put("targetHashMillis", targetHashMillis);
+        stats.put("measuredHashMillis", measuredHashMillis);
+        stats.put("encodes", encodeCount.sum());
+        stats.put("matches", matchCount.sum());
+        stats.put("avgLatencyMillis", avgMillis);
+        stats.put("maxLatencyMillis", maxNanos.get() / 1_000_000.0);
+        stats.put("estimatedMaxLoginsPerSecond", poolThreads * 1000.0 / measuredHashMillis);
+        return stats;
+    }
+
+    private void record(long start) {
+        long elapsed = System.nanoTime() - start;
+        totalNanos.add(elapsed);
+        maxNanos.accumulate(elapsed);
+    }
+
+    private static int costOf(String encodedPassword) {
+        if (encodedPassword == null) {
+            return -1;
+        }
+        Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+}
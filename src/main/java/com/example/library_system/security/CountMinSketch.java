@@ -0,0 +1,67 @@
+package com.example.library_system.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Count-min sketch: uppskattar antal per nyckel i fast minne (depth x width räknare).
+// Uppskattningen kan bli för hög vid kollisioner men aldrig för låg.
+public class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final AtomicLongArray counters;
+
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("width and depth must be positive");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new AtomicLongArray(width * depth);
+    }
+
+    // Lägg till och returnera den nya uppskattningen för nyckeln
+    public long add(String key, long count) {
+        long hash = SketchHash.hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            long value = counters.addAndGet(index(row, h1, h2), count);
+            estimate = Math.min(estimate, value);
+        }
+        return estimate;
+    }
+
+    public long estimate(String key) {
+        long hash = SketchHash.hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, h1, h2)));
+        }
+        return estimate;
+    }
+
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    // Dubbelhashning: rad i använder h1 + i * h2
+    private int index(int row, int h1, int h2) {
+        int combined = h1 + row * h2;
+        return row * width + Math.floorMod(combined, width);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.library_system.security;
+
+import com.example.library_system.service.CredentialStuffingDetector;
+import com.example.library_system.service.SecurityLogService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Avvisar auth-anrop från IP-adresser som CredentialStuffingDetector har flaggat.
+// Körs före rate limitern så att blockerade adresser inte förbrukar några tokens.
+public class CredentialStuffingFilter extends OncePerRequestFilter {
+
+    private final CredentialStuffingDetector detector;
+    private final SecurityLogService securityLogService;
+
+    public CredentialStuffingFilter(CredentialStuffingDetector detector, SecurityLogService securityLogService) {
+        this.detector = detector;
+        this.securityLogService = securityLogService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String ipAddress = securityLogService.getClientIP(request);
+        long remainingMillis = detector.getBlockRemainingMillis(ipAddress);
+        if (remainingMillis <= 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        detector.recordRejectedRequest();
+        long retryAfterSeconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remainingMillis + 999));
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{\"success\":false,\"message\":\"För många misslyckade inloggningar från din IP-adress\"}");
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.library_system.security;
+
+import com.example.library_system.service.CustomUserDetailsService.CustomUserDetails;
+import com.example.library_system.service.SessionTokenService.TokenClaims;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+
+// Den inloggades id och ADMIN-roll, oavsett inloggningssätt: sessionsinloggning har
+// CustomUserDetails som principal, tillståndslöst läge TokenClaims som details
+public final class CurrentUser {
+
+    private CurrentUser() {
+    }
+
+    public static boolean isAdmin(Authentication authentication) {
+        return authentication != null && authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+    }
+
+    // Null om id:t inte går att avgöra
+    public static Long userId(Authentication authentication) {
+        if (authentication == null) {
+            return null;
+        }
+        if (authentication.getPrincipal() instanceof CustomUserDetails user) {
+            return user.getUserId();
+        }
+        return authentication.getDetails() instanceof TokenClaims claims ? claims.userId() : null;
+    }
+
+    public static boolean isSelfOrAdmin(Authentication authentication, Long userId) {
+        return isAdmin(authentication) || (userId != null && userId.equals(userId(authentication)));
+    }
+
+    // Vems rader en listning ska begränsas till: null (alla) för ADMIN, annars den egna användaren
+    public static Long ownerScope(Authentication authentication) {
+        if (isAdmin(authentication)) {
+            return null;
+        }
+        Long userId = userId(authentication);
+        if (userId == null) {
+            throw new AccessDeniedException("Unknown user");
+        }
+        return userId;
+    }
+}
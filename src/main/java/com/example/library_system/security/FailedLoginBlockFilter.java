@@ -0,0 +1,41 @@
+package com.example.library_system.security;
+
+import com.example.library_system.service.SecurityLogService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Stoppar inloggningar från IP-adresser med för många misslyckade försök innan lösenordet
+// kontrolleras - både JSON-inloggningen och formulärinloggningen.
+public class FailedLoginBlockFilter extends OncePerRequestFilter {
+
+    private final SecurityLogService securityLogService;
+
+    public FailedLoginBlockFilter(SecurityLogService securityLogService) {
+        this.securityLogService = securityLogService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!securityLogService.isClientBlocked(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{\"success\":false,\"message\":\"För många misslyckade inloggningsförsök, försök igen senare\"}");
+    }
+}
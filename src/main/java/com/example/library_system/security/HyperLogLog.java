@@ -0,0 +1,88 @@
+package com.example.library_system.security;
+
+// HyperLogLog: uppskattar antal distinkta värden i fast minne (2^precision register).
+// Standardfelet är ungefär 1.04 / sqrt(2^precision).
+public class HyperLogLog {
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("precision must be between 4 and 16");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public void add(String value) {
+        long hash = SketchHash.hash64(value);
+        int index = (int) (hash >>> (64 - precision));
+        // Position för första 1-biten i resten av hashen (sentinel-bit så att värdet blir begränsat)
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+
+        synchronized (registers) {
+            if (rank > registers[index]) {
+                registers[index] = rank;
+            }
+        }
+    }
+
+    // Slå ihop en annan sketch med samma precision in i den här
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("precision mismatch");
+        }
+        byte[] snapshot;
+        synchronized (other.registers) {
+            snapshot = other.registers.clone();
+        }
+        synchronized (registers) {
+            for (int i = 0; i < registers.length; i++) {
+                if (snapshot[i] > registers[i]) {
+                    registers[i] = snapshot[i];
+                }
+            }
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        synchronized (registers) {
+            for (byte register : registers) {
+                sum += 1.0 / (1L << register);
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+        }
+
+        double estimate = alpha(m) * m * m / sum;
+
+        // Linjär räkning ger bättre precision för små mängder
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public int getSizeInBytes() {
+        return registers.length;
+    }
+
+    private static double alpha(int m) {
+        return switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.library_system.security;
+
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+
+// Kastas när lösenordspoolen är full och ett hash-anrop avvisas direkt.
+// Ett AuthenticationException så att Spring Security lämnar det till failure-hanteraren (503)
+// i stället för att det blir ett 500; "internal" så att ProviderManager inte provar igen.
+public class PasswordHashingOverloadedException extends InternalAuthenticationServiceException {
+
+    public PasswordHashingOverloadedException(String message) {
+        super(message);
+    }
+
+    public PasswordHashingOverloadedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.library_system.security;
+
+import com.example.library_system.service.SecurityLogService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+// Rate limiting per IP-adress och per konto för dyra auth-endpoints: JSON-inloggning och
+// registrering, formulärinloggningen och Basic Auth mot actuator.
+// Körs före Spring Security så att överbelastade anrop aldrig når BCrypt.
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private static final String BASIC_PREFIX = "Basic ";
+
+    private final RateLimitProperties properties;
+    private final SecurityLogService securityLogService;
+    private final ObjectMapper objectMapper;
+    private final TokenBucketRegistry buckets;
+
+    public RateLimitFilter(RateLimitProperties properties, SecurityLogService securityLogService,
+                           ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.securityLogService = securityLogService;
+        this.objectMapper = objectMapper;
+        this.buckets = new TokenBucketRegistry(properties.getMaxTrackedKeys());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+
+        for (var entry : properties.getEndpoints().entrySet()) {
+            RateLimitProperties.EndpointLimit limit = entry.getValue();
+            if (!matches(limit, path) || !isAuthenticationAttempt(limit, request)) {
+                continue;
+            }
+
+            long now = System.nanoTime();
+
+            // Först per IP-adress - billigast att kontrollera
+            String ipAddress = securityLogService.getClientIP(request);
+            long waitNanos = consume(entry.getKey() + "|ip|" + ipAddress,
+                    limit.getIpCapacity(), limit.getIpRefillPerMinute(), now);
+            if (waitNanos > 0) {
+                reject(response, waitNanos, entry.getKey(), "ip " + ipAddress);
+                return;
+            }
+
+            // Sedan per konto: från Basic-headern, formulärparametern eller JSON-bodyn
+            HttpServletRequest forwarded = request;
+            String account;
+            if (limit.isBasicAuth()) {
+                account = basicAuthUsername(request);
+            } else {
+                // En body vi inte kan läsa får inte slinka förbi kontrollen per konto
+                long contentLength = request.getContentLengthLong();
+                if (contentLength < 0) {
+                    rejectBody(response, HttpStatus.LENGTH_REQUIRED, "Content-Length krävs");
+                    return;
+                }
+                if (contentLength > properties.getMaxBodyBytes()) {
+                    rejectBody(response, HttpStatus.PAYLOAD_TOO_LARGE, "För stor förfrågan");
+                    return;
+                }
+                if (isForm(request)) {
+                    account = normalize(request.getParameter(limit.getAccountField()));
+                } else {
+                    CachedBodyRequest cachedRequest = new CachedBodyRequest(request,
+                            request.getInputStream().readNBytes((int) contentLength));
+                    account = extractAccount(cachedRequest.getBody(), limit.getAccountField());
+                    forwarded = cachedRequest;
+                }
+            }
+            if (account != null) {
+                waitNanos = consume(entry.getKey() + "|account|" + account,
+                        limit.getAccountCapacity(), limit.getAccountRefillPerMinute(), now);
+                if (waitNanos > 0) {
+                    reject(response, waitNanos, entry.getKey(), "account " + account);
+                    return;
+                }
+            }
+            filterChain.doFilter(forwarded, response);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    public int getTrackedKeyCount() {
+        return buckets.size();
+    }
+
+    private long consume(String key, long capacity, long refillPerMinute, long now) {
+        return buckets.get(key, now, () -> new TokenBucket(capacity, refillPerMinute, now))
+                .tryConsume(now);
+    }
+
+    // Exakt sökväg, eller /prefix/* som i servlet-mappningen
+    private boolean matches(RateLimitProperties.EndpointLimit limit, String path) {
+        String pattern = limit.getPath();
+        if (pattern.endsWith("/*")) {
+            return path.startsWith(pattern.substring(0, pattern.length() - 1));
+        }
+        return path.equals(pattern);
+    }
+
+    // Basic Auth kontrolleras på alla metoder men bara när headern finns; övriga är POST
+    private boolean isAuthenticationAttempt(RateLimitProperties.EndpointLimit limit, HttpServletRequest request) {
+        if (limit.isBasicAuth()) {
+            String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+            return authorization != null && authorization.regionMatches(true, 0, BASIC_PREFIX, 0, BASIC_PREFIX.length());
+        }
+        return "POST".equals(request.getMethod());
+    }
+
+    private boolean isForm(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null
+                && contentType.toLowerCase().startsWith(MediaType.APPLICATION_FORM_URLENCODED_VALUE);
+    }
+
+    private String basicAuthUsername(HttpServletRequest request) {
+        try {
+            String credentials = new String(Base64.getDecoder().decode(
+                    request.getHeader(HttpHeaders.AUTHORIZATION).substring(BASIC_PREFIX.length()).trim()),
+                    StandardCharsets.UTF_8);
+            int colon = credentials.indexOf(':');
+            return normalize(colon >= 0 ? credentials.substring(0, colon) : credentials);
+        } catch (IllegalArgumentException e) {
+            return null; // Trasig header - Spring Security svarar 401
+        }
+    }
+
+    private String extractAccount(byte[] body, String field) {
+        try {
+            JsonNode value = objectMapper.readTree(body).get(field);
+            if (value != null && value.isTextual()) {
+                return normalize(value.asText());
+            }
+        } catch (IOException e) {
+            // Ogiltig JSON - låt controllern svara med fel
+        }
+        return null;
+    }
+
+    private static String normalize(String account) {
+        return account != null && !account.isBlank() ? account.trim().toLowerCase() : null;
+    }
+
+    private void rejectBody(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{\"success\":false,\"message\":\"" + message + "\"}");
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos, String endpoint,
+                        String key) throws IOException {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999));
+        logger.warn("Rate limit exceeded on {} for {} - retry after {}s", endpoint, key, retryAfterSeconds);
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{\"success\":false,\"message\":\"För många förfrågningar, försök igen om "
+                + retryAfterSeconds + " sekunder\"}");
+    }
+}
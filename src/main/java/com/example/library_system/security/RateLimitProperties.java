@@ -0,0 +1,117 @@
+package com.example.library_system.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Konfiguration för rate limiting, en post per skyddad endpoint
+@ConfigurationProperties(prefix = "security.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+    private int maxTrackedKeys = 50_000;
+    private int maxBodyBytes = 16_384;
+    private Map<String, EndpointLimit> endpoints = new LinkedHashMap<>();
+
+    public static class EndpointLimit {
+        private String path;
+        private long ipCapacity = 20;
+        private long ipRefillPerMinute = 20;
+        private long accountCapacity = 5;
+        private long accountRefillPerMinute = 5;
+        // JSON-fält eller formulärparameter med kontot
+        private String accountField = "email";
+        // Kontot läses från Authorization: Basic i stället för bodyn, på alla metoder
+        private boolean basicAuth;
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public long getIpCapacity() {
+            return ipCapacity;
+        }
+
+        public void setIpCapacity(long ipCapacity) {
+            this.ipCapacity = ipCapacity;
+        }
+
+        public long getIpRefillPerMinute() {
+            return ipRefillPerMinute;
+        }
+
+        public void setIpRefillPerMinute(long ipRefillPerMinute) {
+            this.ipRefillPerMinute = ipRefillPerMinute;
+        }
+
+        public long getAccountCapacity() {
+            return accountCapacity;
+        }
+
+        public void setAccountCapacity(long accountCapacity) {
+            this.accountCapacity = accountCapacity;
+        }
+
+        public long getAccountRefillPerMinute() {
+            return accountRefillPerMinute;
+        }
+
+        public void setAccountRefillPerMinute(long accountRefillPerMinute) {
+            this.accountRefillPerMinute = accountRefillPerMinute;
+        }
+
+        public String getAccountField() {
+            return accountField;
+        }
+
+        public void setAccountField(String accountField) {
+            this.accountField = accountField;
+        }
+
+        public boolean isBasicAuth() {
+            return basicAuth;
+        }
+
+        public void setBasicAuth(boolean basicAuth) {
+            this.basicAuth = basicAuth;
+        }
+    }
+
+    // Getters och Setters
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxTrackedKeys() {
+        return maxTrackedKeys;
+    }
+
+    public void setMaxTrackedKeys(int maxTrackedKeys) {
+        this.maxTrackedKeys = maxTrackedKeys;
+    }
+
+    public int getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    public void setMaxBodyBytes(int maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    public Map<String, EndpointLimit> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(Map<String, EndpointLimit> endpoints) {
+        this.endpoints = endpoints;
+    }
+}
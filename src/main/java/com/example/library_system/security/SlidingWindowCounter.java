@@ -0,0 +1,79 @@
+package com.example.library_system.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Låsfri räknare över ett glidande tidsfönster.
+// Fönstret delas upp i ett fast antal hinkar (ring-buffer). Varje hink lagrar
+// sin tidsperiod och sitt antal i samma long så att de kan uppdateras med en CAS.
+public class SlidingWindowCounter {
+
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final int bucketCount;
+    private final long bucketMillis;
+    private final AtomicLongArray buckets;
+
+    public SlidingWindowCounter(int bucketCount, long windowMillis) {
+        if (bucketCount <= 0 || windowMillis < bucketCount) {
+            throw new IllegalArgumentException("Invalid window configuration");
+        }
+        this.bucketCount = bucketCount;
+        this.bucketMillis = windowMillis / bucketCount;
+        this.buckets = new AtomicLongArray(bucketCount);
+    }
+
+    // Registrera en händelse och returnera summan i fönstret
+    public long increment(long nowMillis) {
+        long epoch = nowMillis / bucketMillis;
+        int index = (int) (epoch % bucketCount);
+
+        while (true) {
+            long current = buckets.get(index);
+            long currentEpoch = current >>> COUNT_BITS;
+            long updated;
+
+            if (currentEpoch == epoch) {
+                long count = current & COUNT_MASK;
+                if (count == COUNT_MASK) {
+                    break; // Mättad hink
+                }
+                updated = current + 1;
+            } else if (currentEpoch < epoch) {
+                // Hinken tillhör en gammal period - börja om
+                updated = (epoch << COUNT_BITS) | 1;
+            } else {
+                break; // Klockan har gått bakåt, räkna inte
+            }
+
+            if (buckets.compareAndSet(index, current, updated)) {
+                break;
+            }
+        }
+
+        return sum(nowMillis);
+    }
+
+    // Summan av alla hinkar som fortfarande ligger inom fönstret
+    public long sum(long nowMillis) {
+        long epoch = nowMillis / bucketMillis;
+        long oldestEpoch = epoch - bucketCount + 1;
+        long total = 0;
+
+        for (int i = 0; i < bucketCount; i++) {
+            long value = buckets.get(i);
+            long bucketEpoch = value >>> COUNT_BITS;
+            if (bucketEpoch >= oldestEpoch && bucketEpoch <= epoch) {
+                total += value & COUNT_MASK;
+            }
+        }
+        return total;
+    }
+
+    // Nollställ hela fönstret
+    public void reset() {
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.set(i, 0L);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.library_system.security;
+
+import com.example.library_system.service.SessionTokenService;
+import com.example.library_system.service.SessionTokenService.TokenClaims;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Autentiserar anrop med en signerad sessionstoken i tillståndslöst läge.
+// Ingen databas eller HttpSession används - allt som behövs finns i token.
+public class StatelessTokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private final SessionTokenService sessionTokenService;
+
+    public StatelessTokenAuthenticationFilter(SessionTokenService sessionTokenService) {
+        this.sessionTokenService = sessionTokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        TokenClaims claims = sessionTokenService.validate(sessionTokenService.extractToken(request));
+
+        if (claims != null) {
+            UsernamePasswordAuthenticationToken authentication = UsernamePasswordAuthenticationToken.authenticated(
+                    claims.email(), null,
+                    claims.roles().stream()
+                            .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                            .toList());
+            authentication.setDetails(claims);
+
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(authentication);
+            SecurityContextHolder.setContext(context);
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.library_system.security;
+
+// Token bucket: tillåter korta toppar upp till kapaciteten och fylls sedan på i jämn takt
+public class TokenBucket {
+
+    private final long capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefillNanos;
+    // Senaste tryConsume; isFull fyller på hinken och flyttar lastRefillNanos, så den duger inte för LRU
+    private long lastUsedNanos;
+
+    public TokenBucket(long capacity, long refillPerMinute, long nowNanos) {
+        if (capacity <= 0 || refillPerMinute <= 0) {
+            throw new IllegalArgumentException("Capacity and refill rate must be positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerMinute / 60_000_000_000.0;
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+        this.lastUsedNanos = nowNanos;
+    }
+
+    // Försök ta en token. Returnerar 0 om det gick, annars antal nanosekunder tills nästa token finns
+    public synchronized long tryConsume(long nowNanos) {
+        refill(nowNanos);
+        lastUsedNanos = Math.max(lastUsedNanos, nowNanos);
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return 0;
+        }
+        return (long) Math.ceil((1.0 - tokens) / tokensPerNano);
+    }
+
+    // En full hink är likvärdig med en ny och kan tas bort utan att någon gräns påverkas
+    public synchronized boolean isFull(long nowNanos) {
+        refill(nowNanos);
+        return tokens >= capacity;
+    }
+
+    public synchronized long getLastRefillNanos() {
+        return lastRefillNanos;
+    }
+
+    public synchronized long getLastUsedNanos() {
+        return lastUsedNanos;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.library_system.security;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Begränsad samling token buckets. När gränsen nås tas fulla hinkar bort först
+// och därefter de som använts minst nyligen.
+public class TokenBucketRegistry {
+
+    private final int maxSize;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public TokenBucketRegistry(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public TokenBucket get(String key, long nowNanos, Supplier<TokenBucket> factory) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxSize) {
+            evict(nowNanos);
+        }
+        return buckets.computeIfAbsent(key, k -> factory.get());
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private synchronized void evict(long nowNanos) {
+        if (buckets.size() < maxSize) {
+            return; // En annan tråd hann före
+        }
+
+        buckets.values().removeIf(bucket -> bucket.isFull(nowNanos));
+
+        // Fortfarande fullt - ta bort den äldsta tiondelen
+        if (buckets.size() >= maxSize) {
+            int overflow = buckets.size() - maxSize + Math.max(1, maxSize / 10);
+            buckets.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().getLastUsedNanos()))
+                    .limit(overflow)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(buckets::remove);
+        }
+    }
+}
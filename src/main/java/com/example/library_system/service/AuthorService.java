@@ -1,9 +1,13 @@
 package com.example.library_system.service;
 
 import com.example.library_system.entity.Author;
+import com.example.library_system.entity.CatalogChange;
+import com.example.library_system.persistence.RetryOnSqliteBusy;
+import com.example.library_system.persistence.SingleFlight;
 import com.example.library_system.repository.AuthorRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -14,27 +18,43 @@ public class AuthorService {
     @Autowired
     private AuthorRepository authorRepository;
 
+    @Autowired
+    private LibraryStatisticsService libraryStatistics;
+
+    @Autowired
+    private CatalogChangeLogService catalogChangeLog;
+
     // Hämta alla författare
+    @SingleFlight
     public List<Author> getAllAuthors() {
-        return authorRepository.findAll();
+        return authorRepository.findAll().stream().map(Author::new).toList();
     }
 
     // Hämta författare med ID
+    @SingleFlight
     public Optional<Author> getAuthorById(Long id) {
-        return authorRepository.findById(id);
+        return authorRepository.findById(id).map(Author::new);
     }
 
     // Hämta författare via efternamn
+    @SingleFlight
     public List<Author> getAuthorsByLastName(String lastName) {
-        return authorRepository.findByLastNameIgnoreCase(lastName);
+        return authorRepository.findByLastNameIgnoreCase(lastName).stream().map(Author::new).toList();
     }
 
     // Skapa ny författare
+    @RetryOnSqliteBusy
+    @Transactional
     public Author createAuthor(Author author) {
-        return authorRepository.save(author);
+        Author saved = authorRepository.save(author);
+        catalogChangeLog.recordUpsert(CatalogChange.AUTHOR, saved.getAuthorId());
+        libraryStatistics.increment(LibraryStatisticsService.Count.AUTHORS);
+        return saved;
     }
 
     // Uppdatera författare
+    @RetryOnSqliteBusy
+    @Transactional
     public Author updateAuthor(Long id, Author authorDetails) {
         Optional<Author> optionalAuthor = authorRepository.findById(id);
         if (optionalAuthor.isPresent()) {
@@ -43,15 +63,21 @@ public class AuthorService {
             author.setLastName(authorDetails.getLastName());
             author.setBirthYear(authorDetails.getBirthYear());
             author.setNationality(authorDetails.getNationality());
-            return authorRepository.save(author);
+            Author saved = authorRepository.save(author);
+            catalogChangeLog.recordUpsert(CatalogChange.AUTHOR, id);
+            return saved;
         }
         return null;
     }
 
     // Ta bort författare
+    @RetryOnSqliteBusy
+    @Transactional
     public boolean deleteAuthor(Long id) {
         if (authorRepository.existsById(id)) {
             authorRepository.deleteById(id);
+            catalogChangeLog.recordDelete(CatalogChange.AUTHOR, id);
+            libraryStatistics.decrement(LibraryStatisticsService.Count.AUTHORS);
             return true;
         }
         return false;
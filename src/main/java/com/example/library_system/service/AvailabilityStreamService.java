@@ -0,0 +1,354 @@
+package com.example.library_system.service;
+
+import com.example.library_system.dto.BookAvailabilityDTO;
+import com.example.library_system.repository.BookRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// SSE-ström med tillgänglighetsändringar ({bookId, availableCopies}) för /books/availability/stream.
+// Ändrade böcker samlas i en mängd och skickas i ett svep per coalesce-intervall, så tio lån av
+// samma bok inom intervallet blir ett event med slutvärdet. SseEmitter håller ingen tråd medan
+// anslutningen är öppen; ett svep serialiserar varje event en gång och skriver det till alla.
+// Varje event får ett löpnummer som id. De senaste replay-capacity eventen sparas så att en klient
+// som återansluter med Last-Event-ID får det den missat; är luckan för stor (eller servern
+// omstartad) skickas en snapshot av alla böcker i stället.
+// Låset skyddar bara löpnummer och buffert. Varje prenumerant har en egen begränsad kö som töms av
+// en sändartråd i taget, så en långsam klient varken håller låset, schemaläggarens tråd eller de andra
+// klienterna. Blir kön full kopplas klienten ner; den återansluter med Last-Event-ID och får det den
+// missat (eller en snapshot), i stället för att tappade event lämnar den med fel värde.
+@Service
+public class AvailabilityStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityStreamService.class);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${availability.stream.replay-capacity:1000}")
+    private int replayCapacity;
+
+    @Value("${availability.stream.max-subscribers:5000}")
+    private int maxSubscribers;
+
+    @Value("${availability.stream.timeout-millis:1800000}")
+    private long timeoutMillis;
+
+    @Value("${availability.stream.subscriber-queue-capacity:100}")
+    private int subscriberQueueCapacity;
+
+    @Value("${availability.stream.sender-threads:4}")
+    private int senderThreads;
+
+    private final Set<Long> dirtyBookIds = ConcurrentHashMap.newKeySet();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // Skyddas av låset på this: löpnummer, replay-buffert och senast skickade värden.
+    // Löpnumret startar från klockan så att id:n från en tidigare process alltid är äldre än bufferten.
+    private long sequence = System.currentTimeMillis() * 1000;
+    private final Deque<StreamEvent> replay = new ArrayDeque<>();
+    private final Map<Long, Integer> lastSent = new HashMap<>();
+
+    private final LongAdder changesReceived = new LongAdder();
+    private final LongAdder eventsPublished = new LongAdder();
+    private final LongAdder snapshotsSent = new LongAdder();
+    private final LongAdder droppedSubscribers = new LongAdder();
+    private final LongAdder slowSubscribers = new LongAdder();
+
+    // Varje prenumerant ligger högst en gång i sändarnas kö (se Subscriber.scheduled),
+    // så kön är begränsad av max-subscribers
+    private ThreadPoolExecutor sender;
+
+    // Byggs en gång per event och skrivs sedan likadant till alla prenumeranter
+    private record StreamEvent(long id, Set<ResponseBodyEmitter.DataWithMediaType> data) {
+    }
+
+    private static final StreamEvent KEEPALIVE = new StreamEvent(0, SseEmitter.event().comment("keepalive").build());
+
+    // En klient och dess kö. Bara en sändartråd i taget tömmer kön, så eventen kommer i köordning.
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<StreamEvent> queue = new ArrayBlockingQueue<>(subscriberQueueCapacity);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        // Lägg eventen i kön; får de inte plats kopplas klienten ner
+        private void enqueue(List<StreamEvent> events) {
+            for (StreamEvent event : events) {
+                if (!queue.offer(event)) {
+                    slowSubscribers.increment();
+                    drop(this);
+                    return;
+                }
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            StreamEvent event;
+            while (!closed && (event = queue.poll()) != null) {
+                try {
+                    emitter.send(event.data());
+                } catch (IOException | IllegalStateException e) {
+                    drop(this);
+                }
+            }
+            scheduled.set(false);
+            if (closed) {
+                queue.clear();
+                // Avslutas här och inte i drop(): en pågående send till klienten håller emitterns lås
+                emitter.complete();
+            } else if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    @PostConstruct
+    void startSender() {
+        AtomicInteger threadCount = new AtomicInteger();
+        sender = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "availability-sender-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    // Körs efter commit; utan transaktion (t.ex. updateBook) direkt
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAvailabilityChanged(BookAvailabilityChangedEvent event) {
+        changesReceived.increment();
+        dirtyBookIds.add(event.bookId());
+    }
+
+    public SseEmitter subscribe(String lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new IllegalStateException("Too many availability subscribers (" + maxSubscribers + ")");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+
+        Long last = parseEventId(lastEventId);
+        synchronized (this) {
+            if (last == null) {
+                // Ny klient: ett id att återansluta från, datan har den redan från /books
+                register(subscriber, List.of(new StreamEvent(sequence, SseEmitter.event().name("ready")
+                        .id(Long.toString(sequence)).data("").build())));
+                return emitter;
+            }
+            // Ryms inte det som missats i klientens kö blir det en snapshot i stället
+            List<StreamEvent> missed = canReplayFrom(last) ? eventsAfter(last) : null;
+            if (missed != null && missed.size() <= subscriberQueueCapacity) {
+                register(subscriber, missed);
+                return emitter;
+            }
+        }
+
+        // Snapshoten läses utanför låset; event som publiceras under läsningen spelas upp efter den.
+        // Bara om bufferten hunnit rotera förbi snapshotens id under läsningen görs den om.
+        while (true) {
+            long snapshotId;
+            synchronized (this) {
+                snapshotId = sequence;
+            }
+            StreamEvent snapshot = snapshotEvent(snapshotId);
+            synchronized (this) {
+                if (canReplayFrom(snapshotId) && eventsAfter(snapshotId).size() < subscriberQueueCapacity) {
+                    List<StreamEvent> initial = new ArrayList<>();
+                    initial.add(snapshot);
+                    initial.addAll(eventsAfter(snapshotId));
+                    register(subscriber, initial);
+                    return emitter;
+                }
+            }
+        }
+    }
+
+    // Ett svep: läs aktuella värden för ändrade böcker och skicka det som faktiskt ändrats
+    @Scheduled(fixedDelayString = "${availability.stream.coalesce-millis:250}")
+    public void flush() {
+        if (dirtyBookIds.isEmpty()) {
+            return;
+        }
+        List<Long> bookIds = new ArrayList<>();
+        for (Long bookId : dirtyBookIds) {
+            if (dirtyBookIds.remove(bookId)) {
+                bookIds.add(bookId);
+            }
+        }
+        List<BookAvailabilityDTO> current;
+        try {
+            current = bookRepository.findAvailabilityByBookIds(bookIds);
+        } catch (RuntimeException e) {
+            // Tas med i nästa svep i stället för att ändringarna försvinner
+            dirtyBookIds.addAll(bookIds);
+            throw e;
+        }
+
+        synchronized (this) {
+            List<StreamEvent> events = new ArrayList<>();
+            for (BookAvailabilityDTO availability : current) {
+                if (availability.getAvailableCopies().equals(lastSent.get(availability.getBookId()))) {
+                    continue;
+                }
+                lastSent.put(availability.getBookId(), availability.getAvailableCopies());
+
+                long id = ++sequence;
+                StreamEvent event = new StreamEvent(id, SseEmitter.event().name("availability")
+                        .id(Long.toString(id)).data(toJson(availability)).build());
+                replay.addLast(event);
+                while (replay.size() > replayCapacity) {
+                    replay.removeFirst();
+                }
+                eventsPublished.increment();
+                events.add(event);
+            }
+            if (!events.isEmpty()) {
+                subscribers.forEach(subscriber -> subscriber.enqueue(events));
+            }
+        }
+    }
+
+    // Kommentarsrad så att proxyer inte stänger tysta anslutningar och döda klienter upptäcks
+    @Scheduled(fixedDelayString = "${availability.stream.heartbeat-millis:15000}")
+    public void heartbeat() {
+        subscribers.forEach(subscriber -> subscriber.enqueue(List.of(KEEPALIVE)));
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", subscribers.size());
+        stats.put("maxSubscribers", maxSubscribers);
+        stats.put("pendingBooks", dirtyBookIds.size());
+        stats.put("changesReceived", changesReceived.sum());
+        stats.put("eventsPublished", eventsPublished.sum());
+        stats.put("snapshotsSent", snapshotsSent.sum());
+        stats.put("droppedSubscribers", droppedSubscribers.sum());
+        stats.put("slowSubscribers", slowSubscribers.sum());
+        stats.put("queuedEvents", subscribers.stream().mapToInt(subscriber -> subscriber.queue.size()).sum());
+        stats.put("subscriberQueueCapacity", subscriberQueueCapacity);
+        synchronized (this) {
+            stats.put("lastEventId", sequence);
+            stats.put("replayEvents", replay.size());
+        }
+        return stats;
+    }
+
+    // Allt efter last finns kvar i bufferten (och last kommer från den här processen)
+    private boolean canReplayFrom(long last) {
+        if (last > sequence) {
+            return false;
+        }
+        long oldest = replay.isEmpty() ? sequence + 1 : replay.peekFirst().id();
+        return last >= oldest - 1;
+    }
+
+    // Anropas under låset: registreringen och de första eventen hamnar i kön före nästa svep
+    private void register(Subscriber subscriber, List<StreamEvent> initial) {
+        subscribers.add(subscriber);
+        subscriber.enqueue(initial);
+    }
+
+    private List<StreamEvent> eventsAfter(long last) {
+        List<StreamEvent> events = new ArrayList<>();
+        for (StreamEvent event : replay) {
+            if (event.id() > last) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private StreamEvent snapshotEvent(long id) {
+        snapshotsSent.increment();
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(bookRepository.findAllAvailability());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        return new StreamEvent(id, SseEmitter.event().name("snapshot").id(Long.toString(id)).data(json).build());
+    }
+
+    // Sändartråden stänger anslutningen när den ser closed (direkt om den inte har något på gång)
+    private void drop(Subscriber subscriber) {
+        subscriber.closed = true;
+        if (subscribers.remove(subscriber)) {
+            droppedSubscribers.increment();
+            logger.debug("Dropped availability subscriber: {}", subscriber.emitter);
+        }
+        subscriber.schedule();
+    }
+
+    private String toJson(BookAvailabilityDTO availability) {
+        try {
+            return objectMapper.writeValueAsString(availability);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdown();
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.library_system.service;
+
+// Publiceras inne i transaktionen när en boks tillgängliga exemplar ändrats;
+// AvailabilityStreamService tar emot den först efter commit
+public record BookAvailabilityChangedEvent(Long bookId) {
+}
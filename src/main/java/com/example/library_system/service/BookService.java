@@ -3,9 +3,14 @@ package com.example.library_system.service;
 import com.example.library_system.dto.BookWithDetailsDTO;
 import com.example.library_system.entity.Author;
 import com.example.library_system.entity.Book;
+import com.example.library_system.entity.CatalogChange;
+import com.example.library_system.persistence.RetryOnSqliteBusy;
+import com.example.library_system.persistence.SingleFlight;
 import com.example.library_system.repository.BookRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -20,22 +25,40 @@ public class BookService {
     @Autowired
     private AuthorService authorService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private LibraryStatisticsService libraryStatistics;
+
+    @Autowired
+    private CatalogChangeLogService catalogChangeLog;
+
     // Hämta alla böcker
+    @SingleFlight
     public List<Book> getAllBooks() {
-        return bookRepository.findAll();
+        return bookRepository.findAll().stream().map(Book::new).toList();
     }
 
     // Hämta bok med ID
+    @SingleFlight
     public Optional<Book> getBookById(Long id) {
-        return bookRepository.findById(id);
+        return bookRepository.findById(id).map(Book::new);
     }
 
     // Skapa ny bok
+    @RetryOnSqliteBusy
+    @Transactional
     public Book createBook(Book book) {
-        return bookRepository.save(book);
+        Book saved = bookRepository.save(book);
+        catalogChangeLog.recordUpsert(CatalogChange.BOOK, saved.getBookId());
+        libraryStatistics.increment(LibraryStatisticsService.Count.BOOKS);
+        return saved;
     }
 
     // Uppdatera bok
+    @RetryOnSqliteBusy
+    @Transactional
     public Book updateBook(Long id, Book bookDetails) {
         Optional<Book> optionalBook = bookRepository.findById(id);
         if (optionalBook.isPresent()) {
@@ -45,15 +68,22 @@ public class BookService {
             book.setAvailableCopies(bookDetails.getAvailableCopies());
             book.setTotalCopies(bookDetails.getTotalCopies());
             book.setAuthorId(bookDetails.getAuthorId());
-            return bookRepository.save(book);
+            Book saved = bookRepository.save(book);
+            // Loggar också ändringen i katalogsynken, en gång
+            availabilityChanged(id, true);
+            return saved;
         }
         return null;
     }
 
     // Ta bort bok
+    @RetryOnSqliteBusy
+    @Transactional
     public boolean deleteBook(Long id) {
         if (bookRepository.existsById(id)) {
             bookRepository.deleteById(id);
+            catalogChangeLog.recordDelete(CatalogChange.BOOK, id);
+            libraryStatistics.decrement(LibraryStatisticsService.Count.BOOKS);
             return true;
         }
         return false;
@@ -66,36 +96,31 @@ public class BookService {
     }
 
     // Minska tillgängliga kopior (för utlåning)
+    @Transactional
     public boolean decreaseAvailableCopies(Long bookId) {
-        Optional<Book> optionalBook = bookRepository.findById(bookId);
-        if (optionalBook.isPresent()) {
-            Book book = optionalBook.get();
-            if (book.getAvailableCopies() > 0) {
-                book.setAvailableCopies(book.getAvailableCopies() - 1);
-                bookRepository.save(book);
-                return true;
-            }
-        }
-        return false;
+        return availabilityChanged(bookId, bookRepository.decrementAvailableCopies(bookId) == 1);
     }
 
     // Öka tillgängliga kopior (för återlämning)
+    @Transactional
     public boolean increaseAvailableCopies(Long bookId) {
-        Optional<Book> optionalBook = bookRepository.findById(bookId);
-        if (optionalBook.isPresent()) {
-            Book book = optionalBook.get();
-            if (book.getAvailableCopies() < book.getTotalCopies()) {
-                book.setAvailableCopies(book.getAvailableCopies() + 1);
-                bookRepository.save(book);
-                return true;
-            }
+        return availabilityChanged(bookId, bookRepository.incrementAvailableCopies(bookId) == 1);
+    }
+
+    // SSE-strömmen får ändringen efter commit (rullas transaktionen tillbaka skickas inget);
+    // availableCopies är en del av boken, så katalogsynken får den också
+    private boolean availabilityChanged(Long bookId, boolean changed) {
+        if (changed) {
+            catalogChangeLog.recordUpsert(CatalogChange.BOOK, bookId);
+            eventPublisher.publishEvent(new BookAvailabilityChangedEvent(bookId));
         }
-        return false;
+        return changed;
     }
 
     // Sök böcker på titel
+    @SingleFlight
     public List<Book> searchBooksByTitle(String title) {
-        return bookRepository.findByTitleContainingIgnoreCase(title);
+        return bookRepository.findByTitleContainingIgnoreCase(title).stream().map(Book::new).toList();
     }
 
     // Hämta bok med detaljer (inkl. författarinfo)
@@ -126,6 +151,7 @@ public class BookService {
     }
 
     // Hämta alla böcker med detaljer
+    @SingleFlight
     public List<BookWithDetailsDTO> getAllBooksWithDetails() {
         List<Book> books = bookRepository.findAll();
         List<BookWithDetailsDTO> dtos = new ArrayList<>();
@@ -137,6 +163,6 @@ public class BookService {
             }
         }
 
-        return dtos;
+        return List.copyOf(dtos);
     }
 }
\ No newline at end of file
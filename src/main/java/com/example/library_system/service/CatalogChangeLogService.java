@@ -0,0 +1,186 @@
+package com.example.library_system.service;
+
+import com.example.library_system.entity.Author;
+import com.example.library_system.entity.Book;
+import com.example.library_system.entity.CatalogChange;
+import com.example.library_system.entity.SchemaMarker;
+import com.example.library_system.repository.AuthorRepository;
+import com.example.library_system.repository.BookRepository;
+import com.example.library_system.repository.CatalogChangeRepository;
+import com.example.library_system.repository.SchemaMarkerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+// Ändringslogg för katalogen (böcker och författare) så att klienter kan synka med
+// /catalog/changes?since=<cursor> i stället för att hämta allt. BookService och AuthorService
+// skriver en rad i samma transaktion som ändringen; äldre rader för samma bok/författare tas bort
+// direkt, så loggen innehåller bara senaste upsert eller gravsten per post. SQLite har en skrivare
+// åt gången, så löpnumren blir synliga i commit-ordning och en cursor hoppar aldrig över något.
+// Gravstenar äldre än tombstone-retention-days rensas; en klient vars cursor ligger före det som
+// rensats får fullResync och hämtar hela katalogen på nytt.
+@Service
+public class CatalogChangeLogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogChangeLogService.class);
+
+    private static final String LOG_MARKER = "catalog-change-log";
+    private static final int LOG_VERSION = 1;
+    // version = sista löpnumret som rensats bort
+    private static final String TRUNCATED_MARKER = "catalog-changes-truncated";
+
+    @Autowired
+    private CatalogChangeRepository catalogChangeRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private SchemaMarkerRepository schemaMarkerRepository;
+
+    @Value("${catalog.changes.tombstone-retention-days:30}")
+    private int tombstoneRetentionDays;
+
+    private volatile long truncatedThrough;
+
+    private final LongAdder changesRecorded = new LongAdder();
+    private final LongAdder deltaRequests = new LongAdder();
+    private final LongAdder fullResyncs = new LongAdder();
+    private final LongAdder tombstonesPruned = new LongAdder();
+
+    // Skrivs i anroparens transaktion så att raden och ändringen committas tillsammans
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUpsert(String entityType, Long entityId) {
+        record(entityType, entityId, CatalogChange.UPSERT);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDelete(String entityType, Long entityId) {
+        record(entityType, entityId, CatalogChange.DELETE);
+    }
+
+    // Ny rad först så att loggens högsta löpnummer aldrig tas bort (SQLite återanvänder annars rowid)
+    private void record(String entityType, Long entityId, String operation) {
+        CatalogChange change = catalogChangeRepository.save(new CatalogChange(entityType, entityId, operation));
+        catalogChangeRepository.deleteSuperseded(entityType, entityId, change.getChangeSeq());
+        changesRecorded.increment();
+    }
+
+    // Första starten med loggen: allt som redan finns blir upserts, så since=0 ger hela katalogen.
+    // Körs efter DataInitializer så att exempeldatan kommer med.
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initialize() {
+        schemaMarkerRepository.findById(TRUNCATED_MARKER)
+                .ifPresent(marker -> truncatedThrough = marker.getVersion());
+        if (schemaMarkerRepository.findById(LOG_MARKER).map(m -> m.getVersion() >= LOG_VERSION).orElse(false)) {
+            return;
+        }
+        Set<Long> loggedAuthors = new HashSet<>(catalogChangeRepository.findEntityIds(CatalogChange.AUTHOR));
+        Set<Long> loggedBooks = new HashSet<>(catalogChangeRepository.findEntityIds(CatalogChange.BOOK));
+        List<CatalogChange> seed = new ArrayList<>();
+        for (Author author : authorRepository.findAll()) {
+            if (!loggedAuthors.contains(author.getAuthorId())) {
+                seed.add(new CatalogChange(CatalogChange.AUTHOR, author.getAuthorId(), CatalogChange.UPSERT));
+            }
+        }
+        for (Book book : bookRepository.findAll()) {
+            if (!loggedBooks.contains(book.getBookId())) {
+                seed.add(new CatalogChange(CatalogChange.BOOK, book.getBookId(), CatalogChange.UPSERT));
+            }
+        }
+        catalogChangeRepository.saveAll(seed);
+        schemaMarkerRepository.save(new SchemaMarker(LOG_MARKER, LOG_VERSION));
+        logger.info("Catalog change log seeded with {} entries", seed.size());
+    }
+
+    // Ändringar efter since, högst limit poster. Saknas since eller har loggen rensats förbi den
+    // måste klienten hämta allt och sedan fortsätta från next.
+    @Transactional(readOnly = true)
+    public Map<String, Object> getChanges(Long since, int limit) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (since == null || since < truncatedThrough) {
+            fullResyncs.increment();
+            result.put("fullResync", true);
+            result.put("next", catalogChangeRepository.findMaxChangeSeq());
+            return result;
+        }
+        deltaRequests.increment();
+
+        List<CatalogChange> changes = catalogChangeRepository
+                .findByChangeSeqGreaterThanOrderByChangeSeqAsc(since, Limit.of(limit + 1));
+        boolean hasMore = changes.size() > limit;
+        if (hasMore) {
+            changes = changes.subList(0, limit);
+        }
+
+        List<Long> bookIds = new ArrayList<>();
+        List<Long> authorIds = new ArrayList<>();
+        List<Long> deletedBooks = new ArrayList<>();
+        List<Long> deletedAuthors = new ArrayList<>();
+        for (CatalogChange change : changes) {
+            boolean book = CatalogChange.BOOK.equals(change.getEntityType());
+            if (CatalogChange.DELETE.equals(change.getOperation())) {
+                (book ? deletedBooks : deletedAuthors).add(change.getEntityId());
+            } else {
+                (book ? bookIds : authorIds).add(change.getEntityId());
+            }
+        }
+
+        result.put("fullResync", false);
+        result.put("since", since);
+        result.put("next", changes.isEmpty() ? since : changes.get(changes.size() - 1).getChangeSeq());
+        result.put("hasMore", hasMore);
+        result.put("books", bookRepository.findAllById(bookIds));
+        result.put("authors", authorRepository.findAllById(authorIds));
+        result.put("deletedBooks", deletedBooks);
+        result.put("deletedAuthors", deletedAuthors);
+        return result;
+    }
+
+    // Rensa gamla gravstenar och flytta gränsen för vilka cursorer som kan få delta
+    @Scheduled(cron = "${catalog.changes.prune-cron:0 30 3 * * *}")
+    @Transactional
+    public void pruneTombstones() {
+        Long last = catalogChangeRepository.findLastExpiredTombstone(
+                LocalDateTime.now().minusDays(tombstoneRetentionDays));
+        if (last == null) {
+            return;
+        }
+        int pruned = catalogChangeRepository.deleteTombstonesThrough(last);
+        schemaMarkerRepository.save(new SchemaMarker(TRUNCATED_MARKER, Math.toIntExact(last)));
+        truncatedThrough = last;
+        tombstonesPruned.add(pruned);
+        logger.info("Pruned {} catalog tombstones, cursors before {} need a full resync", pruned, last);
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("changesRecorded", changesRecorded.sum());
+        stats.put("deltaRequests", deltaRequests.sum());
+        stats.put("fullResyncs", fullResyncs.sum());
+        stats.put("tombstonesPruned", tombstonesPruned.sum());
+        stats.put("truncatedThrough", truncatedThrough);
+        return stats;
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.library_system.service;
+
+import com.example.library_system.security.CountMinSketch;
+import com.example.library_system.security.HyperLogLog;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Upptäcker credential stuffing och lösenordsbesprutning per IP-adress.
+// Misslyckade inloggningar räknas i en count-min sketch och distinkta användarnamn i en
+// HyperLogLog per IP, uppdelat i tidsluckor så att fönstret glider och minnet är fast
+// oavsett hur många försök eller IP-adresser en attack använder.
+// IP-adressen är den betrodda klientadressen (getRemoteAddr efter RemoteIpValve), så en
+// angripare kan inte byta nyckel genom att skicka en egen X-Forwarded-For.
+// Ett delat nät (en skolklass bakom en NAT) skiljs från en attack genom att många av
+// dess konton också lyckas logga in - distinkta lyckade konton räknas därför också.
+@Service
+public class CredentialStuffingDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(CredentialStuffingDetector.class);
+
+    @Value("${security.stuffing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.stuffing.window-minutes:10}")
+    private long windowMinutes;
+
+    @Value("${security.stuffing.window-slots:5}")
+    private int slotCount;
+
+    @Value("${security.stuffing.sketch-width:4096}")
+    private int sketchWidth;
+
+    @Value("${security.stuffing.sketch-depth:4}")
+    private int sketchDepth;
+
+    @Value("${security.stuffing.hll-precision:6}")
+    private int hllPrecision;
+
+    @Value("${security.stuffing.max-tracked-ips:10000}")
+    private int maxTrackedIps;
+
+    @Value("${security.stuffing.failure-threshold:30}")
+    private long failureThreshold;
+
+    @Value("${security.stuffing.distinct-username-threshold:15}")
+    private long distinctUsernameThreshold;
+
+    @Value("${security.stuffing.block-minutes:30}")
+    private long blockMinutes;
+
+    @Value("${security.stuffing.max-blocked-ips:10000}")
+    private int maxBlockedIps;
+
+    private Slot[] slots;
+    private long slotMillis;
+
+    // IP-adress -> blockerad till (epoch millis)
+    private final Map<String, Long> blockedUntil = new ConcurrentHashMap<>();
+
+    private final AtomicLong failuresRecorded = new AtomicLong();
+    private final AtomicLong untrackedFailures = new AtomicLong();
+    private final AtomicLong blocksIssued = new AtomicLong();
+    private final AtomicLong sharedNetworkPasses = new AtomicLong();
+    private final AtomicLong requestsRejected = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        slotMillis = Math.max(1, windowMinutes * 60_000 / slotCount);
+        slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot(new CountMinSketch(sketchWidth, sketchDepth));
+        }
+    }
+
+    // Registrera ett misslyckat försök. Returnerar true om IP-adressen blockerades av just detta försök.
+    public boolean recordFailure(String ipAddress, String username) {
+        return recordFailure(ipAddress, username, System.currentTimeMillis());
+    }
+
+    boolean recordFailure(String ipAddress, String username, long now) {
+        if (!enabled || ipAddress == null) {
+            return false;
+        }
+        failuresRecorded.incrementAndGet();
+
+        long epoch = now / slotMillis;
+        Slot slot = slotFor(epoch);
+        slot.failures.add(ipAddress, 1);
+
+        if (username != null && !addUsername(slot.usernames, ipAddress, username)) {
+            // Luckan är full - räknas fortfarande i count-min sketchen
+            untrackedFailures.incrementAndGet();
+        }
+
+        if (isBlocked(ipAddress, now)) {
+            return false;
+        }
+
+        long failures = estimateFailures(ipAddress, epoch);
+        long distinctUsernames = estimateDistinctUsernames(live -> live.usernames, ipAddress, epoch);
+        if (failures < failureThreshold && distinctUsernames < distinctUsernameThreshold) {
+            return false;
+        }
+
+        // Minst lika många konton har lyckats som misslyckats - ett delat nät, inte besprutning.
+        // Kontospärren i LoginAttemptService skyddar fortfarande varje enskilt konto.
+        if (estimateDistinctUsernames(live -> live.successfulUsernames, ipAddress, epoch) >= distinctUsernames) {
+            sharedNetworkPasses.incrementAndGet();
+            return false;
+        }
+
+        block(ipAddress, now);
+        logger.warn("Credential stuffing suspected from {}: ~{} failures and ~{} distinct usernames in {} minutes",
+                ipAddress, failures, distinctUsernames, windowMinutes);
+        return true;
+    }
+
+    // Registrera en lyckad inloggning så att ett delat nät inte blockeras för sina felskrivningar
+    public void recordSuccess(String ipAddress, String username) {
+        recordSuccess(ipAddress, username, System.currentTimeMillis());
+    }
+
+    void recordSuccess(String ipAddress, String username, long now) {
+        if (!enabled || ipAddress == null || username == null) {
+            return;
+        }
+        addUsername(slotFor(now / slotMillis).successfulUsernames, ipAddress, username);
+    }
+
+    public boolean isBlocked(String ipAddress) {
+        return isBlocked(ipAddress, System.currentTimeMillis());
+    }
+
+    // Millisekunder kvar av blockeringen, 0 om IP-adressen inte är blockerad
+    public long getBlockRemainingMillis(String ipAddress) {
+        if (ipAddress == null) {
+            return 0;
+        }
+        Long until = blockedUntil.get(ipAddress);
+        return until != null ? Math.max(0, until - System.currentTimeMillis()) : 0;
+    }
+
+    public void recordRejectedRequest() {
+        requestsRejected.incrementAndGet();
+    }
+
+    public boolean unblock(String ipAddress) {
+        return blockedUntil.remove(ipAddress) != null;
+    }
+
+    // Uppskattningar för en IP-adress inom det glidande fönstret
+    public Map<String, Object> getEstimates(String ipAddress) {
+        long epoch = System.currentTimeMillis() / slotMillis;
+        Map<String, Object> estimates = new LinkedHashMap<>();
+        estimates.put("ipAddress", ipAddress);
+        estimates.put("failures", estimateFailures(ipAddress, epoch));
+        estimates.put("distinctUsernames", estimateDistinctUsernames(live -> live.usernames, ipAddress, epoch));
+        estimates.put("distinctSuccessfulUsernames",
+                estimateDistinctUsernames(live -> live.successfulUsernames, ipAddress, epoch));
+        estimates.put("blocked", isBlocked(ipAddress));
+        return estimates;
+    }
+
+    public Map<String, LocalDateTime> getBlockedIps() {
+        long now = System.currentTimeMillis();
+        Map<String, LocalDateTime> blocked = new LinkedHashMap<>();
+        blockedUntil.forEach((ip, until) -> {
+            if (until > now) {
+                blocked.put(ip, LocalDateTime.ofInstant(Instant.ofEpochMilli(until), ZoneId.systemDefault()));
+            }
+        });
+        return blocked;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("windowMinutes", windowMinutes);
+        stats.put("windowSlots", slotCount);
+        stats.put("failureThreshold", failureThreshold);
+        stats.put("distinctUsernameThreshold", distinctUsernameThreshold);
+        stats.put("blockMinutes", blockMinutes);
+        stats.put("failuresRecorded", failuresRecorded.get());
+        stats.put("untrackedFailures", untrackedFailures.get());
+        stats.put("blocksIssued", blocksIssued.get());
+        stats.put("sharedNetworkPasses", sharedNetworkPasses.get());
+        stats.put("requestsRejected", requestsRejected.get());
+        stats.put("currentlyBlocked", getBlockedIps().size());
+
+        int trackedIps = 0;
+        for (Slot slot : slots) {
+            trackedIps += slot.usernames.size();
+        }
+        stats.put("trackedIpsInWindow", trackedIps);
+
+        // Övre gräns för sketchernas minne (två HyperLogLog-tabeller per lucka)
+        long sketchBytes = (long) slotCount * ((long) sketchWidth * sketchDepth * Long.BYTES
+                + 2L * maxTrackedIps * (1L << hllPrecision));
+        stats.put("maxSketchMemoryBytes", sketchBytes);
+        return stats;
+    }
+
+    private boolean isBlocked(String ipAddress, long now) {
+        if (ipAddress == null) {
+            return false;
+        }
+        Long until = blockedUntil.get(ipAddress);
+        if (until == null) {
+            return false;
+        }
+        if (until <= now) {
+            blockedUntil.remove(ipAddress, until);
+            return false;
+        }
+        return true;
+    }
+
+    private void block(String ipAddress, long now) {
+        if (blockedUntil.size() >= maxBlockedIps) {
+            blockedUntil.values().removeIf(until -> until <= now);
+            if (blockedUntil.size() >= maxBlockedIps) {
+                logger.warn("Blocked IP list is full ({}), not blocking {}", maxBlockedIps, ipAddress);
+                return;
+            }
+        }
+        blockedUntil.put(ipAddress, now + blockMinutes * 60_000);
+        blocksIssued.incrementAndGet();
+    }
+
+    // Summa över alla luckor i fönstret
+    private long estimateFailures(String ipAddress, long epoch) {
+        long total = 0;
+        for (Slot slot : slots) {
+            if (isLive(slot, epoch)) {
+                total += slot.failures.estimate(ipAddress);
+            }
+        }
+        return total;
+    }
+
+    // Lägg till ett användarnamn i IP-adressens HyperLogLog. Returnerar false om luckan redan spårar maxTrackedIps.
+    private boolean addUsername(Map<String, HyperLogLog> perIp, String ipAddress, String username) {
+        HyperLogLog usernames = perIp.get(ipAddress);
+        if (usernames == null && perIp.size() < maxTrackedIps) {
+            usernames = perIp.computeIfAbsent(ipAddress, k -> new HyperLogLog(hllPrecision));
+        }
+        if (usernames == null) {
+            return false;
+        }
+        usernames.add(username.trim().toLowerCase());
+        return true;
+    }
+
+    // Slå ihop luckornas HyperLogLogs så att samma användarnamn bara räknas en gång
+    private long estimateDistinctUsernames(Function<Slot, Map<String, HyperLogLog>> perIp,
+                                           String ipAddress, long epoch) {
+        HyperLogLog merged = null;
+        for (Slot slot : slots) {
+            if (!isLive(slot, epoch)) {
+                continue;
+            }
+            HyperLogLog usernames = perIp.apply(slot).get(ipAddress);
+            if (usernames == null) {
+                continue;
+            }
+            if (merged == null) {
+                merged = new HyperLogLog(hllPrecision);
+            }
+            merged.merge(usernames);
+        }
+        return merged != null ? merged.estimate() : 0;
+    }
+
+    private boolean isLive(Slot slot, long epoch) {
+        long slotEpoch = slot.epoch;
+        return slotEpoch <= epoch && slotEpoch > epoch - slotCount;
+    }
+
+    // Hämta luckan för tidsepoken och nollställ den om den tillhör ett äldre varv.
+    // Ett försök som skrivs samtidigt som luckan nollställs kan gå förlorat - det är acceptabelt för en uppskattning.
+    private Slot slotFor(long epoch) {
+        Slot slot = slots[(int) (epoch % slotCount)];
+        if (slot.epoch != epoch) {
+            synchronized (slot) {
+                if (slot.epoch != epoch) {
+                    slot.failures.clear();
+                    slot.usernames.clear();
+                    slot.successfulUsernames.clear();
+                    slot.epoch = epoch;
+                }
+            }
+        }
+        return slot;
+    }
+
+    private static final class Slot {
+        private final CountMinSketch failures;
+        private final Map<String, HyperLogLog> usernames = new ConcurrentHashMap<>();
+        private final Map<String, HyperLogLog> successfulUsernames = new ConcurrentHashMap<>();
+        private volatile long epoch = -1;
+
+        private Slot(CountMinSketch failures) {
+            this.failures = failures;
+        }
+    }
+}
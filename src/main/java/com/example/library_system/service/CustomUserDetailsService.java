@@ -13,6 +13,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -25,10 +26,19 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private SecurityLogService securityLogService;
 
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
     @Override
     @Transactional
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        User user = userRepository.findByEmail(email)
+        // Låsta konton cachas aldrig, så en träff är alltid ett olåst konto
+        CustomUserDetails cached = userDetailsCache.get(email);
+        if (cached != null) {
+            return cached;
+        }
+
+        User user = userRepository.findByEmailWithRoles(email)
                 .orElseThrow(() -> new UsernameNotFoundException("Användare med email " + email + " hittades inte"));
 
         // Kontrollera om kontot är låst
@@ -36,14 +46,19 @@ public class CustomUserDetailsService implements UserDetailsService {
             throw new UsernameNotFoundException("Kontot är låst på grund av för många misslyckade inloggningsförsök");
         }
 
-        return new CustomUserDetails(
+        CustomUserDetails details = new CustomUserDetails(
                 user.getEmail(),
                 user.getPassword(),
                 user.isEnabled(),
                 user.isAccountNonLocked(),
                 mapRolesToAuthorities(user.getRoles()),
-                user
+                user.getUserId(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.getRoles().stream().map(Role::getName).toList()
         );
+        userDetailsCache.put(details);
+        return details;
     }
 
     private Collection<? extends GrantedAuthority> mapRolesToAuthorities(Set<Role> roles) {
@@ -52,24 +67,32 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .collect(Collectors.toList());
     }
 
-    // Custom UserDetails implementation
+    // Custom UserDetails implementation (oföränderlig så att den kan delas via cachen).
+    // Håller en kopia av de fält inloggningen behöver i stället för JPA-entiteten,
+    // som annars skulle delas mellan trådar och sessioner efter att den lämnat sin persistenskontext.
     public static class CustomUserDetails implements UserDetails {
-        private String username;
-        private String password;
-        private boolean enabled;
-        private boolean accountNonLocked;
-        private Collection<? extends GrantedAuthority> authorities;
-        private User user;
+        private final String username;
+        private final String password;
+        private final boolean enabled;
+        private final boolean accountNonLocked;
+        private final List<GrantedAuthority> authorities;
+        private final Long userId;
+        private final String firstName;
+        private final String lastName;
+        private final List<String> roleNames;
 
         public CustomUserDetails(String username, String password, boolean enabled,
                                  boolean accountNonLocked, Collection<? extends GrantedAuthority> authorities,
-                                 User user) {
+                                 Long userId, String firstName, String lastName, Collection<String> roleNames) {
             this.username = username;
             this.password = password;
             this.enabled = enabled;
             this.accountNonLocked = accountNonLocked;
-            this.authorities = authorities;
-            this.user = user;
+            this.authorities = List.copyOf(authorities);
+            this.userId = userId;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.roleNames = List.copyOf(roleNames);
         }
 
         @Override
@@ -107,8 +130,20 @@ public class CustomUserDetailsService implements UserDetailsService {
             return enabled;
         }
 
-        public User getUser() {
-            return user;
+        public Long getUserId() {
+            return userId;
+        }
+
+        public String getFirstName() {
+            return firstName;
+        }
+
+        public String getLastName() {
+            return lastName;
+        }
+
+        public List<String> getRoleNames() {
+            return roleNames;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,324 @@
+package com.example.library_system.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+// Kontinuerlig JFR-inspelning med begränsad ålder och storlek. Sista N minuterna kan dumpas
+// till fil på begäran, och dumpas automatiskt när p99-latensen eller en GC-paus passerar gränsen.
+// Rapporterar även var virtuella trådar nålas fast (jdk.VirtualThreadPinned).
+@Service
+public class FlightRecorderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorderService.class);
+
+    private static final String RECORDING_NAME = "library-continuous";
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final String AVAILABILITY_STREAM_URI = "/books/availability/stream";
+
+    // Justeringar ovanpå JDK:ns "default"-profil (låg overhead, ca 1 %)
+    private static final Map<String, String> PROFILE_OVERRIDES = Map.of(
+            "jdk.FileRead#threshold", "10 ms",
+            "jdk.FileWrite#threshold", "10 ms",
+            "jdk.JavaMonitorEnter#threshold", "10 ms",
+            "jdk.ThreadPark#threshold", "20 ms",
+            "jdk.SocketRead#threshold", "50 ms"
+    );
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${jfr.enabled:true}")
+    private boolean enabled;
+
+    @Value("${jfr.max-age-minutes:30}")
+    private long maxAgeMinutes;
+
+    @Value("${jfr.max-size-mb:200}")
+    private long maxSizeMb;
+
+    @Value("${jfr.dump-directory:logs/jfr}")
+    private String dumpDirectory;
+
+    // Äldre dumpfiler tas bort från disken, inte bara ur listan
+    @Value("${jfr.max-dump-files:20}")
+    private int maxDumpFiles;
+
+    @Value("${jfr.auto-dump.p99-threshold-millis:1000}")
+    private double p99ThresholdMillis;
+
+    @Value("${jfr.auto-dump.gc-pause-threshold-millis:200}")
+    private long gcPauseThresholdMillis;
+
+    @Value("${jfr.auto-dump.window-minutes:5}")
+    private int autoDumpWindowMinutes;
+
+    @Value("${jfr.auto-dump.cooldown-minutes:15}")
+    private long cooldownMinutes;
+
+    @Value("${jfr.pinned-threshold-millis:20}")
+    private long pinnedThresholdMillis;
+
+    private Recording recording;
+    private RecordingStream eventStream;
+    private final LongAccumulator maxGcPauseNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder pinnedEvents = new LongAdder();
+    private final LongAdder pinnedNanos = new LongAdder();
+    private final Map<String, LongAdder> pinnedSites = new ConcurrentHashMap<>();
+    private volatile long lastAutoDumpNanos;
+    private final List<Map<String, Object>> dumps = new ArrayList<>();
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("Continuous JFR recording is disabled");
+            return;
+        }
+
+        try {
+            Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+            settings.putAll(PROFILE_OVERRIDES);
+
+            recording = new Recording(settings);
+            recording.setName(RECORDING_NAME);
+            recording.setToDisk(true);
+            recording.setMaxAge(Duration.ofMinutes(maxAgeMinutes));
+            recording.setMaxSize(maxSizeMb * 1024 * 1024);
+            recording.start();
+
+            // GC-pauser och fastnålade virtuella trådar läses via en egen ström;
+            // GC-kontrollen sker i checkThresholds
+            eventStream = new RecordingStream();
+            eventStream.enable("jdk.GarbageCollection");
+            eventStream.onEvent("jdk.GarbageCollection",
+                    event -> maxGcPauseNanos.accumulate(event.getDuration("longestPause").toNanos()));
+            eventStream.enable("jdk.VirtualThreadPinned")
+                    .withThreshold(Duration.ofMillis(pinnedThresholdMillis))
+                    .withStackTrace();
+            eventStream.onEvent("jdk.VirtualThreadPinned", this::recordPinned);
+            eventStream.startAsync();
+
+            logger.info("Continuous JFR recording started (max age {} min, max size {} MB)", maxAgeMinutes, maxSizeMb);
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            logger.warn("Could not start continuous JFR recording: {}", e.getMessage());
+            recording = null;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (eventStream != null) {
+            eventStream.close();
+        }
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    public boolean isRecording() {
+        return recording != null;
+    }
+
+    // Skriv de senaste minuterna till en fil i dump-katalogen
+    public synchronized Path dump(int minutes, String reason) throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("JFR recording is not running");
+        }
+
+        Path directory = Paths.get(dumpDirectory).toAbsolutePath();
+        Files.createDirectories(directory);
+        Path file = directory.resolve("library-" + LocalDateTime.now().format(FILE_TIMESTAMP) + "-" + reason + ".jfr");
+
+        // JFR.dump via DiagnosticCommand stödjer begin=, vilket Recording-API:t saknar
+        try {
+            ManagementFactory.getPlatformMBeanServer().invoke(
+                    new ObjectName("com.sun.management:type=DiagnosticCommand"),
+                    "jfrDump",
+                    new Object[]{new String[]{
+                            "name=" + RECORDING_NAME,
+                            "begin=-" + minutes + "m",
+                            "filename=" + file
+                    }},
+                    new String[]{String[].class.getName()});
+        } catch (Exception e) {
+            throw new IOException("JFR dump failed: " + e.getMessage(), e);
+        }
+
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("file", file.toString());
+        info.put("reason", reason);
+        info.put("minutes", minutes);
+        info.put("sizeBytes", Files.exists(file) ? Files.size(file) : 0);
+        info.put("createdAt", LocalDateTime.now());
+        dumps.add(info);
+        if (dumps.size() > maxDumpFiles) {
+            dumps.remove(0);
+        }
+        logger.info("JFR dump written to {} ({} bytes, reason: {})", file, info.get("sizeBytes"), reason);
+        deleteOldDumps(directory);
+        return file;
+    }
+
+    // Behåll bara de senaste maxDumpFiles dumparna. Tidsstämpeln i filnamnet sorterar kronologiskt,
+    // så även dumpar från tidigare körningar räknas med.
+    private void deleteOldDumps(Path directory) {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith("library-") && name.endsWith(".jfr");
+                    })
+                    .sorted(Comparator.comparing((Path path) -> path.getFileName().toString()).reversed())
+                    .toList();
+        } catch (IOException e) {
+            logger.warn("Could not list JFR dumps in {}: {}", directory, e.getMessage());
+            return;
+        }
+
+        for (Path old : files.subList(Math.min(maxDumpFiles, files.size()), files.size())) {
+            try {
+                Files.deleteIfExists(old);
+                logger.debug("Deleted old JFR dump {}", old);
+            } catch (IOException e) {
+                logger.warn("Could not delete old JFR dump {}: {}", old, e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jfr.auto-dump.check-interval-millis:30000}")
+    public void checkThresholds() {
+        if (recording == null) {
+            return;
+        }
+
+        long gcPauseNanos = maxGcPauseNanos.getThenReset();
+        double p99Millis = getHttpP99Millis();
+
+        String reason = null;
+        if (gcPauseNanos >= TimeUnit.MILLISECONDS.toNanos(gcPauseThresholdMillis)) {
+            reason = "gc-pause";
+        } else if (p99Millis >= p99ThresholdMillis) {
+            reason = "p99";
+        }
+        if (reason == null) {
+            return;
+        }
+
+        // Undvik en dump per kontroll under en längre störning
+        long now = System.nanoTime();
+        if (lastAutoDumpNanos != 0 && now - lastAutoDumpNanos < TimeUnit.MINUTES.toNanos(cooldownMinutes)) {
+            return;
+        }
+        lastAutoDumpNanos = now;
+
+        logger.warn("Automatic JFR dump: {} (p99 {} ms, longest GC pause {} ms)",
+                reason, Math.round(p99Millis), TimeUnit.NANOSECONDS.toMillis(gcPauseNanos));
+        try {
+            dump(autoDumpWindowMinutes, reason);
+        } catch (IOException e) {
+            logger.warn("Automatic JFR dump failed: {}", e.getMessage());
+        }
+    }
+
+    // En virtuell tråd som blockerar inuti synchronized (t.ex. i SQLite-drivrutinen) håller fast
+    // sin bärartråd. Räknas per första ram utanför JDK:n så att orsaken syns.
+    private void recordPinned(RecordedEvent event) {
+        pinnedEvents.increment();
+        pinnedNanos.add(event.getDuration().toNanos());
+
+        String site = "unknown";
+        if (event.getStackTrace() != null) {
+            for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                String type = frame.getMethod().getType().getName();
+                if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                    site = type + "." + frame.getMethod().getName();
+                    break;
+                }
+            }
+        }
+        if (pinnedSites.computeIfAbsent(site, key -> new LongAdder()).sum() == 0) {
+            logger.warn("Virtual thread pinned for {} ms at {}", event.getDuration().toMillis(), site);
+        }
+        pinnedSites.get(site).increment();
+    }
+
+    public Map<String, Object> getPinningStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", eventStream != null);
+        stats.put("thresholdMillis", pinnedThresholdMillis);
+        stats.put("pinnedEvents", pinnedEvents.sum());
+        stats.put("pinnedMillis", pinnedNanos.sum() / 1_000_000.0);
+
+        Map<String, Long> sites = new LinkedHashMap<>();
+        pinnedSites.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .limit(10)
+                .forEach(entry -> sites.put(entry.getKey(), entry.getValue().sum()));
+        stats.put("topSites", sites);
+        return stats;
+    }
+
+    // Högsta p99 bland endpoints under Micrometers rullande fönster. SSE-strömmen räknas inte:
+    // en anslutning som står öppen i en halvtimme är ingen långsam förfrågan.
+    private double getHttpP99Millis() {
+        return meterRegistry.find("http.server.requests").timers().stream()
+                .filter(timer -> !AVAILABILITY_STREAM_URI.equals(timer.getId().getTag("uri")))
+                .map(Timer::takeSnapshot)
+                .flatMap(snapshot -> Stream.of(snapshot.percentileValues()))
+                .filter(value -> value.percentile() == 0.99)
+                .mapToDouble(value -> value.value(TimeUnit.MILLISECONDS))
+                .max()
+                .orElse(0);
+    }
+
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("recording", recording != null);
+        if (recording != null) {
+            status.put("state", recording.getState().name());
+            status.put("maxAgeMinutes", maxAgeMinutes);
+            status.put("maxSizeMb", maxSizeMb);
+            status.put("currentSizeBytes", recording.getSize());
+        }
+        status.put("httpP99Millis", getHttpP99Millis());
+        status.put("p99ThresholdMillis", p99ThresholdMillis);
+        status.put("gcPauseThresholdMillis", gcPauseThresholdMillis);
+        status.put("dumps", new ArrayList<>(dumps));
+        return status;
+    }
+}
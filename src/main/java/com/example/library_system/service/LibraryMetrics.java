@@ -0,0 +1,75 @@
+package com.example.library_system.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Domänräknare för lån och säkerhet, exponeras via /actuator/prometheus
+@Component
+public class LibraryMetrics {
+
+    private final MeterRegistry registry;
+    private final Counter checkouts;
+    private final Counter returns;
+    private final Counter lockouts;
+
+    public LibraryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.checkouts = Counter.builder("library.loans.checkouts")
+                .description("Utlånade böcker")
+                .register(registry);
+        this.returns = Counter.builder("library.loans.returns")
+                .description("Återlämnade böcker")
+                .register(registry);
+        this.lockouts = Counter.builder("library.security.lockouts")
+                .description("Konton låsta efter för många misslyckade inloggningar")
+                .register(registry);
+    }
+
+    // Räknas efter commit, så att tillbakarullade eller omförsökta (@RetryOnSqliteBusy) transaktioner inte räknas
+    public void loanCheckedOut() {
+        afterCommit(checkouts::increment);
+    }
+
+    public void bookReturned() {
+        afterCommit(returns::increment);
+    }
+
+    // Orsaken blir en tagg, så håll den till ett fåtal fasta värden
+    public void extensionRejected(String reason) {
+        Counter.builder("library.loans.extension.rejections")
+                .description("Nekade förlängningar")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    // Också efter commit: rullas låsningen tillbaka är kontot inte låst
+    public void accountLocked() {
+        afterCommit(lockouts::increment);
+    }
+
+    public void securityLogWritten(String eventType, boolean success) {
+        Counter.builder("library.security.log.writes")
+                .description("Skrivna säkerhetshändelser")
+                .tag("event_type", eventType)
+                .tag("success", String.valueOf(success))
+                .register(registry)
+                .increment();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.library_system.service;
+
+import com.example.library_system.repository.AuthorRepository;
+import com.example.library_system.repository.BookRepository;
+import com.example.library_system.repository.LoanRepository;
+import com.example.library_system.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Antal böcker, författare, användare och aktiva lån för adminpanelen utan att läsa tabellerna.
+// Räknarna ändras vid varje skapa/ta bort/lån/återlämning (efter commit, så att tillbakarullade
+// eller omförsökta transaktioner inte räknas) och stäms av mot COUNT-frågor vid start och periodiskt.
+// Skrivningar som går förbi tjänsterna (t.ex. DataInitializer) rättas vid nästa avstämning.
+@Service
+public class LibraryStatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LibraryStatisticsService.class);
+
+    public enum Count { BOOKS, AUTHORS, USERS, ACTIVE_LOANS }
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    private final Map<Count, AtomicLong> counts = new EnumMap<>(Count.class);
+    private final LongAdder reconciliations = new LongAdder();
+    private final LongAdder driftCorrections = new LongAdder();
+    private volatile LocalDateTime lastReconciledAt;
+
+    public LibraryStatisticsService() {
+        for (Count count : Count.values()) {
+            counts.put(count, new AtomicLong());
+        }
+    }
+
+    public void increment(Count count) {
+        adjust(count, 1);
+    }
+
+    public void decrement(Count count) {
+        adjust(count, -1);
+    }
+
+    private void adjust(Count count, long delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    counts.get(count).addAndGet(delta);
+                }
+            });
+        } else {
+            counts.get(count).addAndGet(delta);
+        }
+    }
+
+    // Efter DataInitializer, så att exempeldatan finns med från början
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileAtStartup() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${stats.reconcile-interval-millis:300000}",
+            initialDelayString = "${stats.reconcile-interval-millis:300000}")
+    public void reconcile() {
+        reconcile(Count.BOOKS, bookRepository::count);
+        reconcile(Count.AUTHORS, authorRepository::count);
+        reconcile(Count.USERS, userRepository::count);
+        reconcile(Count.ACTIVE_LOANS, loanRepository::countByReturnedDateIsNull);
+        reconciliations.increment();
+        lastReconciledAt = LocalDateTime.now();
+    }
+
+    // Ändrades räknaren medan COUNT kördes vet vi inte vilket värde frågan såg - vänta till nästa gång
+    private void reconcile(Count count, LongSupplier query) {
+        AtomicLong counter = counts.get(count);
+        long before = counter.get();
+        long actual = query.getAsLong();
+        // Första avstämningen sätter bara startvärdet
+        if (actual != before && counter.compareAndSet(before, actual) && lastReconciledAt != null) {
+            driftCorrections.increment();
+            logger.warn("Statistics counter {} drifted: {} -> {}", count, before, actual);
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("books", counts.get(Count.BOOKS).get());
+        stats.put("authors", counts.get(Count.AUTHORS).get());
+        stats.put("users", counts.get(Count.USERS).get());
+        stats.put("activeLoans", counts.get(Count.ACTIVE_LOANS).get());
+        stats.put("reconciliations", reconciliations.sum());
+        stats.put("driftCorrections", driftCorrections.sum());
+        stats.put("lastReconciledAt", lastReconciledAt);
+        return stats;
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.library_system.service;
 
+import com.example.library_system.dto.LoanDetailsDTO;
 import com.example.library_system.entity.Loan;
+import com.example.library_system.monitoring.LoanCheckoutEvent;
+import com.example.library_system.persistence.RetryOnSqliteBusy;
 import com.example.library_system.repository.LoanRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,6 +26,12 @@ public class LoanService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private LibraryMetrics libraryMetrics;
+
+    @Autowired
+    private LibraryStatisticsService libraryStatistics;
+
     // Hämta alla lån
     public List<Loan> getAllLoans() {
         return loanRepository.findAll();
@@ -37,14 +47,41 @@ public class LoanService {
         return loanRepository.findByUserId(userId);
     }
 
+    // Hämta en sida av användarens lån med titel och författare, nyast först.
+    // status: all, active eller returned. Nästa sida hämtas med det sista loanId:t som cursor.
+    public List<LoanDetailsDTO> getUserLoanDetails(Long userId, String status, Long beforeLoanId, int limit) {
+        long cursor = beforeLoanId != null ? beforeLoanId : Long.MAX_VALUE;
+        PageRequest page = PageRequest.of(0, limit);
+        return switch (status) {
+            case "all" -> loanRepository.findLoanDetailsByUserId(userId, cursor, page);
+            case "active" -> loanRepository.findActiveLoanDetailsByUserId(userId, cursor, page);
+            case "returned" -> loanRepository.findReturnedLoanDetailsByUserId(userId, cursor, page);
+            default -> throw new IllegalArgumentException("status must be one of: all, active, returned");
+        };
+    }
+
     // Hämta användarens aktiva lån
     public List<Loan> getUserActiveLoans(Long userId) {
         return loanRepository.findByUserIdAndReturnedDateIsNull(userId);
     }
 
     // Skapa nytt lån
+    @RetryOnSqliteBusy
     @Transactional
     public Loan createLoan(Long userId, Long bookId) {
+        LoanCheckoutEvent event = new LoanCheckoutEvent(userId, bookId);
+        event.begin();
+        try {
+            Loan loan = checkout(userId, bookId);
+            event.complete("OK");
+            return loan;
+        } catch (IllegalArgumentException e) {
+            event.complete(e.getMessage());
+            throw e;
+        }
+    }
+
+    private Loan checkout(Long userId, Long bookId) {
         // Kontrollera att användaren existerar
         if (userService.getUserById(userId).isEmpty()) {
             throw new IllegalArgumentException("User not found");
@@ -73,10 +110,14 @@ public class LoanService {
         loan.setBorrowedDate(LocalDate.now());
         loan.setDueDate(LocalDate.now().plusDays(14)); // 14 dagars lånetid
 
-        return loanRepository.save(loan);
+        Loan savedLoan = loanRepository.save(loan);
+        libraryMetrics.loanCheckedOut();
+        libraryStatistics.increment(LibraryStatisticsService.Count.ACTIVE_LOANS);
+        return savedLoan;
     }
 
     // Returnera bok
+    @RetryOnSqliteBusy
     @Transactional
     public Loan returnBook(Long loanId) {
         Optional<Loan> optionalLoan = loanRepository.findById(loanId);
@@ -99,14 +140,19 @@ public class LoanService {
             throw new IllegalArgumentException("Failed to increase available copies");
         }
 
-        return loanRepository.save(loan);
+        Loan savedLoan = loanRepository.save(loan);
+        libraryMetrics.bookReturned();
+        libraryStatistics.decrement(LibraryStatisticsService.Count.ACTIVE_LOANS);
+        return savedLoan;
     }
 
     // Förläng lån
+    @RetryOnSqliteBusy
     @Transactional
     public Loan extendLoan(Long loanId) {
         Optional<Loan> optionalLoan = loanRepository.findById(loanId);
         if (optionalLoan.isEmpty()) {
+            libraryMetrics.extensionRejected("not_found");
             throw new IllegalArgumentException("Loan not found");
         }
 
@@ -114,11 +160,13 @@ public class LoanService {
 
         // Kontrollera att lånet inte är återlämnat
         if (loan.getReturnedDate() != null) {
+            libraryMetrics.extensionRejected("returned");
             throw new IllegalArgumentException("Cannot extend returned loan");
         }
 
         // Kontrollera att lånet inte är försenat
         if (loan.getDueDate().isBefore(LocalDate.now())) {
+            libraryMetrics.extensionRejected("overdue");
             throw new IllegalArgumentException("Cannot extend overdue loan");
         }
 
@@ -0,0 +1,130 @@
+package com.example.library_system.service;
+
+import com.example.library_system.security.SlidingWindowCounter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Håller misslyckade inloggningsförsök i minnet, per användarnamn och per IP-adress.
+// Används för låsningsbeslut så att databasen bara behöver skrivas när en gräns passeras.
+// Högst max-tracked-keys nycklar per karta. Aktiva räknare trängs aldrig ut - annars kunde en
+// besprutning med nya namn radera offrets räknare. Svepet tar bara bort räknare vars fönster är tomt,
+// och är kartan ändå full stängs det för nya nycklar: nya användare räknas som över gränsen och
+// okända IP-adresser som spärrade, tills svepet har frigjort plats.
+@Service
+public class LoginAttemptService {
+
+    // Returneras av recordFailure när användaren inte får plats - behandlas som över varje gräns
+    public static final long UNTRACKED = Long.MAX_VALUE;
+
+    @Value("${security.login.failure-window-minutes:60}")
+    private long windowMinutes;
+
+    @Value("${security.login.failure-window-buckets:60}")
+    private int bucketCount;
+
+    @Value("${security.login.max-failures-per-ip:50}")
+    private long maxFailuresPerIp;
+
+    @Value("${security.login.max-tracked-keys:100000}")
+    private int maxTrackedKeys;
+
+    private final Map<String, SlidingWindowCounter> usernameCounters = new ConcurrentHashMap<>();
+    private final Map<String, SlidingWindowCounter> ipCounters = new ConcurrentHashMap<>();
+
+    // Registrera ett misslyckat försök och returnera antalet för användaren inom fönstret
+    // (UNTRACKED om användaren inte fick plats)
+    public long recordFailure(String username, String ipAddress) {
+        long now = System.currentTimeMillis();
+
+        if (ipAddress != null) {
+            increment(ipCounters, ipAddress, now);
+        }
+        if (username == null) {
+            return 0;
+        }
+        SlidingWindowCounter counter = increment(usernameCounters, normalize(username), now);
+        return counter != null ? counter.sum(now) : UNTRACKED;
+    }
+
+    // Antal misslyckade försök för användaren inom fönstret
+    public long getFailedAttempts(String username) {
+        if (username == null) {
+            return 0;
+        }
+        SlidingWindowCounter counter = usernameCounters.get(normalize(username));
+        return counter != null ? counter.sum(System.currentTimeMillis()) : 0;
+    }
+
+    // Antal misslyckade försök från IP-adressen inom fönstret
+    public long getFailedAttemptsFromIp(String ipAddress) {
+        if (ipAddress == null) {
+            return 0;
+        }
+        SlidingWindowCounter counter = ipCounters.get(ipAddress);
+        return counter != null ? counter.sum(System.currentTimeMillis()) : 0;
+    }
+
+    // Kontrollera om IP-adressen har för många misslyckade försök, eller inte kan spåras för att kartan är full
+    public boolean isIpBlocked(String ipAddress) {
+        if (ipAddress == null) {
+            return false;
+        }
+        SlidingWindowCounter counter = ipCounters.get(ipAddress);
+        if (counter == null) {
+            return ipCounters.size() >= maxTrackedKeys;
+        }
+        return counter.sum(System.currentTimeMillis()) >= maxFailuresPerIp;
+    }
+
+    // Nollställ användarens räknare (vid lyckad inloggning eller upplåsning)
+    public void resetUser(String username) {
+        if (username != null) {
+            usernameCounters.remove(normalize(username));
+        }
+    }
+
+    // Ta bort räknare utan försök kvar i fönstret
+    @Scheduled(fixedDelayString = "${security.login.sweep-millis:60000}")
+    public void sweep() {
+        sweep(System.currentTimeMillis());
+    }
+
+    void sweep(long now) {
+        sweepExpired(usernameCounters, now);
+        sweepExpired(ipCounters, now);
+    }
+
+    private static void sweepExpired(Map<String, SlidingWindowCounter> counters, long now) {
+        for (String key : counters.keySet()) {
+            counters.computeIfPresent(key, (k, counter) -> counter.sum(now) == 0 ? null : counter);
+        }
+    }
+
+    // Ökningen görs under nyckelns lås i kartan, så svepet kan inte ta bort räknaren mitt i.
+    // Null om nyckeln är ny och kartan full.
+    private SlidingWindowCounter increment(Map<String, SlidingWindowCounter> counters, String key, long now) {
+        return counters.compute(key, (k, counter) -> {
+            if (counter == null) {
+                if (counters.size() >= maxTrackedKeys) {
+                    return null;
+                }
+                counter = new SlidingWindowCounter(bucketCount, windowMinutes * 60_000);
+            }
+            counter.increment(now);
+            return counter;
+        });
+    }
+
+    // Antal spårade nycklar (används av testerna)
+    int getTrackedKeyCount() {
+        return usernameCounters.size() + ipCounters.size();
+    }
+
+    private String normalize(String username) {
+        return username.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.library_system.service;
+
+import com.example.library_system.repository.UserRepository;
+import com.example.library_system.security.PasswordHashingOverloadedException;
+import com.example.library_system.service.CustomUserDetailsService.CustomUserDetails;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Byter ut lösenordshashar med för låg kostnad i bakgrunden efter en lyckad inloggning,
+// så att kostnaden kan ändras utan en massmigrering av alla användare.
+@Service
+public class PasswordUpgradeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordUpgradeService.class);
+    private static final int QUEUE_CAPACITY = 100;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final LongAdder upgraded = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    // En enda bakgrundstråd räcker - uppgraderingar är inte brådskande
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+            runnable -> {
+                Thread thread = new Thread(runnable, "password-upgrade");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // Schemalägg ny hash om användarens lagrade hash har för låg kostnad
+    public void upgradeIfNeeded(CustomUserDetails user, String rawPassword) {
+        String currentHash = user.getPassword();
+        if (rawPassword == null || !passwordEncoder.upgradeEncoding(currentHash)) {
+            return;
+        }
+        if (!pending.add(user.getUserId())) {
+            return; // Redan schemalagd
+        }
+
+        try {
+            executor.execute(() -> upgrade(user.getUserId(), user.getUsername(), currentHash, rawPassword));
+        } catch (RejectedExecutionException e) {
+            pending.remove(user.getUserId());
+            skipped.increment(); // Görs vid nästa inloggning i stället
+        }
+    }
+
+    private void upgrade(Long userId, String email, String currentHash, String rawPassword) {
+        try {
+            String newHash = passwordEncoder.encode(rawPassword);
+
+            // Skriv bara om hashen inte har ändrats under tiden
+            if (userRepository.updatePasswordHash(userId, currentHash, newHash) == 1) {
+                userDetailsCache.invalidate(email);
+                upgraded.increment();
+                logger.debug("Password hash upgraded for user {}", email);
+            } else {
+                skipped.increment();
+            }
+        } catch (PasswordHashingOverloadedException e) {
+            skipped.increment(); // Poolen är upptagen av inloggningar - försök vid nästa inloggning
+        } catch (Exception e) {
+            skipped.increment();
+            logger.warn("Password hash upgrade failed for user {}: {}", email, e.getMessage());
+        } finally {
+            pending.remove(userId);
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("upgraded", upgraded.sum());
+        stats.put("skipped", skipped.sum());
+        stats.put("pending", pending.size());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
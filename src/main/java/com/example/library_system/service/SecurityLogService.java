@@ -4,10 +4,12 @@ import com.example.library_system.entity.SecurityLog;
 import com.example.library_system.entity.User;
 import com.example.library_system.repository.SecurityLogRepository;
 import com.example.library_system.repository.UserRepository;
+import com.example.library_system.service.CustomUserDetailsService.CustomUserDetails;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -27,6 +29,21 @@ public class SecurityLogService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private LoginAttemptService loginAttemptService;
+
+    @Autowired
+    private CredentialStuffingDetector credentialStuffingDetector;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private SecurityRollupService securityRollupService;
+
+    @Autowired
+    private LibraryMetrics libraryMetrics;
+
     // Logga säkerhetshändelse
     @Transactional
     public void logSecurityEvent(String eventType, String username, HttpServletRequest request,
@@ -43,6 +60,8 @@ public class SecurityLogService {
         }
 
         securityLogRepository.save(log);
+        securityRollupService.record(eventType, success, log.getIpAddress(), log.getEventTime());
+        libraryMetrics.securityLogWritten(eventType, success);
 
         // Logga även till fil
         if (success) {
@@ -54,15 +73,15 @@ public class SecurityLogService {
 
     // Logga lyckad inloggning
     @Transactional
-    public void logSuccessfulLogin(String username, HttpServletRequest request) {
-        logSecurityEvent(SecurityLog.LOGIN_SUCCESS, username, request, true, null);
+    public void logSuccessfulLogin(CustomUserDetails user, HttpServletRequest request) {
+        logSecurityEvent(SecurityLog.LOGIN_SUCCESS, user.getUsername(), request, true, null);
+        loginAttemptService.resetUser(user.getUsername());
+        if (request != null) {
+            credentialStuffingDetector.recordSuccess(getClientIP(request), user.getUsername());
+        }
 
-        // Uppdatera användarens senaste inloggning och återställ misslyckade försök
-        userRepository.findByEmail(username).ifPresent(user -> {
-            user.setLastLogin(LocalDateTime.now());
-            user.setFailedLoginAttempts(0);
-            userRepository.save(user);
-        });
+        // Uppdatera senaste inloggning och återställ misslyckade försök utan att läsa om användaren
+        userRepository.recordSuccessfulLogin(user.getUserId(), LocalDateTime.now());
     }
 
     // Logga misslyckad inloggning
@@ -70,21 +89,39 @@ public class SecurityLogService {
     public void logFailedLogin(String username, HttpServletRequest request, String reason) {
         logSecurityEvent(SecurityLog.LOGIN_FAILURE, username, request, false, reason);
 
-        // Uppdatera antal misslyckade försök
+        // Räkna försöket i minnet - databasen skrivs bara när gränsen passeras
+        String ipAddress = request != null ? getClientIP(request) : null;
+        long failedAttempts = loginAttemptService.recordFailure(username, ipAddress);
+
+        // Mata detektorn för besprutning över många konton från samma IP
+        if (credentialStuffingDetector.recordFailure(ipAddress, username)) {
+            logSecurityEvent(SecurityLog.CREDENTIAL_STUFFING, username, request, false,
+                    "IP blocked: " + credentialStuffingDetector.getEstimates(ipAddress));
+        }
+
+        if (failedAttempts < MAX_FAILED_ATTEMPTS) {
+            return;
+        }
+
         userRepository.findByEmail(username).ifPresent(user -> {
-            int failedAttempts = user.getFailedLoginAttempts() + 1;
-            user.setFailedLoginAttempts(failedAttempts);
-
-            if (failedAttempts >= MAX_FAILED_ATTEMPTS) {
-                // Lås kontot
-                user.setAccountNonLocked(false);
-                user.setLockTime(LocalDateTime.now());
-                logSecurityEvent(SecurityLog.ACCOUNT_LOCKED, username, request, true,
-                        "Account locked due to " + failedAttempts + " failed attempts");
-                logger.error("Account locked for user: {} after {} failed attempts", username, failedAttempts);
+            if (!user.isAccountNonLocked()) {
+                return; // Redan låst
             }
 
+            // Lås kontot
+            boolean untracked = failedAttempts == LoginAttemptService.UNTRACKED;
+            user.setFailedLoginAttempts(untracked ? MAX_FAILED_ATTEMPTS : (int) failedAttempts);
+            user.setAccountNonLocked(false);
+            user.setLockTime(LocalDateTime.now());
             userRepository.save(user);
+            userDetailsCache.invalidate(user.getEmail());
+            libraryMetrics.accountLocked();
+
+            String lockReason = untracked
+                    ? "Account locked: failed login tracking is full"
+                    : "Account locked due to " + failedAttempts + " failed attempts";
+            logSecurityEvent(SecurityLog.ACCOUNT_LOCKED, username, request, true, lockReason);
+            logger.error("{} (user: {})", lockReason, username);
         });
     }
 
@@ -118,6 +155,8 @@ public class SecurityLogService {
             user.setFailedLoginAttempts(0);
             user.setLockTime(null);
             userRepository.save(user);
+            loginAttemptService.resetUser(user.getEmail());
+            userDetailsCache.invalidate(user.getEmail());
 
             logSecurityEvent(SecurityLog.ACCOUNT_UNLOCKED, user.getEmail(), null, true,
                     "Account automatically unlocked after timeout");
@@ -127,13 +166,15 @@ public class SecurityLogService {
         return false;
     }
 
-    // Hämta IP-adress från request
-    private String getClientIP(HttpServletRequest request) {
-        String xfHeader = request.getHeader("X-Forwarded-For");
-        if (xfHeader == null) {
-            return request.getRemoteAddr();
-        }
-        return xfHeader.split(",")[0];
+    // Kontrollera om klientens IP-adress har för många misslyckade inloggningar
+    public boolean isClientBlocked(HttpServletRequest request) {
+        return request != null && loginAttemptService.isIpBlocked(getClientIP(request));
+    }
+
+    // Hämta IP-adress från request. X-Forwarded-For läses bara av Tomcats RemoteIpValve och bara
+    // från betrodda proxyer (server.tomcat.remoteip.internal-proxies) - klienten kan inte välja sin IP.
+    public String getClientIP(HttpServletRequest request) {
+        return request.getRemoteAddr();
     }
 
     // Hämta säkerhetsloggar för en användare
@@ -141,9 +182,32 @@ public class SecurityLogService {
         return securityLogRepository.findByUsernameOrderByEventTimeDesc(username);
     }
 
-    // Hämta alla säkerhetsloggar inom en tidsperiod
-    public List<SecurityLog> getSecurityLogsBetween(LocalDateTime start, LocalDateTime end) {
-        return securityLogRepository.findByEventTimeBetweenOrderByEventTimeDesc(start, end);
+    // Hämta en sida säkerhetsloggar, nyast först. Nästa sida hämtas med det sista log-ID:t som cursor.
+    public List<SecurityLog> getSecurityLogPage(Long beforeLogId, int limit, String eventType) {
+        long cursor = beforeLogId != null ? beforeLogId : Long.MAX_VALUE;
+        PageRequest page = PageRequest.of(0, limit);
+        if (eventType != null && !eventType.isEmpty()) {
+            return securityLogRepository.findByEventTypeAndLogIdLessThanOrderByLogIdDesc(eventType, cursor, page);
+        }
+        return securityLogRepository.findByLogIdLessThanOrderByLogIdDesc(cursor, page);
+    }
+
+    // Hämta en sida säkerhetsloggar inom en tidsperiod, valfritt filtrerat på händelsetyp
+    public List<SecurityLog> getSecurityLogsBetween(LocalDateTime start, LocalDateTime end,
+                                                    Long beforeLogId, int limit, String eventType) {
+        long cursor = beforeLogId != null ? beforeLogId : Long.MAX_VALUE;
+        PageRequest page = PageRequest.of(0, limit);
+        if (eventType != null && !eventType.isEmpty()) {
+            return securityLogRepository.findByEventTypeAndEventTimeBetweenAndLogIdLessThanOrderByLogIdDesc(
+                    eventType, start, end, cursor, page);
+        }
+        return securityLogRepository.findByEventTimeBetweenAndLogIdLessThanOrderByLogIdDesc(
+                start, end, cursor, page);
+    }
+
+    // Misslyckade inloggningsförsök inom det glidande fönstret (läses från minnet)
+    public long getRecentFailedAttempts(String username) {
+        return loginAttemptService.getFailedAttempts(username);
     }
 
     // Räkna misslyckade inloggningsförsök
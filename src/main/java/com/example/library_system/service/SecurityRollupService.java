@@ -0,0 +1,225 @@
+package com.example.library_system.service;
+
+import com.example.library_system.entity.SecurityEventRollup;
+import com.example.library_system.entity.SecurityIpRollup;
+import com.example.library_system.repository.SecurityEventRollupRepository;
+import com.example.library_system.repository.SecurityIpRollupRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Räknar säkerhetshändelser per minut och per timme i minnet och skriver
+// ändringarna till rollup-tabellerna med jämna mellanrum. Dashboarden kan då
+// läsa några hundra aggregerade rader i stället för alla råa händelser.
+@Service
+public class SecurityRollupService {
+
+    // IP-adresser utöver gränsen räknas under denna nyckel
+    public static final String OTHER_IPS = "*";
+
+    @Autowired
+    private SecurityEventRollupRepository eventRollupRepository;
+
+    @Autowired
+    private SecurityIpRollupRepository ipRollupRepository;
+
+    @Value("${security.rollup.max-ips-per-flush:1000}")
+    private int maxIpsPerFlush;
+
+    @Value("${security.rollup.minute-retention-hours:48}")
+    private long minuteRetentionHours;
+
+    @Value("${security.rollup.hour-retention-days:90}")
+    private long hourRetentionDays;
+
+    private record EventKey(String granularity, LocalDateTime bucketStart, String eventType, boolean success) {
+    }
+
+    private record IpKey(String granularity, LocalDateTime bucketStart, String ipAddress) {
+    }
+
+    private record IpCounts(AtomicLong events, AtomicLong failures) {
+    }
+
+    private final Map<EventKey, AtomicLong> pendingEvents = new ConcurrentHashMap<>();
+    private final Map<IpKey, IpCounts> pendingIps = new ConcurrentHashMap<>();
+
+    // En rad per hink: det unika indexet gör att increment() och intervallfrågorna inte skannar tabellen
+    // och att en dubblett inte kan smyga in. Dubbletter från före indexet slås ihop först så inga räkningar tappas.
+    // Därför läggs indexet upp här och inte med @Index: schemauppdateringen körs innan dubbletterna är
+    // sammanslagna, och ett unikt index går inte att skapa så länge de finns.
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void ensureBucketIndexes() {
+        if (eventRollupRepository.mergeDuplicateBuckets() > 0) {
+            eventRollupRepository.deleteDuplicateBuckets();
+        }
+        eventRollupRepository.createBucketIndex();
+
+        if (ipRollupRepository.mergeDuplicateBuckets() > 0) {
+            ipRollupRepository.deleteDuplicateBuckets();
+        }
+        ipRollupRepository.createBucketIndex();
+    }
+
+    // Registrera en händelse (anropas för varje säkerhetslogg)
+    public void record(String eventType, boolean success, String ipAddress, LocalDateTime eventTime) {
+        LocalDateTime minute = eventTime.truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime hour = eventTime.truncatedTo(ChronoUnit.HOURS);
+
+        pendingEvents.computeIfAbsent(new EventKey(SecurityEventRollup.MINUTE, minute, eventType, success),
+                k -> new AtomicLong()).incrementAndGet();
+        pendingEvents.computeIfAbsent(new EventKey(SecurityEventRollup.HOUR, hour, eventType, success),
+                k -> new AtomicLong()).incrementAndGet();
+
+        if (ipAddress != null) {
+            recordIp(SecurityEventRollup.MINUTE, minute, ipAddress, success);
+            recordIp(SecurityEventRollup.HOUR, hour, ipAddress, success);
+        }
+    }
+
+    private void recordIp(String granularity, LocalDateTime bucketStart, String ipAddress, boolean success) {
+        IpKey key = new IpKey(granularity, bucketStart, ipAddress);
+        IpCounts counts = pendingIps.get(key);
+        if (counts == null) {
+            // Begränsa minnet när många olika adresser dyker upp samtidigt
+            if (pendingIps.size() >= maxIpsPerFlush) {
+                key = new IpKey(granularity, bucketStart, OTHER_IPS);
+            }
+            counts = pendingIps.computeIfAbsent(key, k -> new IpCounts(new AtomicLong(), new AtomicLong()));
+        }
+        counts.events().incrementAndGet();
+        if (!success) {
+            counts.failures().incrementAndGet();
+        }
+    }
+
+    // Skriv ackumulerade ändringar till databasen i en transaktion.
+    // Bara schemaläggaren anropar flush, så uppdatera-annars-skapa kan inte krocka med sig själv.
+    // Rullas transaktionen tillbaka läggs de uttagna räkningarna tillbaka till nästa flush.
+    @Scheduled(fixedDelayString = "${security.rollup.flush-interval-ms:10000}")
+    @Transactional
+    public void flush() {
+        // Hinkar som är äldre än så får inga fler skrivningar och kan tas bort ur minnet
+        LocalDateTime closedBefore = LocalDateTime.now().minusMinutes(2);
+
+        Map<EventKey, Long> flushedEvents = new HashMap<>();
+        Map<IpKey, long[]> flushedIps = new HashMap<>();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    restore(flushedEvents, flushedIps);
+                }
+            }
+        });
+
+        for (Map.Entry<EventKey, AtomicLong> entry : pendingEvents.entrySet()) {
+            EventKey key = entry.getKey();
+            long delta = entry.getValue().getAndSet(0);
+            if (delta > 0) {
+                flushedEvents.put(key, delta);
+                if (eventRollupRepository.increment(key.granularity(), key.bucketStart(),
+                        key.eventType(), key.success(), delta) == 0) {
+                    SecurityEventRollup rollup = new SecurityEventRollup();
+                    rollup.setGranularity(key.granularity());
+                    rollup.setBucketStart(key.bucketStart());
+                    rollup.setEventType(key.eventType());
+                    rollup.setSuccess(key.success());
+                    rollup.setEventCount(delta);
+                    eventRollupRepository.save(rollup);
+                }
+            }
+            if (isClosed(key.granularity(), key.bucketStart(), closedBefore)) {
+                pendingEvents.remove(key, entry.getValue());
+            }
+        }
+
+        for (Map.Entry<IpKey, IpCounts> entry : pendingIps.entrySet()) {
+            IpKey key = entry.getKey();
+            long events = entry.getValue().events().getAndSet(0);
+            long failures = entry.getValue().failures().getAndSet(0);
+            if (events > 0) {
+                flushedIps.put(key, new long[] {events, failures});
+                if (ipRollupRepository.increment(key.granularity(), key.bucketStart(), key.ipAddress(),
+                        events, failures) == 0) {
+                    SecurityIpRollup rollup = new SecurityIpRollup();
+                    rollup.setGranularity(key.granularity());
+                    rollup.setBucketStart(key.bucketStart());
+                    rollup.setIpAddress(key.ipAddress());
+                    rollup.setEventCount(events);
+                    rollup.setFailureCount(failures);
+                    ipRollupRepository.save(rollup);
+                }
+            }
+            if (isClosed(key.granularity(), key.bucketStart(), closedBefore)) {
+                pendingIps.remove(key, entry.getValue());
+            }
+        }
+    }
+
+    private void restore(Map<EventKey, Long> flushedEvents, Map<IpKey, long[]> flushedIps) {
+        flushedEvents.forEach((key, delta) ->
+                pendingEvents.computeIfAbsent(key, k -> new AtomicLong()).addAndGet(delta));
+        flushedIps.forEach((key, counts) -> {
+            IpCounts pending = pendingIps.computeIfAbsent(key, k -> new IpCounts(new AtomicLong(), new AtomicLong()));
+            pending.events().addAndGet(counts[0]);
+            pending.failures().addAndGet(counts[1]);
+        });
+    }
+
+    // Rensa gamla rollups en gång i timmen
+    @Scheduled(cron = "0 5 * * * *")
+    @Transactional
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        eventRollupRepository.deleteOlderThan(SecurityEventRollup.MINUTE, now.minusHours(minuteRetentionHours));
+        eventRollupRepository.deleteOlderThan(SecurityEventRollup.HOUR, now.minusDays(hourRetentionDays));
+        ipRollupRepository.deleteOlderThan(SecurityEventRollup.MINUTE, now.minusHours(minuteRetentionHours));
+        ipRollupRepository.deleteOlderThan(SecurityEventRollup.HOUR, now.minusDays(hourRetentionDays));
+    }
+
+    // Hämta rollups för ett tidsintervall
+    public List<SecurityEventRollup> getRollups(String granularity, LocalDateTime from, LocalDateTime to) {
+        return eventRollupRepository
+                .findByGranularityAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStartAsc(
+                        granularity, from, to);
+    }
+
+    // Hämta de IP-adresser som har flest misslyckade händelser
+    public List<Map<String, Object>> getTopIps(String granularity, LocalDateTime from, LocalDateTime to, int limit) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Object[] row : ipRollupRepository.findTopIps(granularity, from, to, PageRequest.of(0, limit))) {
+            Map<String, Object> ip = new LinkedHashMap<>();
+            ip.put("ipAddress", row[0]);
+            ip.put("events", row[1]);
+            ip.put("failures", row[2]);
+            result.add(ip);
+        }
+        return result;
+    }
+
+    private boolean isClosed(String granularity, LocalDateTime bucketStart, LocalDateTime closedBefore) {
+        LocalDateTime bucketEnd = SecurityEventRollup.HOUR.equals(granularity)
+                ? bucketStart.plusHours(1)
+                : bucketStart.plusMinutes(1);
+        return bucketEnd.isBefore(closedBefore);
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.library_system.service;
+
+import com.example.library_system.entity.RevokedToken;
+import com.example.library_system.repository.RevokedTokenRepository;
+import com.example.library_system.service.CustomUserDetailsService.CustomUserDetails;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Utfärdar och validerar HMAC-signerade sessionstokens för tillståndslöst läge.
+// En token innehåller användar-ID, email, roller och utgångstid och kan valideras
+// utan databas eller HttpSession, så vilken nod som helst kan hantera anropet.
+// Spärrade tokens sparas i databasen och synkas in i en lokal spärrlista på varje nod.
+@Service
+public class SessionTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionTokenService.class);
+    private static final String VERSION = "v1";
+    private static final String ALGORITHM = "HmacSHA256";
+
+    @Value("${security.session.mode:stateful}")
+    private String sessionMode;
+
+    // Format: kid1:base64-nyckel,kid2:base64-nyckel
+    @Value("${security.token.keys:}")
+    private String configuredKeys;
+
+    @Value("${security.token.active-key:}")
+    private String activeKeyId;
+
+    @Value("${security.token.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    @Value("${security.token.cookie-name:LIBRARY_TOKEN}")
+    private String cookieName;
+
+    @Value("${security.token.max-revoked:10000}")
+    private int maxRevoked;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private final Map<String, byte[]> keys = new HashMap<>();
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile long lastRevocationSeq;
+    // Senaste utgångstid bland spärrar som trängts ut ur den fulla spärrlistan medan de fortfarande gällde.
+    // Tokens som går ut senast då frågas mot databasen, som har alla spärrar.
+    private volatile long evictedUntil;
+
+    // Innehållet i en giltig token
+    public record TokenClaims(Long userId, String email, List<String> roles, long expiresAt, String tokenId) {
+    }
+
+    @PostConstruct
+    void loadKeys() {
+        for (String entry : configuredKeys.split(",")) {
+            String[] parts = entry.trim().split(":", 2);
+            if (parts.length == 2 && !parts[0].isBlank()) {
+                keys.put(parts[0].trim(), Base64.getDecoder().decode(parts[1].trim()));
+            }
+        }
+
+        if (keys.isEmpty()) {
+            // En genererad nyckel dör med processen och gäller bara på en nod - tokens
+            // skulle sluta fungera vid varje omstart, så tillståndslöst läge kräver delade nycklar
+            if (isStateless()) {
+                throw new IllegalStateException("security.token.keys must be configured in stateless session mode");
+            }
+            byte[] key = new byte[32];
+            new SecureRandom().nextBytes(key);
+            keys.put("generated", key);
+            activeKeyId = "generated";
+        } else if (activeKeyId.isBlank() || !keys.containsKey(activeKeyId)) {
+            throw new IllegalStateException("security.token.active-key must name one of security.token.keys");
+        }
+
+        // Läs in spärrar från databasen innan första anropet valideras
+        syncRevocations();
+    }
+
+    public boolean isStateless() {
+        return "stateless".equalsIgnoreCase(sessionMode);
+    }
+
+    public String getCookieName() {
+        return cookieName;
+    }
+
+    public long getTtlSeconds() {
+        return ttlMinutes * 60;
+    }
+
+    // Skapa en signerad token för användaren
+    public String issueToken(CustomUserDetails user) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("uid", user.getUserId());
+        payload.put("sub", user.getUsername());
+        payload.put("roles", user.getRoleNames());
+        payload.put("exp", System.currentTimeMillis() / 1000 + getTtlSeconds());
+        payload.put("jti", UUID.randomUUID().toString());
+
+        try {
+            String encodedPayload = base64(objectMapper.writeValueAsBytes(payload));
+            String signedPart = VERSION + "." + activeKeyId + "." + encodedPayload;
+            return signedPart + "." + base64(sign(keys.get(activeKeyId), signedPart));
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not create session token", e);
+        }
+    }
+
+    // Validera signatur, utgångstid och spärrlista. Returnerar null för ogiltiga tokens.
+    public TokenClaims validate(String token) {
+        if (token == null) {
+            return null;
+        }
+        String[] parts = token.split("\\.");
+        if (parts.length != 4 || !VERSION.equals(parts[0])) {
+            return null;
+        }
+
+        byte[] key = keys.get(parts[1]);
+        if (key == null) {
+            return null; // Okänd eller borttagen nyckel
+        }
+
+        try {
+            String signedPart = parts[0] + "." + parts[1] + "." + parts[2];
+            byte[] expected = sign(key, signedPart);
+            if (!MessageDigest.isEqual(expected, Base64.getUrlDecoder().decode(parts[3]))) {
+                return null;
+            }
+
+            Map<?, ?> payload = objectMapper.readValue(Base64.getUrlDecoder().decode(parts[2]), Map.class);
+            long expiresAt = ((Number) payload.get("exp")).longValue();
+            String tokenId = (String) payload.get("jti");
+            if (expiresAt < System.currentTimeMillis() / 1000 || isRevoked(tokenId, expiresAt)) {
+                return null;
+            }
+
+            List<String> roles = ((List<?>) payload.get("roles")).stream().map(String::valueOf).toList();
+            return new TokenClaims(((Number) payload.get("uid")).longValue(), (String) payload.get("sub"),
+                    roles, expiresAt, tokenId);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // Hämta token från Authorization-headern eller cookien
+    public String extractToken(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        if (header != null && header.startsWith("Bearer ")) {
+            return header.substring(7);
+        }
+        if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (cookieName.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    // Spärra en token fram till att den ändå går ut. Spärren sparas så att den
+    // gäller på alla noder (efter nästa synkning) och överlever omstarter.
+    public void revoke(String token) {
+        TokenClaims claims = validate(token);
+        if (claims == null) {
+            return;
+        }
+
+        if (!revokedTokenRepository.existsByTokenId(claims.tokenId())) {
+            revokedTokenRepository.save(new RevokedToken(claims.tokenId(), claims.expiresAt()));
+        }
+        remember(claims.tokenId(), claims.expiresAt());
+    }
+
+    // Hämta spärrar som andra noder har lagt till sedan förra synkningen
+    @Scheduled(fixedDelayString = "${security.token.revocation-sync-millis:5000}")
+    public void syncRevocations() {
+        if (!isStateless()) {
+            return;
+        }
+        long now = System.currentTimeMillis() / 1000;
+        for (RevokedToken revokedToken : revokedTokenRepository
+                .findByRevocationSeqGreaterThanOrderByRevocationSeqAsc(lastRevocationSeq)) {
+            if (revokedToken.getExpiresAt() >= now) {
+                remember(revokedToken.getTokenId(), revokedToken.getExpiresAt());
+            }
+            lastRevocationSeq = revokedToken.getRevocationSeq();
+        }
+    }
+
+    // Utgångna spärrar behövs inte längre - tokenen avvisas ändå på utgångstiden
+    @Scheduled(cron = "0 15 * * * *")
+    public void pruneRevocations() {
+        if (!isStateless()) {
+            return;
+        }
+        int removed = revokedTokenRepository.deleteExpired(System.currentTimeMillis() / 1000);
+        if (removed > 0) {
+            logger.debug("Pruned {} expired token revocations", removed);
+        }
+    }
+
+    private boolean isRevoked(String tokenId, long expiresAt) {
+        if (revoked.containsKey(tokenId)) {
+            return true;
+        }
+        // Utträngda spärrar går ut senast evictedUntil, så senare tokens kan inte vara bland dem
+        return expiresAt <= evictedUntil && revokedTokenRepository.existsByTokenId(tokenId);
+    }
+
+    private void remember(String tokenId, long expiresAt) {
+        if (revoked.size() >= maxRevoked) {
+            long now = System.currentTimeMillis() / 1000;
+            revoked.values().removeIf(expiry -> expiry < now);
+            if (revoked.size() >= maxRevoked) {
+                revoked.entrySet().stream()
+                        .min(Comparator.comparingLong(Map.Entry::getValue))
+                        .ifPresent(oldest -> {
+                            evictedUntil = Math.max(evictedUntil, oldest.getValue());
+                            revoked.remove(oldest.getKey());
+                        });
+            }
+        }
+        revoked.put(tokenId, expiresAt);
+    }
+
+    public int getRevokedCount() {
+        return revoked.size();
+    }
+
+    private byte[] sign(byte[] key, String data) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(ALGORITHM);
+        mac.init(new SecretKeySpec(key, ALGORITHM));
+        return mac.doFinal(data.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String base64(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.library_system.service;
+
+import com.example.library_system.service.CustomUserDetailsService.CustomUserDetails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Begränsad cache med TTL för inloggningsuppgifter, så att varje autentisering
+// inte behöver läsa användaren och dess roller från databasen.
+// Måste invalideras när användaren ändras (uppgifter, roller, låsning).
+@Component
+public class UserDetailsCache {
+
+    @Value("${security.user-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${security.user-cache.max-size:10000}")
+    private int maxSize;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private record Entry(CustomUserDetails details, long expiresAt) {
+    }
+
+    public CustomUserDetails get(String email) {
+        if (email == null) {
+            return null;
+        }
+        Entry entry = entries.get(email);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            entries.remove(email, entry);
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.details();
+    }
+
+    public void put(CustomUserDetails details) {
+        long now = System.currentTimeMillis();
+        if (entries.size() >= maxSize) {
+            evict(now);
+        }
+        entries.put(details.getUsername(), new Entry(details, now + ttlSeconds * 1000));
+    }
+
+    // Ta bort en användare ur cachen
+    public void invalidate(String email) {
+        if (email != null && entries.remove(email) != null) {
+            invalidations.increment();
+        }
+    }
+
+    // Töm hela cachen (t.ex. vid ändringar som rör många användare)
+    public void invalidateAll() {
+        invalidations.add(entries.size());
+        entries.clear();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", ttlSeconds);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("hitRatio", getHitRatio());
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    private synchronized void evict(long now) {
+        if (entries.size() < maxSize) {
+            return;
+        }
+
+        int before = entries.size();
+        entries.values().removeIf(entry -> entry.expiresAt() < now);
+
+        // Fortfarande fullt - ta bort de poster som går ut först
+        if (entries.size() >= maxSize) {
+            int overflow = entries.size() - maxSize + Math.max(1, maxSize / 10);
+            entries.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().expiresAt()))
+                    .limit(overflow)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(entries::remove);
+        }
+        evictions.add(before - entries.size());
+    }
+}
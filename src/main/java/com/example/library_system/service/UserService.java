@@ -17,6 +17,12 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private LibraryStatisticsService libraryStatistics;
+
     // Konvertera User till UserDTO
     private UserDTO convertToDTO(User user) {
         UserDTO dto = new UserDTO();
@@ -60,6 +66,7 @@ public class UserService {
         }
 
         User savedUser = userRepository.save(user);
+        libraryStatistics.increment(LibraryStatisticsService.Count.USERS);
         return convertToDTO(savedUser);
     }
 
@@ -68,6 +75,7 @@ public class UserService {
         Optional<User> optionalUser = userRepository.findById(id);
         if (optionalUser.isPresent()) {
             User user = optionalUser.get();
+            userDetailsCache.invalidate(user.getEmail());
             user.setFirstName(userDetails.getFirstName());
             user.setLastName(userDetails.getLastName());
 
@@ -85,6 +93,7 @@ public class UserService {
             }
 
             User savedUser = userRepository.save(user);
+            userDetailsCache.invalidate(savedUser.getEmail());
             return convertToDTO(savedUser);
         }
         return null;
@@ -92,8 +101,11 @@ public class UserService {
 
     // Ta bort användare
     public boolean deleteUser(Long id) {
-        if (userRepository.existsById(id)) {
+        Optional<User> optionalUser = userRepository.findById(id);
+        if (optionalUser.isPresent()) {
             userRepository.deleteById(id);
+            libraryStatistics.decrement(LibraryStatisticsService.Count.USERS);
+            userDetailsCache.invalidate(optionalUser.get().getEmail());
             return true;
         }
         return false;
@@ -42,7 +42,7 @@ async function loadBooks() {
     contentArea.innerHTML = '<div class="text-center"><div class="spinner-border" role="status"></div></div>';
 
     try {
-        const response = await authenticatedFetch('/books');
+        const response = await authenticatedFetch('/books?fields=bookId,title,publicationYear,availableCopies,totalCopies');
 
         if (!response) return;
 
@@ -70,7 +70,7 @@ async function loadBooks() {
         books.forEach(book => {
             const available = book.availableCopies > 0;
             html += `
-                <tr>
+                <tr data-book-id="${book.bookId}">
                     <td>${book.title}</td>
                     <td>${book.publicationYear || '-'}</td>
                     <td>
@@ -97,6 +97,7 @@ async function loadBooks() {
         `;
 
         contentArea.innerHTML = html;
+        subscribeAvailability();
 
     } catch (error) {
         console.error('Error loading books:', error);
@@ -104,6 +105,32 @@ async function loadBooks() {
     }
 }
 
+// Live-uppdatering av tillgängliga exemplar via SSE (EventSource återansluter själv med Last-Event-ID)
+let availabilitySource = null;
+
+function subscribeAvailability() {
+    if (availabilitySource) {
+        availabilitySource.close();
+    }
+    availabilitySource = new EventSource('/books/availability/stream');
+    availabilitySource.addEventListener('availability', event => updateAvailability(JSON.parse(event.data)));
+    availabilitySource.addEventListener('snapshot', event => JSON.parse(event.data).forEach(updateAvailability));
+}
+
+function updateAvailability(change) {
+    const row = document.querySelector(`#booksTable tr[data-book-id="${change.bookId}"]`);
+    if (!row) return;
+
+    const available = change.availableCopies > 0;
+    const badge = row.querySelector('.badge');
+    badge.className = `badge ${available ? 'bg-success' : 'bg-danger'}`;
+    badge.textContent = change.availableCopies;
+
+    const button = row.querySelector('button');
+    button.disabled = !available;
+    button.textContent = available ? 'Låna' : 'Slut';
+}
+
 // Filtrera böcker
 function filterBooks() {
     const searchValue = document.getElementById('searchBooks').value.toLowerCase();
@@ -156,18 +183,21 @@ async function borrowBook(bookId) {
 }
 
 // Ladda lån
-async function loadLoans() {
+// Lånen hämtas med titel och författare i ett anrop, en sida i taget (before = sista loanId)
+async function loadLoans(before) {
     const contentArea = document.getElementById('contentArea');
     contentArea.innerHTML = '<div class="text-center"><div class="spinner-border" role="status"></div></div>';
 
     const user = await checkAuth();
 
     try {
-        const response = await authenticatedFetch(`/users/${user.userId || 1}/loans`);
+        const cursor = before ? `&before=${before}` : '';
+        const response = await authenticatedFetch(`/users/${user.userId || 1}/loans/details?limit=20${cursor}`);
 
         if (!response) return;
 
-        const loans = await response.json();
+        const page = await response.json();
+        const loans = page.items;
 
         let html = `
             <h3>Mina lån</h3>
@@ -176,7 +206,8 @@ async function loadLoans() {
                     <thead>
                         <tr>
                             <th>Lån ID</th>
-                            <th>Bok ID</th>
+                            <th>Bok</th>
+                            <th>Författare</th>
                             <th>Lånad datum</th>
                             <th>Återlämnas senast</th>
                             <th>Status</th>
@@ -193,7 +224,8 @@ async function loadLoans() {
             html += `
                 <tr class="${isOverdue ? 'table-danger' : ''}">
                     <td>${loan.loanId}</td>
-                    <td>${loan.bookId}</td>
+                    <td>${loan.title || loan.bookId}</td>
+                    <td>${[loan.authorFirstName, loan.authorLastName].filter(Boolean).join(' ')}</td>
                     <td>${formatDate(loan.borrowedDate)}</td>
                     <td>${formatDate(loan.dueDate)}</td>
                     <td>
@@ -226,7 +258,16 @@ async function loadLoans() {
             </div>
         `;
 
-        if (loans.length === 0) {
+        if (before || page.nextCursor) {
+            html += `
+                <div class="d-flex gap-2">
+                    ${before ? `<button class="btn btn-sm btn-outline-secondary" onclick="loadLoans()">Första sidan</button>` : ''}
+                    ${page.nextCursor ? `<button class="btn btn-sm btn-outline-primary" onclick="loadLoans(${page.nextCursor})">Nästa sida</button>` : ''}
+                </div>
+            `;
+        }
+
+        if (loans.length === 0 && !before) {
             html = '<div class="alert alert-info">Du har inga aktiva lån</div>';
         }
 
@@ -529,16 +570,122 @@ async function deleteUser(userId) {
 // Ladda säkerhetsloggar
 async function loadSecurityLogs() {
     const adminContent = document.getElementById('adminContent');
+    adminContent.innerHTML = '<div class="spinner-border" role="status"></div>';
 
-    adminContent.innerHTML = `
-        <h4>Säkerhetsloggar</h4>
-        <div class="alert alert-info">
-            <strong>CSRF-skydd:</strong> Säkerhetsloggar visar inloggningsförsök, registreringar och andra säkerhetshändelser.
-            Alla admin-åtkomster är skyddade med CSRF-tokens.
-            <br><br>För fullständiga loggar, se filen: <code>logs/library-system.log</code>
-        </div>
-        <p>Denna funktion kräver ytterligare implementation av en endpoint för att hämta säkerhetsloggar.</p>
-    `;
+    try {
+        // Sammanfattning från förräknade rollups i stället för alla råa händelser
+        const [rollupsRes, topIpsRes] = await Promise.all([
+            authenticatedFetch('/api/admin/security-logs/rollups?granularity=HOUR&hours=24'),
+            authenticatedFetch('/api/admin/security-logs/top-ips?granularity=HOUR&hours=24&limit=5')
+        ]);
+
+        if (!rollupsRes || !topIpsRes) return;
+
+        const rollups = await rollupsRes.json();
+        const topIps = await topIpsRes.json();
+
+        const totals = {};
+        rollups.forEach(r => {
+            const key = r.eventType + (r.success ? '' : ' (misslyckad)');
+            totals[key] = (totals[key] || 0) + r.eventCount;
+        });
+
+        let html = `
+            <h4>Säkerhetsloggar</h4>
+            <div class="row mb-3">
+                <div class="col-md-6">
+                    <h6>Senaste 24 timmarna</h6>
+                    <ul class="list-group">
+                        ${Object.keys(totals).map(key => `
+                            <li class="list-group-item d-flex justify-content-between">
+                                <span>${escapeHtml(key)}</span><span class="badge bg-secondary">${totals[key]}</span>
+                            </li>
+                        `).join('') || '<li class="list-group-item">Inga händelser</li>'}
+                    </ul>
+                </div>
+                <div class="col-md-6">
+                    <h6>IP-adresser med flest misslyckanden</h6>
+                    <ul class="list-group">
+                        ${topIps.map(ip => `
+                            <li class="list-group-item d-flex justify-content-between">
+                                <span>${escapeHtml(ip.ipAddress)}</span><span class="badge bg-danger">${ip.failures}</span>
+                            </li>
+                        `).join('') || '<li class="list-group-item">Inga misslyckanden</li>'}
+                    </ul>
+                </div>
+            </div>
+            <div class="table-responsive">
+                <table class="table table-hover table-sm">
+                    <thead>
+                        <tr>
+                            <th>Tid</th>
+                            <th>Händelse</th>
+                            <th>Användare</th>
+                            <th>IP</th>
+                            <th>Status</th>
+                        </tr>
+                    </thead>
+                    <tbody id="securityLogRows"></tbody>
+                </table>
+            </div>
+            <button class="btn btn-outline-secondary" id="loadMoreLogs" onclick="loadMoreSecurityLogs()">Ladda fler</button>
+        `;
+
+        adminContent.innerHTML = html;
+        securityLogCursor = null;
+        await loadMoreSecurityLogs();
+
+    } catch (error) {
+        console.error('Error loading security logs:', error);
+        adminContent.innerHTML = '<div class="alert alert-danger">Kunde inte ladda säkerhetsloggar</div>';
+    }
+}
+
+// Värden från servern som ska in i HTML-mallar
+function escapeHtml(value) {
+    return String(value ?? '')
+        .replace(/&/g, '&amp;')
+        .replace(/</g, '&lt;')
+        .replace(/>/g, '&gt;')
+        .replace(/"/g, '&quot;')
+        .replace(/'/g, '&#39;');
+}
+
+// Cursor för nästa sida säkerhetsloggar
+let securityLogCursor = null;
+
+// Ladda nästa sida säkerhetsloggar
+async function loadMoreSecurityLogs() {
+    const url = '/api/admin/security-logs?limit=50' + (securityLogCursor ? `&before=${securityLogCursor}` : '');
+    const response = await authenticatedFetch(url);
+
+    if (!response) return;
+
+    const page = await response.json();
+    const rows = document.getElementById('securityLogRows');
+
+    // Användarnamn och orsak kommer från vem som helst som försöker logga in - bara som text
+    page.items.forEach(log => {
+        const row = document.createElement('tr');
+        if (!log.success) {
+            row.className = 'table-warning';
+        }
+        [
+            new Date(log.eventTime).toLocaleString('sv-SE'),
+            log.eventType,
+            log.username || '-',
+            log.ipAddress || '-',
+            log.success ? 'OK' : (log.failureReason || 'Misslyckad')
+        ].forEach(value => {
+            const cell = document.createElement('td');
+            cell.textContent = value;
+            row.appendChild(cell);
+        });
+        rows.appendChild(row);
+    });
+
+    securityLogCursor = page.nextCursor;
+    document.getElementById('loadMoreLogs').style.display = securityLogCursor ? '' : 'none';
 }
 
 // Ladda alla lån
@@ -731,37 +878,18 @@ async function sendReminder(loanId) {
     }
 }
 
-// Ladda admin statistik
+// Ladda admin statistik - räknarna hålls på servern, så det räcker med ett litet anrop
 async function loadAdminStatistics() {
     try {
-        // Hämta statistik från olika endpoints
-        const [booksRes, usersRes, loansRes, authorsRes] = await Promise.all([
-            authenticatedFetch('/books'),
-            authenticatedFetch('/users'),
-            authenticatedFetch('/loans'),
-            authenticatedFetch('/authors')
-        ]);
-
-        if (booksRes) {
-            const books = await booksRes.json();
-            document.getElementById('bookCount').textContent = books.length;
-        }
-
-        if (usersRes) {
-            const users = await usersRes.json();
-            document.getElementById('userCount').textContent = users.length;
-        }
+        const response = await authenticatedFetch('/api/admin/stats');
 
-        if (loansRes) {
-            const loans = await loansRes.json();
-            const activeLoans = loans.filter(l => !l.returnedDate);
-            document.getElementById('loanCount').textContent = activeLoans.length;
-        }
+        if (!response) return;
 
-        if (authorsRes) {
-            const authors = await authorsRes.json();
-            document.getElementById('authorCount').textContent = authors.length;
-        }
+        const stats = await response.json();
+        document.getElementById('bookCount').textContent = stats.books;
+        document.getElementById('userCount').textContent = stats.users;
+        document.getElementById('loanCount').textContent = stats.activeLoans;
+        document.getElementById('authorCount').textContent = stats.authors;
 
     } catch (error) {
         console.error('Error loading statistics:', error);
@@ -0,0 +1,139 @@
+package com.example.library_system.startup;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Mäter tid till första lyckade anrop (GET /api/auth/csrf, hela säkerhetskedjan + MVC + Jackson)
+// från att JVM-processen startas, för vanlig jar, Spring AOT och AppCDS + AOT.
+// Varje variant körs flera gånger mot en egen kopia av databasen; första körningen seedar och räknas inte.
+public class StartupBenchmark {
+
+    private static final String JAVA = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+    // Konfiguration - sätts med -Dstartup.* (se profilen fast-startup i pom.xml)
+    private final Path jar = Path.of(System.getProperty("startup.jar", "target/library-system-0.0.1-SNAPSHOT.jar"));
+    private final Path extractedJar = Path.of(System.getProperty("startup.extractedJar", "target/app/library-system-0.0.1-SNAPSHOT.jar"));
+    private final Path cdsArchive = Path.of(System.getProperty("startup.cdsArchive", "target/app/application.jsa"));
+    private final Path sourceDb = Path.of(System.getProperty("startup.sourceDb", "bibblan.db"));
+    private final Path outputFile = Path.of(System.getProperty("startup.outputFile", "target/startup/summary.csv"));
+    private final int runs = Integer.getInteger("startup.runs", 5);
+    private final int timeoutSeconds = Integer.getInteger("startup.timeoutSeconds", 60);
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+
+    public static void main(String[] args) throws Exception {
+        new StartupBenchmark().run();
+    }
+
+    void run() throws Exception {
+        Map<String, List<String>> variants = new LinkedHashMap<>();
+        variants.put("jar", List.of("-jar", jar.toString()));
+        variants.put("aot", List.of("-Dspring.aot.enabled=true", "-jar", jar.toString()));
+        if (Files.exists(cdsArchive)) {
+            variants.put("cds+aot", List.of("-XX:SharedArchiveFile=" + cdsArchive, "-Dspring.aot.enabled=true",
+                    "-jar", extractedJar.toString()));
+        } else {
+            System.out.println("No CDS archive at " + cdsArchive + ", skipping cds+aot");
+        }
+
+        Files.createDirectories(outputFile.getParent());
+        Map<String, long[]> results = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+            Path database = Files.createTempFile("library-startup", ".db");
+            Files.copy(sourceDb, database, StandardCopyOption.REPLACE_EXISTING);
+
+            // Uppvärmningsstart: seedar databasen och värmer filsystemets cache
+            measure(variant.getValue(), database);
+
+            long[] millis = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                millis[i] = measure(variant.getValue(), database);
+                System.out.printf("%-8s run %d: %d ms%n", variant.getKey(), i + 1, millis[i]);
+            }
+            results.put(variant.getKey(), millis);
+            Files.deleteIfExists(database);
+        }
+
+        try (PrintStream csv = new PrintStream(Files.newOutputStream(outputFile))) {
+            csv.println("variant,runs,min_ms,median_ms,max_ms");
+            System.out.println();
+            System.out.printf("%-8s %8s %8s %8s%n", "variant", "min", "median", "max");
+            results.forEach((name, millis) -> {
+                long[] sorted = millis.clone();
+                Arrays.sort(sorted);
+                long median = sorted[sorted.length / 2];
+                csv.printf("%s,%d,%d,%d,%d%n", name, sorted.length, sorted[0], median, sorted[sorted.length - 1]);
+                System.out.printf("%-8s %6d ms %6d ms %6d ms%n", name, sorted[0], median, sorted[sorted.length - 1]);
+            });
+        }
+        System.out.println("Summary written to " + outputFile);
+    }
+
+    // Tid från processtart till första 200-svar
+    private long measure(List<String> launchArgs, Path database) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(JAVA);
+        command.add("-Xshare:auto");
+        command.addAll(launchArgs);
+        command.add("--server.port=" + port);
+        command.add("--spring.datasource.url=jdbc:sqlite:" + database);
+        command.add("--logging.level.root=WARN");
+        command.add("--logging.file.name=" + outputFile.getParent().resolve("app.log"));
+        command.add("--jfr.enabled=false");
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/csrf"))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(outputFile.getParent().resolve("process.log").toFile())
+                .start();
+        try {
+            long deadline = start + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with code " + process.exitValue()
+                            + ", see " + outputFile.getParent().resolve("process.log"));
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (IOException notListeningYet) {
+                    // Servern lyssnar inte än
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("No response within " + timeoutSeconds + " s");
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
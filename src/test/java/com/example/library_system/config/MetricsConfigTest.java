@@ -0,0 +1,62 @@
+package com.example.library_system.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsConfigTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final AtomicInteger reads = new AtomicInteger();
+
+    private final Map<String, Object> statistics = new LinkedHashMap<>();
+
+    @Test
+    @DisplayName("Alla gauges under ett prefix delar en läsning av statistiken")
+    void testBindStatistics_ShouldReadStatisticsOncePerScrape() {
+        statistics.put("hits", 3);
+        statistics.put("hitRatio", 0.75);
+        statistics.put("mode", "lru");
+        new MetricsConfig().bindStatistics(registry, "test.cache", this::readStatistics);
+        int readsAtBind = reads.get();
+
+        assertEquals(3.0, registry.get("test.cache.hits").gauge().value());
+        assertEquals(0.75, registry.get("test.cache.hit.ratio").gauge().value());
+
+        assertEquals(1, readsAtBind);
+        assertEquals(1, reads.get(), "Båda gaugarna ska läsas ur samma ögonblicksbild");
+        assertNull(registry.find("test.cache.mode").gauge());
+    }
+
+    @Test
+    @DisplayName("Numeriska nycklar som dyker upp efter start får en gauge")
+    void testBindStatistics_ShouldRegisterKeysThatAppearLater() throws Exception {
+        statistics.put("runs", 0);
+        statistics.put("lastRun", null);
+        new MetricsConfig().bindStatistics(registry, "test.job", this::readStatistics);
+        assertNull(registry.find("test.job.last.run").gauge());
+
+        statistics.put("lastRun", 42L);
+        Thread.sleep(1100); // Ögonblicksbilden är högst en sekund gammal
+        scrape();
+
+        assertEquals(42.0, registry.get("test.job.last.run").gauge().value());
+    }
+
+    // Gauges registreras när ögonblicksbilden läses om, dvs. vid nästa scrape
+    private void scrape() {
+        registry.getMeters().forEach(meter -> meter.measure().forEach(measurement -> measurement.getValue()));
+    }
+
+    private Map<String, Object> readStatistics() {
+        reads.incrementAndGet();
+        return new LinkedHashMap<>(statistics);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.library_system.controller;
+
+import com.example.library_system.security.PasswordHashingExecutor;
+import com.example.library_system.security.PasswordHashingOverloadedException;
+import com.example.library_system.service.LoginAttemptService;
+import com.example.library_system.service.UserDetailsCache;
+import com.example.library_system.support.SqlStatementCapture;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:target/login-test.db",
+        "security.password.bcrypt-strength=10"
+})
+@AutoConfigureMockMvc
+class AuthApiControllerLoginTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private LoginAttemptService loginAttemptService;
+
+    @MockitoSpyBean
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @Test
+    @DisplayName("Inloggning läser användaren en gång och uppdaterar den med en UPDATE")
+    void testLogin_ShouldLoadUserOnce() throws Exception {
+        // Värsta fallet: användaren finns inte i cachen
+        userDetailsCache.invalidateAll();
+
+        try (SqlStatementCapture sql = SqlStatementCapture.start()) {
+            mockMvc.perform(post("/api/auth/login")
+                            .with(csrf())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"email\":\"user@bibliotek.se\",\"password\":\"User123\"}"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.email").value("user@bibliotek.se"))
+                    .andExpect(jsonPath("$.roles[0]").value("USER"));
+
+            List<String> userStatements = sql.getStatements(s -> s.toLowerCase().contains("users"));
+
+            // En SELECT (användare + roller) och en UPDATE (senaste inloggning)
+            assertTrue(userStatements.size() <= 2,
+                    "Inloggning ska högst ställa två frågor mot användartabellerna: " + userStatements);
+            assertEquals(1, userStatements.stream().filter(s -> s.trim().toLowerCase().startsWith("select")).count(),
+                    "Användaren ska bara läsas en gång: " + userStatements);
+
+            // Utöver det bara raden i säkerhetsloggen (och SQLite:s hämtning av dess id)
+            List<String> otherStatements = sql.getStatements(s -> !userStatements.contains(s)
+                    && !s.contains("security_logs") && !s.contains("last_insert_rowid"));
+            assertTrue(otherStatements.isEmpty(), "Oväntade SQL-satser vid inloggning: " + otherStatements);
+
+            sql.assertAtMost(4).assertNoRepeats(2);
+        }
+    }
+
+    @Test
+    @DisplayName("Formulärinloggning mot en överbelastad lösenordspool ger 503 och räknas inte som misslyckad")
+    void testFormLogin_WhenHashingOverloaded_ShouldReturn503() throws Exception {
+        userDetailsCache.invalidateAll();
+        doThrow(new PasswordHashingOverloadedException("Password hashing queue is full"))
+                .when(passwordHashingExecutor).execute(any());
+
+        mockMvc.perform(post("/api/auth/form-login")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .content("username=user%40bibliotek.se&password=User123"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+
+        assertEquals(0, loginAttemptService.getFailedAttempts("user@bibliotek.se"));
+    }
+}
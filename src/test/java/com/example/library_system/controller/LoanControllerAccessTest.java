@@ -0,0 +1,107 @@
+package com.example.library_system.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:target/login-test.db",
+        "security.password.bcrypt-strength=10"
+})
+@AutoConfigureMockMvc
+class LoanControllerAccessTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @DisplayName("En användare ser sina egna lån men inte någon annans")
+    void testLoanDetails_ShouldOnlyAllowOwnLoans() throws Exception {
+        Login user = login("user@bibliotek.se", "User123");
+        Login admin = login("admin@bibliotek.se", "Admin123");
+
+        mockMvc.perform(get("/users/{userId}/loans/details", user.userId()).session(user.session()))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/{userId}/loans/details", admin.userId()).session(user.session()))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @DisplayName("ADMIN ser alla användares lån")
+    void testLoanDetails_AdminShouldSeeOtherUsersLoans() throws Exception {
+        Login user = login("user@bibliotek.se", "User123");
+        Login admin = login("admin@bibliotek.se", "Admin123");
+
+        mockMvc.perform(get("/users/{userId}/loans/details", user.userId()).session(admin.session()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("?fields= på lån och användare visar bara egna rader, utom för ADMIN")
+    void testFields_ShouldOnlyReturnOwnRows() throws Exception {
+        Login user = login("user@bibliotek.se", "User123");
+        Login admin = login("admin@bibliotek.se", "Admin123");
+
+        List<Number> allUserIds = ids("/users?fields=userId,email", admin);
+        assertTrue(allUserIds.size() > 1, "ADMIN ska se alla användare");
+        assertEquals(List.of(user.userId()), ids("/users?fields=userId,email", user).stream()
+                .map(Number::longValue).toList());
+
+        // Ett lån som inte är användarens, så att det finns något att dölja
+        String loan = mockMvc.perform(post("/loans").session(admin.session()).with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":" + admin.userId() + ",\"bookId\":1}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Number loanId = JsonPath.read(loan, "$.loanId");
+        try {
+            List<Number> loanOwners = ids("/loans?fields=loanId,userId", user);
+            assertTrue(loanOwners.stream().allMatch(owner -> owner.longValue() == user.userId()),
+                    "Användaren ska bara se sina egna lån: " + loanOwners);
+            assertTrue(ids("/loans?fields=loanId,userId", admin).stream()
+                            .anyMatch(owner -> owner.longValue() == admin.userId()),
+                    "ADMIN ska se alla lån");
+        } finally {
+            mockMvc.perform(put("/loans/{id}/return", loanId).session(admin.session()).with(csrf()))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    // userId-kolumnen ur ett ?fields=-svar
+    private List<Number> ids(String url, Login login) throws Exception {
+        String json = mockMvc.perform(get(url).session(login.session()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(json, "$[*].userId");
+    }
+
+    private record Login(long userId, MockHttpSession session) {
+    }
+
+    private Login login(String email, String password) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}"))
+                .andExpect(status().isOk())
+                .andReturn();
+        Number userId = JsonPath.read(result.getResponse().getContentAsString(), "$.userId");
+        return new Login(userId.longValue(), (MockHttpSession) result.getRequest().getSession());
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.library_system.monitoring;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTraceTest {
+
+    @Test
+    @DisplayName("Fasernas självtid summerar till hela förfrågan")
+    void testPhases_ShouldSumToTotal() throws InterruptedException {
+        RequestTrace trace = Tracer.begin("GET", "/books", 100);
+        try (Tracer.Span root = Tracer.span("filters", "GET /books")) {
+            try (Tracer.Span service = Tracer.span("service", "BookService.getAllBooks")) {
+                try (Tracer.Span sql = Tracer.span("sql", "select")) {
+                    Thread.sleep(5);
+                }
+            }
+        }
+        Tracer.end(trace, 200);
+
+        Map<String, Double> phases = trace.getPhases();
+        double sum = phases.values().stream().mapToDouble(Double::doubleValue).sum();
+
+        assertEquals(3, phases.size());
+        assertTrue(phases.get("sql") >= 5, "SQL-spanets tid ska inte räknas till föräldrarna");
+        // Exakt mot rot-spanet; totalen inkluderar även tiden före och efter det
+        assertEquals(trace.getSpans().get(0).durationMillis(), sum, 0.001);
+        assertTrue(sum <= trace.getTotalMillis());
+        assertEquals(3, trace.getSpans().size());
+        assertEquals(2, trace.getSpans().get(2).depth());
+    }
+
+    @Test
+    @DisplayName("Utan pågående spår är spans no-op")
+    void testSpan_WithoutTrace_ShouldBeNoop() {
+        assertFalse(Tracer.isActive());
+        assertSame(Tracer.span("service", "a"), Tracer.span("sql", "b"));
+    }
+
+    @Test
+    @DisplayName("Antalet sparade spans begränsas")
+    void testSpans_ShouldBeCapped() {
+        RequestTrace trace = Tracer.begin("GET", "/books/details", 2);
+        for (int i = 0; i < 5; i++) {
+            Tracer.span("repository", "findById").close();
+        }
+        Tracer.end(trace, 200);
+
+        assertEquals(2, trace.getSpans().size());
+        assertEquals(3, trace.getDroppedSpans());
+        assertFalse(Tracer.isActive());
+    }
+}
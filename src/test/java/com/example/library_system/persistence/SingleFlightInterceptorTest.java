@@ -0,0 +1,80 @@
+package com.example.library_system.persistence;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightInterceptorTest {
+
+    interface Catalog {
+        @SingleFlight
+        List<String> search(String title);
+    }
+
+    static class SlowCatalog implements Catalog {
+        final AtomicInteger executions = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public List<String> search(String title) {
+            executions.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(title);
+        }
+    }
+
+    private final SingleFlightInterceptor interceptor = new SingleFlightInterceptor(true);
+    private final SlowCatalog target = new SlowCatalog();
+    private final Catalog catalog = proxy(target);
+
+    @Test
+    @DisplayName("Samtidiga anrop med samma argument delar en körning och får samma resultat")
+    void testSearch_ShouldShareInFlightExecution() throws Exception {
+        CompletableFuture<List<String>> leader = CompletableFuture.supplyAsync(() -> catalog.search("Pippi"));
+        assertTrue(target.started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<List<String>> follower = CompletableFuture.supplyAsync(() -> catalog.search("Pippi"));
+        while ((long) interceptor.getStatistics().get("coalesced") < 1) {
+            Thread.sleep(5);
+        }
+        target.release.countDown();
+
+        assertSame(leader.get(5, TimeUnit.SECONDS), follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, target.executions.get());
+        assertEquals(0, interceptor.getStatistics().get("inFlight"));
+    }
+
+    @Test
+    @DisplayName("Efter att körningen är klar läses det på nytt, inget cachas")
+    void testSearch_ShouldExecuteAgainAfterCompletion() {
+        target.release.countDown();
+
+        catalog.search("Pippi");
+        catalog.search("Pippi");
+
+        assertEquals(2, target.executions.get());
+        assertEquals(0L, interceptor.getStatistics().get("coalesced"));
+    }
+
+    private Catalog proxy(Catalog target) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.addAdvisor(new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(SingleFlight.class), interceptor));
+        return (Catalog) factory.getProxy();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.library_system.persistence;
+
+import com.example.library_system.monitoring.TracingCborHttpMessageConverter;
+import com.example.library_system.monitoring.TracingJacksonHttpMessageConverter;
+import com.example.library_system.monitoring.TracingSmileHttpMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SparseFieldsetQueryTest {
+
+    private final SparseFieldsetQuery query = new SparseFieldsetQuery();
+
+    private final AtomicInteger sharedReads = new AtomicInteger();
+
+    @Test
+    @DisplayName("Fälten behåller ordningen och dubbletter tas bort")
+    void testParseFields_ShouldKeepOrderAndDropDuplicates() {
+        List<String> fields = query.parseFields(SparseFieldsetQuery.Resource.BOOKS, "title, bookId,,title");
+
+        assertEquals(List.of("title", "bookId"), fields);
+    }
+
+    @Test
+    @DisplayName("Fält utanför vitlistan avvisas, t.ex. lösenord")
+    void testParseFields_ShouldRejectUnknownFields() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> query.parseFields(SparseFieldsetQuery.Resource.USERS, "userId,password"));
+
+        assertTrue(e.getMessage().contains("password"));
+        assertThrows(IllegalArgumentException.class,
+                () -> query.parseFields(SparseFieldsetQuery.Resource.LOANS, " , "));
+    }
+
+    @Test
+    @DisplayName("Projektionen läser valda kolumner och skriver datum i både text- och epoch-millis-form")
+    void testWrite_ShouldStreamSelectedColumnsAsJson() throws Exception {
+        try (SingleConnectionDataSource dataSource = new SingleConnectionDataSource("jdbc:sqlite::memory:", true)) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.execute("CREATE TABLE loans (loan_id INTEGER PRIMARY KEY, user_id INTEGER, book_id INTEGER, "
+                    + "borrowed_date, due_date, returned_date)");
+            // Exempeldatan sparar datum som text, Hibernate som epoch-millis
+            jdbcTemplate.update("INSERT INTO loans VALUES (2, 7, 3, ?, ?, ?)",
+                    epochMillis(LocalDate.of(2026, 2, 1)), epochMillis(LocalDate.of(2026, 2, 15)),
+                    epochMillis(LocalDate.of(2026, 2, 10)));
+            jdbcTemplate.update("INSERT INTO loans VALUES (1, 7, 3, '2026-01-15 10:00:00', '2026-01-29', NULL)");
+
+            SparseFieldsetQuery streaming = queryOn(jdbcTemplate);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            streaming.write(SparseFieldsetQuery.Resource.LOANS, "loanId,borrowedDate,returnedDate", null, response);
+
+            assertEquals("application/json", response.getContentType());
+            assertEquals("[{\"loanId\":1,\"borrowedDate\":\"2026-01-15\",\"returnedDate\":null},"
+                            + "{\"loanId\":2,\"borrowedDate\":\"2026-02-01\",\"returnedDate\":\"2026-02-10\"}]",
+                    response.getContentAsString());
+        }
+    }
+
+    @Test
+    @DisplayName("Katalogen läses via den delade läsningen, lånen strömmas förbi den")
+    void testWrite_ShouldShareCatalogReadsOnly() throws Exception {
+        try (SingleConnectionDataSource dataSource = new SingleConnectionDataSource("jdbc:sqlite::memory:", true)) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.execute("CREATE TABLE books (book_id INTEGER PRIMARY KEY, title TEXT)");
+            jdbcTemplate.update("INSERT INTO books VALUES (1, 'Röda rummet')");
+            jdbcTemplate.execute("CREATE TABLE loans (loan_id INTEGER PRIMARY KEY, user_id INTEGER)");
+            jdbcTemplate.update("INSERT INTO loans VALUES (5, 7)");
+            jdbcTemplate.update("INSERT INTO loans VALUES (6, 8)");
+
+            SparseFieldsetQuery streaming = queryOn(jdbcTemplate);
+            SparseFieldsetReader reader = (SparseFieldsetReader) ReflectionTestUtils.getField(streaming, "reader");
+            SparseFieldsetReader countingReader = new SparseFieldsetReader() {
+                @Override
+                public List<List<Object>> read(SparseFieldsetQuery.Resource resource, List<String> fields, Long ownerId) {
+                    sharedReads.incrementAndGet();
+                    return reader.read(resource, fields, ownerId);
+                }
+            };
+            ReflectionTestUtils.setField(countingReader, "jdbcTemplate", jdbcTemplate);
+            ReflectionTestUtils.setField(streaming, "reader", countingReader);
+
+            MockHttpServletResponse books = new MockHttpServletResponse();
+            streaming.write(SparseFieldsetQuery.Resource.BOOKS, "bookId,title", null, books);
+            assertEquals("[{\"bookId\":1,\"title\":\"Röda rummet\"}]", books.getContentAsString(StandardCharsets.UTF_8));
+            assertEquals(1, sharedReads.get());
+
+            MockHttpServletResponse loans = new MockHttpServletResponse();
+            streaming.write(SparseFieldsetQuery.Resource.LOANS, "loanId", 7L, null, loans);
+            assertEquals("[{\"loanId\":5}]", loans.getContentAsString());
+            assertEquals(1, sharedReads.get(), "Lån ska inte gå via den delade läsningen");
+        }
+    }
+
+    @Test
+    @DisplayName("Ogiltiga fält avvisas innan något skrivs till svaret")
+    void testWrite_ShouldRejectInvalidFieldsBeforeWriting() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThrows(InvalidFieldsException.class,
+                () -> query.write(SparseFieldsetQuery.Resource.USERS, "password", null, response));
+        assertEquals(0, response.getContentLength());
+        assertFalse(response.isCommitted());
+    }
+
+    private static SparseFieldsetQuery queryOn(JdbcTemplate jdbcTemplate) {
+        SparseFieldsetReader reader = new SparseFieldsetReader();
+        ReflectionTestUtils.setField(reader, "jdbcTemplate", jdbcTemplate);
+        SparseFieldsetQuery streaming = new SparseFieldsetQuery();
+        ReflectionTestUtils.setField(streaming, "reader", reader);
+        ReflectionTestUtils.setField(streaming, "jsonConverter", new TracingJacksonHttpMessageConverter(new ObjectMapper()));
+        ReflectionTestUtils.setField(streaming, "cborConverter", new TracingCborHttpMessageConverter(new ObjectMapper(new CBORFactory())));
+        ReflectionTestUtils.setField(streaming, "smileConverter", new TracingSmileHttpMessageConverter(new ObjectMapper(new SmileFactory())));
+        return streaming;
+    }
+
+    private static long epochMillis(LocalDate date) {
+        return date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.library_system.security;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedBodyRequestTest {
+
+    private static final byte[] BODY = "{\"title\":\"Röda rummet\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    @DisplayName("Bodyn kan läsas flera gånger, som ström och som text")
+    void testGetInputStream_ShouldReturnBodyEveryTime() throws Exception {
+        CachedBodyRequest request = new CachedBodyRequest(new MockHttpServletRequest(), BODY);
+
+        assertArrayEquals(BODY, request.getInputStream().readAllBytes());
+        assertArrayEquals(BODY, request.getInputStream().readAllBytes());
+        assertEquals("{\"title\":\"Röda rummet\"}", request.getReader().readLine());
+        assertEquals(BODY.length, request.getContentLength());
+        assertEquals(BODY.length, request.getContentLengthLong());
+    }
+
+    @Test
+    @DisplayName("Läsaren använder requestens teckenkodning")
+    void testGetReader_ShouldUseRequestEncoding() throws Exception {
+        MockHttpServletRequest original = new MockHttpServletRequest();
+        original.setCharacterEncoding("ISO-8859-1");
+        CachedBodyRequest request = new CachedBodyRequest(original, "Åsa".getBytes(StandardCharsets.ISO_8859_1));
+
+        assertEquals("Åsa", request.getReader().readLine());
+    }
+
+    @Test
+    @DisplayName("En ReadListener får hela bodyn direkt och sedan onAllDataRead")
+    void testSetReadListener_ShouldDeliverBodyImmediately() {
+        CachedBodyRequest request = new CachedBodyRequest(new MockHttpServletRequest(), BODY);
+        ServletInputStream input = request.getInputStream();
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        List<String> calls = new ArrayList<>();
+
+        input.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                calls.add("onDataAvailable");
+                while (input.isReady() && !input.isFinished()) {
+                    received.write(input.read());
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                calls.add("onAllDataRead");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                calls.add("onError");
+            }
+        });
+
+        assertEquals(List.of("onDataAvailable", "onAllDataRead"), calls);
+        assertArrayEquals(BODY, received.toByteArray());
+    }
+
+    @Test
+    @DisplayName("En tom body ger bara onAllDataRead")
+    void testSetReadListener_EmptyBodyShouldOnlySignalAllDataRead() {
+        CachedBodyRequest request = new CachedBodyRequest(new MockHttpServletRequest(), new byte[0]);
+        List<String> calls = new ArrayList<>();
+
+        request.getInputStream().setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() {
+                calls.add("onDataAvailable");
+            }
+
+            @Override
+            public void onAllDataRead() {
+                calls.add("onAllDataRead");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                calls.add("onError");
+            }
+        });
+
+        assertEquals(List.of("onAllDataRead"), calls);
+    }
+}
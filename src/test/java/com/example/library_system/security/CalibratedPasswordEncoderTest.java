@@ -0,0 +1,36 @@
+package com.example.library_system.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalibratedPasswordEncoderTest {
+
+    private final PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 4, 2000);
+
+    // Låga kostnader så att testet går fort; fast kostnad hoppar över kalibreringen
+    private final CalibratedPasswordEncoder encoder = new CalibratedPasswordEncoder(executor, 100, 5, 4, 8, 1);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Hashar med både lägre och högre kostnad än målet hashas om")
+    void testUpgradeEncoding_ShouldFlagAnyOtherCost() {
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("secret")));
+        assertFalse(encoder.upgradeEncoding(new BCryptPasswordEncoder(5).encode("secret")));
+    }
+
+    @Test
+    @DisplayName("Okända format hashas inte om")
+    void testUpgradeEncoding_ShouldIgnoreNonBcrypt() {
+        assertFalse(encoder.upgradeEncoding(null));
+        assertFalse(encoder.upgradeEncoding("{noop}secret"));
+    }
+}
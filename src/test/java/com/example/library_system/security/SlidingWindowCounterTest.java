@@ -0,0 +1,86 @@
+package com.example.library_system.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowCounterTest {
+
+    private static final long WINDOW_MILLIS = 60_000;
+
+    @Test
+    @DisplayName("Händelser inom fönstret summeras")
+    void testIncrement_ShouldSumEventsInsideWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(6, WINDOW_MILLIS);
+        long start = 1_000_000;
+
+        counter.increment(start);
+        counter.increment(start + 10_000);
+        long total = counter.increment(start + 30_000);
+
+        assertEquals(3, total);
+        assertEquals(3, counter.sum(start + 30_000));
+    }
+
+    @Test
+    @DisplayName("Händelser äldre än fönstret räknas inte")
+    void testSum_ShouldDropEventsOutsideWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(6, WINDOW_MILLIS);
+        long start = 1_000_000;
+
+        counter.increment(start);
+        counter.increment(start + 50_000);
+
+        assertEquals(1, counter.sum(start + WINDOW_MILLIS + 5_000),
+                "Den första händelsen ska ha glidit ut ur fönstret");
+        assertEquals(0, counter.sum(start + 3 * WINDOW_MILLIS));
+    }
+
+    @Test
+    @DisplayName("Återanvänd hink nollställs när en ny period börjar")
+    void testIncrement_ShouldResetReusedBucket() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(6, WINDOW_MILLIS);
+        long start = 1_000_000;
+
+        counter.increment(start);
+        counter.increment(start);
+
+        // Samma hink-index ett helt fönster senare
+        assertEquals(1, counter.increment(start + WINDOW_MILLIS));
+    }
+
+    @Test
+    @DisplayName("Samtidiga ökningar tappas inte bort")
+    void testIncrement_ShouldBeThreadSafe() throws InterruptedException {
+        SlidingWindowCounter counter = new SlidingWindowCounter(6, WINDOW_MILLIS);
+        long now = 1_000_000;
+        int threads = 8;
+        int perThread = 10_000;
+
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                for (int j = 0; j < perThread; j++) {
+                    counter.increment(now);
+                }
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals((long) threads * perThread, counter.sum(now));
+    }
+
+    @Test
+    @DisplayName("Nollställning tömmer fönstret")
+    void testReset_ShouldClearAllBuckets() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(6, WINDOW_MILLIS);
+        counter.increment(1_000_000);
+        counter.reset();
+
+        assertEquals(0, counter.sum(1_000_000));
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.library_system.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long START = 1_000_000_000L;
+    private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("En topp upp till kapaciteten släpps igenom, sedan nekas anrop")
+    void testTryConsume_ShouldAllowBurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(3, 60, START);
+
+        assertEquals(0, bucket.tryConsume(START));
+        assertEquals(0, bucket.tryConsume(START));
+        assertEquals(0, bucket.tryConsume(START));
+        assertTrue(bucket.tryConsume(START) > 0, "Fjärde anropet ska nekas");
+    }
+
+    @Test
+    @DisplayName("Väntetiden är tiden tills nästa token, och hinken fylls på i jämn takt")
+    void testTryConsume_ShouldRefillAtConfiguredRate() {
+        TokenBucket bucket = new TokenBucket(1, 60, START); // en token per sekund
+
+        assertEquals(0, bucket.tryConsume(START));
+        long wait = bucket.tryConsume(START);
+        assertEquals(ONE_SECOND, wait, ONE_SECOND / 1000.0);
+
+        assertTrue(bucket.tryConsume(START + ONE_SECOND / 2) > 0, "En halv sekund räcker inte");
+        assertEquals(0, bucket.tryConsume(START + ONE_SECOND));
+    }
+
+    @Test
+    @DisplayName("Påfyllningen stannar vid kapaciteten")
+    void testTryConsume_ShouldNotRefillBeyondCapacity() {
+        TokenBucket bucket = new TokenBucket(2, 60, START);
+        bucket.tryConsume(START);
+
+        long later = START + 60 * ONE_SECOND;
+        assertTrue(bucket.isFull(later));
+        assertEquals(0, bucket.tryConsume(later));
+        assertEquals(0, bucket.tryConsume(later));
+        assertTrue(bucket.tryConsume(later) > 0);
+    }
+
+    @Test
+    @DisplayName("En klocka som går bakåt ger inga extra tokens")
+    void testTryConsume_ShouldIgnoreClockGoingBackwards() {
+        TokenBucket bucket = new TokenBucket(1, 60, START);
+        bucket.tryConsume(START);
+
+        assertTrue(bucket.tryConsume(START - 10 * ONE_SECOND) > 0);
+        assertEquals(START, bucket.getLastRefillNanos());
+    }
+
+    @Test
+    @DisplayName("Kapacitet och takt måste vara positiva")
+    void testConstructor_ShouldRejectNonPositiveSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 60, START));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0, START));
+    }
+
+    @Test
+    @DisplayName("Registret tar bort fulla hinkar först när det är fullt")
+    void testRegistry_ShouldEvictFullBucketsFirst() {
+        TokenBucketRegistry registry = new TokenBucketRegistry(2);
+        TokenBucket active = registry.get("10.0.0.1", START, () -> new TokenBucket(5, 60, START));
+        active.tryConsume(START);
+        registry.get("10.0.0.2", START, () -> new TokenBucket(5, 60, START));
+
+        registry.get("10.0.0.3", START, () -> new TokenBucket(5, 60, START));
+
+        assertEquals(2, registry.size());
+        assertSame(active, registry.get("10.0.0.1", START, () -> new TokenBucket(5, 60, START)),
+                "En hink som används får inte återställas");
+    }
+
+    @Test
+    @DisplayName("Utan fulla hinkar tar registret bort de som använts minst nyligen")
+    void testRegistry_ShouldEvictLeastRecentlyUsedWhenNoneAreFull() {
+        TokenBucketRegistry registry = new TokenBucketRegistry(2);
+        TokenBucket oldest = registry.get("b", START, () -> new TokenBucket(100, 1, START));
+        oldest.tryConsume(START);
+        TokenBucket newest = registry.get("a", START + ONE_SECOND, () -> new TokenBucket(100, 1, START + ONE_SECOND));
+        newest.tryConsume(START + ONE_SECOND);
+
+        // Letandet efter fulla hinkar fyller på alla till samma tid; ordningen ska ändå bygga på senaste användning
+        registry.get("c", START + 2 * ONE_SECOND, () -> new TokenBucket(100, 1, START + 2 * ONE_SECOND));
+
+        assertEquals(2, registry.size());
+        assertSame(newest, registry.get("a", START + 2 * ONE_SECOND, () -> new TokenBucket(100, 1, START)));
+        assertNotSame(oldest, registry.get("b", START + 2 * ONE_SECOND, () -> new TokenBucket(100, 1, START)));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.library_system.service;
+
+import com.example.library_system.dto.BookAvailabilityDTO;
+import com.example.library_system.repository.BookRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AvailabilityStreamServiceTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    private AvailabilityStreamService service;
+
+    private final CountDownLatch senderBlocked = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        service = new AvailabilityStreamService();
+        ReflectionTestUtils.setField(service, "bookRepository", bookRepository);
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(service, "replayCapacity", 1000);
+        ReflectionTestUtils.setField(service, "maxSubscribers", 10);
+        ReflectionTestUtils.setField(service, "timeoutMillis", 60000L);
+        ReflectionTestUtils.setField(service, "subscriberQueueCapacity", 2);
+        ReflectionTestUtils.setField(service, "senderThreads", 1);
+        service.startSender();
+
+        // Håll sändartråden upptagen så att köerna inte töms under testet
+        ThreadPoolExecutor sender = (ThreadPoolExecutor) ReflectionTestUtils.getField(service, "sender");
+        sender.execute(() -> {
+            try {
+                senderBlocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        senderBlocked.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("En klient vars kö blir full kopplas ner i stället för att kön växer")
+    void testSlowSubscriber_ShouldBeDroppedWhenQueueIsFull() {
+        service.subscribe(null); // "ready" ligger först i kön
+
+        service.heartbeat();
+        assertEquals(1, service.getStatistics().get("subscribers"));
+        assertEquals(2, service.getStatistics().get("queuedEvents"));
+
+        service.heartbeat();
+
+        assertEquals(0, service.getStatistics().get("subscribers"));
+        assertEquals(1L, service.getStatistics().get("slowSubscribers"));
+        assertEquals(1L, service.getStatistics().get("droppedSubscribers"));
+    }
+
+    @Test
+    @DisplayName("Misslyckas läsningen i ett svep ligger böckerna kvar till nästa svep")
+    void testFlush_ShouldKeepBooksWhenReadFails() {
+        service.onAvailabilityChanged(new BookAvailabilityChangedEvent(3L));
+        when(bookRepository.findAvailabilityByBookIds(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("database is locked"));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> service.flush());
+        assertEquals(1, service.getStatistics().get("pendingBooks"));
+
+        reset(bookRepository);
+        when(bookRepository.findAvailabilityByBookIds(List.of(3L))).thenReturn(List.of(new BookAvailabilityDTO(3L, 2)));
+        service.flush();
+
+        assertEquals(0, service.getStatistics().get("pendingBooks"));
+        assertEquals(1L, service.getStatistics().get("eventsPublished"));
+    }
+}
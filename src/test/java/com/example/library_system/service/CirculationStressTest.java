@@ -0,0 +1,251 @@
+package com.example.library_system.service;
+
+import com.example.library_system.entity.Author;
+import com.example.library_system.entity.Book;
+import com.example.library_system.entity.Loan;
+import com.example.library_system.entity.User;
+import com.example.library_system.persistence.SqliteBusyRetryInterceptor;
+import com.example.library_system.repository.AuthorRepository;
+import com.example.library_system.repository.BookRepository;
+import com.example.library_system.repository.LoanRepository;
+import com.example.library_system.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Stresstest av utlåning mot en riktig SQLite-fil: många samtidiga utlåningar, återlämningar
+// och förlängningar på ett fåtal böcker, följt av kontroll av invarianterna.
+// Körs både med serialiserade skrivtransaktioner och utan, så att invarianterna visas hålla
+// även när bara SQLite-låsen och omförsöken skyddar dem.
+// Körs inte i det vanliga bygget: mvn -Pstress test -Dstress.operations=5000 -Dstress.threads=32
+@Tag("stress")
+class CirculationStressTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CirculationStressTest.class);
+
+    @Nested
+    @DisplayName("Med serialiserade skrivare")
+    @SpringBootTest(properties = {
+            "sqlite.busy-retry.serialize-writers=true",
+            "tracing.sample-rate=0",
+            "jfr.enabled=false",
+            "logging.level.root=WARN",
+            "logging.level.com.example.library_system.service.CirculationStressTest=INFO"
+    })
+    class SerializedWriters extends CirculationScenario {
+        SerializedWriters() {
+            super(false);
+        }
+    }
+
+    @Nested
+    @DisplayName("Utan serialiserade skrivare")
+    @SpringBootTest(properties = {
+            "sqlite.busy-retry.serialize-writers=false",
+            "tracing.sample-rate=0",
+            "jfr.enabled=false",
+            "logging.level.root=WARN",
+            "logging.level.com.example.library_system.service.CirculationStressTest=INFO"
+    })
+    class ConcurrentWriters extends CirculationScenario {
+        // Utan serialisering kan omförsöken ta slut - anropet misslyckas då utan att något skrivs
+        ConcurrentWriters() {
+            super(true);
+        }
+    }
+
+    abstract static class CirculationScenario {
+
+        private static final int OPERATIONS = Integer.getInteger("stress.operations", 3000);
+        private static final int THREADS = Integer.getInteger("stress.threads", 16);
+        private static final int BOOKS = Integer.getInteger("stress.books", 4);
+        private static final int COPIES = Integer.getInteger("stress.copies", 3);
+        private static final int USERS = Integer.getInteger("stress.users", 30);
+
+        private final boolean busyFailuresAllowed;
+
+        CirculationScenario(boolean busyFailuresAllowed) {
+            this.busyFailuresAllowed = busyFailuresAllowed;
+        }
+
+        @DynamicPropertySource
+        static void database(DynamicPropertyRegistry registry) {
+            registry.add("spring.datasource.url", () -> "jdbc:sqlite:target/stress-" + System.nanoTime() + ".db");
+        }
+
+        @Autowired
+        private LoanService loanService;
+
+        @Autowired
+        private LoanRepository loanRepository;
+
+        @Autowired
+        private BookRepository bookRepository;
+
+        @Autowired
+        private AuthorRepository authorRepository;
+
+        @Autowired
+        private UserRepository userRepository;
+
+        @Autowired
+        private SqliteBusyRetryInterceptor sqliteBusyRetryInterceptor;
+
+        private final List<Long> bookIds = new ArrayList<>();
+        private final List<Long> userIds = new ArrayList<>();
+
+        @BeforeEach
+        void setUp() {
+            Author author = new Author();
+            author.setFirstName("Stress");
+            author.setLastName("Författare");
+            author = authorRepository.save(author);
+
+            for (int i = 0; i < BOOKS; i++) {
+                Book book = new Book();
+                book.setTitle("Stressbok " + i);
+                book.setTotalCopies(COPIES);
+                book.setAvailableCopies(COPIES);
+                book.setAuthorId(author.getAuthorId());
+                bookIds.add(bookRepository.save(book).getBookId());
+            }
+
+            for (int i = 0; i < USERS; i++) {
+                User user = new User();
+                user.setFirstName("Stress");
+                user.setLastName("Användare " + i);
+                user.setEmail("stress" + i + "-" + System.nanoTime() + "@bibliotek.se");
+                user.setPassword("Stress123");
+                user.setRegistrationDate(LocalDate.now());
+                user.setEnabled(true);
+                user.setAccountNonLocked(true);
+                user.setFailedLoginAttempts(0);
+                userIds.add(userRepository.save(user).getUserId());
+            }
+        }
+
+        @Test
+        @DisplayName("Samtidig utlåning, återlämning och förlängning bryter inga invarianter")
+        void testConcurrentCirculation_ShouldKeepInvariants() throws InterruptedException {
+            Map<String, AtomicLong> outcomes = new ConcurrentHashMap<>();
+            Map<String, Throwable> unexpected = new ConcurrentHashMap<>();
+            long retriesBefore = (long) sqliteBusyRetryInterceptor.getStatistics().get("retries");
+
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(OPERATIONS);
+
+            for (int i = 0; i < OPERATIONS; i++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        String outcome = runRandomOperation();
+                        outcomes.computeIfAbsent(outcome, key -> new AtomicLong()).incrementAndGet();
+                    } catch (PessimisticLockingFailureException e) {
+                        outcomes.computeIfAbsent("busy", key -> new AtomicLong()).incrementAndGet();
+                    } catch (Throwable e) {
+                        unexpected.putIfAbsent(e.getClass().getSimpleName() + ": " + e.getMessage(), e);
+                        outcomes.computeIfAbsent("error", key -> new AtomicLong()).incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+
+            long startNanos = System.nanoTime();
+            start.countDown();
+            assertTrue(done.await(5, TimeUnit.MINUTES), "Stresstestet blev inte klart i tid");
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            executor.shutdown();
+
+            Map<String, Object> retryStats = sqliteBusyRetryInterceptor.getStatistics();
+            logger.info("Circulation stress ({}): {} operations on {} threads in {} s ({} ops/s)",
+                    getClass().getSimpleName(), OPERATIONS, THREADS, String.format("%.2f", seconds),
+                    String.format("%.0f", OPERATIONS / seconds));
+            logger.info("  outcomes: {}", new HashMap<>(outcomes));
+            logger.info("  busy retries: {}, exhausted: {}",
+                    (long) retryStats.get("retries") - retriesBefore, retryStats.get("exhausted"));
+
+            assertTrue(unexpected.isEmpty(), "Oväntade fel: " + unexpected.keySet());
+            long busy = outcomes.getOrDefault("busy", new AtomicLong()).get();
+            if (!busyFailuresAllowed) {
+                assertEquals(0, busy, "Serialiserade skrivare ska aldrig få slut på omförsök");
+            }
+            assertInvariants();
+        }
+
+        private String runRandomOperation() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Long userId = userIds.get(random.nextInt(userIds.size()));
+            int choice = random.nextInt(10);
+
+            try {
+                if (choice < 5) {
+                    loanService.createLoan(userId, bookIds.get(random.nextInt(bookIds.size())));
+                    return "checkout";
+                }
+
+                List<Loan> active = loanRepository.findByUserIdAndReturnedDateIsNull(userId);
+                if (active.isEmpty()) {
+                    return "nothing-to-do";
+                }
+                Long loanId = active.get(random.nextInt(active.size())).getLoanId();
+                if (choice < 8) {
+                    loanService.returnBook(loanId);
+                    return "return";
+                }
+                loanService.extendLoan(loanId);
+                return "extend";
+            } catch (IllegalArgumentException e) {
+                // Affärsregler (slut på exemplar, redan lånad/återlämnad) är förväntade under konkurrens
+                return "rejected: " + e.getMessage();
+            }
+        }
+
+        private void assertInvariants() {
+            List<Loan> activeLoans = loanRepository.findAll().stream()
+                    .filter(loan -> loan.getReturnedDate() == null && bookIds.contains(loan.getBookId()))
+                    .toList();
+
+            for (Long bookId : bookIds) {
+                Book book = bookRepository.findById(bookId).orElseThrow();
+                long active = activeLoans.stream().filter(loan -> loan.getBookId().equals(bookId)).count();
+
+                assertTrue(book.getAvailableCopies() >= 0, "Negativt antal tillgängliga för bok " + bookId);
+                assertTrue(book.getAvailableCopies() <= book.getTotalCopies(), "Fler tillgängliga än totalt för bok " + bookId);
+                assertEquals((long) book.getTotalCopies(), book.getAvailableCopies() + active,
+                        "availableCopies + aktiva lån ska vara totalCopies för bok " + bookId);
+            }
+
+            Map<String, Long> perUserAndBook = activeLoans.stream()
+                    .collect(Collectors.groupingBy(loan -> loan.getUserId() + "/" + loan.getBookId(), Collectors.counting()));
+            perUserAndBook.forEach((key, count) ->
+                    assertEquals(1L, count.longValue(), "Flera aktiva lån för samma användare och bok: " + key));
+        }
+    }
+}
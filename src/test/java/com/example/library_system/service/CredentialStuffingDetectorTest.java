@@ -0,0 +1,102 @@
+package com.example.library_system.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CredentialStuffingDetectorTest {
+
+    private static final long WINDOW_MILLIS = 10 * 60_000;
+
+    private CredentialStuffingDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        detector = new CredentialStuffingDetector();
+        ReflectionTestUtils.setField(detector, "enabled", true);
+        ReflectionTestUtils.setField(detector, "windowMinutes", 10L);
+        ReflectionTestUtils.setField(detector, "slotCount", 5);
+        ReflectionTestUtils.setField(detector, "sketchWidth", 1024);
+        ReflectionTestUtils.setField(detector, "sketchDepth", 4);
+        ReflectionTestUtils.setField(detector, "hllPrecision", 6);
+        ReflectionTestUtils.setField(detector, "maxTrackedIps", 1000);
+        ReflectionTestUtils.setField(detector, "failureThreshold", 30L);
+        ReflectionTestUtils.setField(detector, "distinctUsernameThreshold", 8L);
+        ReflectionTestUtils.setField(detector, "blockMinutes", 30L);
+        ReflectionTestUtils.setField(detector, "maxBlockedIps", 100);
+        detector.init();
+    }
+
+    @Test
+    @DisplayName("Besprutning över många konton från en IP blockeras")
+    void testRecordFailure_ShouldBlockSprayAcrossAccounts() {
+        long now = System.currentTimeMillis();
+        boolean blocked = false;
+
+        for (int i = 0; i < 20 && !blocked; i++) {
+            blocked = detector.recordFailure("10.0.0.1", "user" + i + "@example.com", now);
+        }
+
+        assertTrue(blocked, "IP-adressen ska blockeras när många olika konton provas");
+        assertTrue(detector.isBlocked("10.0.0.1"));
+        assertFalse(detector.isBlocked("10.0.0.2"));
+    }
+
+    @Test
+    @DisplayName("Upprepade fel mot samma konto blockerar inte IP-adressen under gränsen")
+    void testRecordFailure_ShouldNotBlockTyposOnOneAccount() {
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < 10; i++) {
+            assertFalse(detector.recordFailure("10.0.0.3", "anna@example.com", now));
+        }
+
+        assertFalse(detector.isBlocked("10.0.0.3"));
+    }
+
+    @Test
+    @DisplayName("Försök som glidit ut ur fönstret räknas inte")
+    void testRecordFailure_ShouldForgetOldFailures() {
+        long start = System.currentTimeMillis();
+
+        for (int i = 0; i < 5; i++) {
+            detector.recordFailure("10.0.0.4", "old" + i + "@example.com", start);
+        }
+        for (int i = 0; i < 5; i++) {
+            assertFalse(detector.recordFailure("10.0.0.4", "new" + i + "@example.com", start + 2 * WINDOW_MILLIS));
+        }
+
+        assertFalse(detector.isBlocked("10.0.0.4"));
+    }
+
+    @Test
+    @DisplayName("En skolklass bakom samma NAT blockeras inte för sina felskrivningar")
+    void testRecordFailure_ShouldNotBlockSharedNetworkWithSuccessfulLogins() {
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < 30; i++) {
+            detector.recordSuccess("10.0.0.6", "elev" + i + "@example.com", now);
+        }
+        for (int i = 0; i < 12; i++) {
+            assertFalse(detector.recordFailure("10.0.0.6", "elev" + i + "@example.com", now));
+        }
+
+        assertFalse(detector.isBlocked("10.0.0.6"));
+    }
+
+    @Test
+    @DisplayName("Blockering kan hävas av administratör")
+    void testUnblock_ShouldRemoveBlock() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 30; i++) {
+            detector.recordFailure("10.0.0.5", "same@example.com", now);
+        }
+        assertTrue(detector.isBlocked("10.0.0.5"), "Många fel ska blockera även mot ett konto");
+
+        assertTrue(detector.unblock("10.0.0.5"));
+        assertFalse(detector.isBlocked("10.0.0.5"));
+    }
+}
@@ -33,6 +33,12 @@ class LoanServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private LibraryMetrics libraryMetrics;
+
+    @Mock
+    private LibraryStatisticsService libraryStatistics;
+
     @InjectMocks
     private LoanService loanService;
 
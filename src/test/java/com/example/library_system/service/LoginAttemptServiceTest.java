@@ -0,0 +1,74 @@
+package com.example.library_system.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginAttemptServiceTest {
+
+    private LoginAttemptService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new LoginAttemptService();
+        ReflectionTestUtils.setField(service, "windowMinutes", 60L);
+        ReflectionTestUtils.setField(service, "bucketCount", 60);
+        ReflectionTestUtils.setField(service, "maxFailuresPerIp", 50L);
+        ReflectionTestUtils.setField(service, "maxTrackedKeys", 10);
+    }
+
+    @Test
+    @DisplayName("Kartorna växer aldrig över gränsen, även när alla räknare är aktiva")
+    void testRecordFailure_ShouldCapTrackedKeys() {
+        for (int i = 0; i < 1000; i++) {
+            service.recordFailure("spray" + i + "@example.com", "10.0.0." + (i % 250));
+        }
+
+        assertEquals(20, service.getTrackedKeyCount());
+    }
+
+    @Test
+    @DisplayName("En besprutning med nya namn tränger inte ut offrets räknare")
+    void testRecordFailure_ShouldKeepLiveCountersWhenFull() {
+        service.recordFailure("target@example.com", null);
+        for (int i = 0; i < 20; i++) {
+            service.recordFailure("target@example.com", null);
+            service.recordFailure("spray" + i + "@example.com", null);
+        }
+
+        assertEquals(21, service.getFailedAttempts("target@example.com"));
+        assertEquals(1, service.getFailedAttempts("spray0@example.com"));
+        assertEquals(0, service.getFailedAttempts("spray19@example.com"));
+    }
+
+    @Test
+    @DisplayName("När kartan är full räknas nya användare som över gränsen och okända IP-adresser som spärrade")
+    void testRecordFailure_ShouldFailClosedWhenFull() {
+        for (int i = 0; i < 10; i++) {
+            service.recordFailure("spray" + i + "@example.com", "10.0.0." + i);
+        }
+
+        assertEquals(LoginAttemptService.UNTRACKED, service.recordFailure("new@example.com", "10.0.1.1"));
+        assertTrue(service.isIpBlocked("10.0.1.1"));
+        assertFalse(service.isIpBlocked("10.0.0.1"));
+    }
+
+    @Test
+    @DisplayName("Svepet tar bort räknare vars fönster är tomt och frigör plats")
+    void testSweep_ShouldRemoveExpiredCounters() {
+        for (int i = 0; i < 10; i++) {
+            service.recordFailure("spray" + i + "@example.com", "10.0.0." + i);
+        }
+
+        service.sweep(System.currentTimeMillis());
+        assertEquals(20, service.getTrackedKeyCount());
+
+        service.sweep(System.currentTimeMillis() + 2 * 60 * 60_000);
+        assertEquals(0, service.getTrackedKeyCount());
+        assertEquals(1, service.recordFailure("new@example.com", "10.0.1.1"));
+        assertFalse(service.isIpBlocked("10.0.1.1"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.library_system.service;
+
+import com.example.library_system.entity.SecurityEventRollup;
+import com.example.library_system.repository.SecurityEventRollupRepository;
+import com.example.library_system.repository.SecurityIpRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SecurityRollupServiceTest {
+
+    @Mock
+    private SecurityEventRollupRepository eventRollupRepository;
+
+    @Mock
+    private SecurityIpRollupRepository ipRollupRepository;
+
+    @InjectMocks
+    private SecurityRollupService rollupService;
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(rollupService, "maxIpsPerFlush", 1000);
+        // flush() körs annars i en transaktion via proxyn
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    @DisplayName("Räkningarna läggs tillbaka när flush-transaktionen rullas tillbaka")
+    void testFlush_ShouldRestoreCountsOnRollback() {
+        rollupService.record("LOGIN", false, "10.0.0.1", now);
+        rollupService.record("LOGIN", false, "10.0.0.1", now);
+        when(eventRollupRepository.increment(anyString(), any(), anyString(), anyBoolean(), anyLong()))
+                .thenThrow(new DataAccessResourceFailureException("database is locked"));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> rollupService.flush());
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        reset(eventRollupRepository);
+        when(eventRollupRepository.increment(anyString(), any(), anyString(), anyBoolean(), anyLong())).thenReturn(1);
+        when(ipRollupRepository.increment(anyString(), any(), anyString(), anyLong(), anyLong())).thenReturn(1);
+        rollupService.flush();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(eventRollupRepository).increment(SecurityEventRollup.MINUTE, now.truncatedTo(ChronoUnit.MINUTES),
+                "LOGIN", false, 2L);
+        verify(ipRollupRepository).increment(SecurityEventRollup.MINUTE, now.truncatedTo(ChronoUnit.MINUTES),
+                "10.0.0.1", 2L, 2L);
+    }
+
+    @Test
+    @DisplayName("Efter commit skrivs samma räkningar inte igen")
+    void testFlush_ShouldNotRewriteCommittedCounts() {
+        rollupService.record("LOGIN", true, null, now);
+        when(eventRollupRepository.increment(anyString(), any(), anyString(), anyBoolean(), anyLong())).thenReturn(1);
+
+        rollupService.flush();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        rollupService.flush();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(eventRollupRepository, times(1)).increment(SecurityEventRollup.MINUTE,
+                now.truncatedTo(ChronoUnit.MINUTES), "LOGIN", true, 1L);
+    }
+
+    // Det transaktionshanteraren gör när transaktionen avslutas
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+        TransactionSynchronizationManager.initSynchronization();
+    }
+}
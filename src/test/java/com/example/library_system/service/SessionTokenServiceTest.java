@@ -0,0 +1,179 @@
+package com.example.library_system.service;
+
+import com.example.library_system.entity.RevokedToken;
+import com.example.library_system.repository.RevokedTokenRepository;
+import com.example.library_system.service.CustomUserDetailsService.CustomUserDetails;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class SessionTokenServiceTest {
+
+    private static final String KEY_1 = key('1');
+    private static final String KEY_2 = key('2');
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private final Set<String> savedTokenIds = new HashSet<>();
+
+    private final CustomUserDetails user = new CustomUserDetails("user@bibliotek.se", "hash", true, true,
+            List.of(new SimpleGrantedAuthority("ROLE_USER")), 7L, "Test", "User", List.of("USER"));
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        // Repositoryt beter sig som databasen: sparade spärrar finns kvar
+        when(revokedTokenRepository.save(any(RevokedToken.class))).thenAnswer(invocation -> {
+            RevokedToken revokedToken = invocation.getArgument(0);
+            savedTokenIds.add(revokedToken.getTokenId());
+            return revokedToken;
+        });
+        when(revokedTokenRepository.existsByTokenId(anyString()))
+                .thenAnswer(invocation -> savedTokenIds.contains(invocation.<String>getArgument(0)));
+    }
+
+    @Test
+    @DisplayName("En utfärdad token valideras till samma användare")
+    void testValidate_ShouldAcceptIssuedToken() {
+        SessionTokenService service = service("k1:" + KEY_1, "k1", 30, 100);
+
+        SessionTokenService.TokenClaims claims = service.validate(service.issueToken(user));
+
+        assertNotNull(claims);
+        assertEquals(7L, claims.userId());
+        assertEquals("user@bibliotek.se", claims.email());
+        assertEquals(List.of("USER"), claims.roles());
+    }
+
+    @Test
+    @DisplayName("Ändrat innehåll eller ändrad signatur avvisas")
+    void testValidate_ShouldRejectTamperedToken() {
+        SessionTokenService service = service("k1:" + KEY_1, "k1", 30, 100);
+        String[] parts = service.issueToken(user).split("\\.");
+
+        // Byt användar-ID men behåll signaturen
+        String payload = new String(Base64.getUrlDecoder().decode(parts[2]), StandardCharsets.UTF_8)
+                .replace("\"uid\":7", "\"uid\":14");
+        String tamperedPayload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        assertNull(service.validate(parts[0] + "." + parts[1] + "." + tamperedPayload + "." + parts[3]));
+
+        char last = parts[3].charAt(0);
+        String tamperedSignature = (last == 'A' ? 'B' : 'A') + parts[3].substring(1);
+        assertNull(service.validate(parts[0] + "." + parts[1] + "." + parts[2] + "." + tamperedSignature));
+    }
+
+    @Test
+    @DisplayName("En token signerad med fel nyckel avvisas")
+    void testValidate_ShouldRejectWrongKey() {
+        SessionTokenService issuer = service("k1:" + KEY_1, "k1", 30, 100);
+        SessionTokenService validator = service("k1:" + KEY_2, "k1", 30, 100);
+
+        assertNull(validator.validate(issuer.issueToken(user)));
+    }
+
+    @Test
+    @DisplayName("Efter nyckelbyte gäller gamla tokens så länge den gamla nyckeln finns kvar")
+    void testValidate_ShouldFollowKeyRotation() {
+        String token = service("k1:" + KEY_1, "k1", 30, 100).issueToken(user);
+
+        SessionTokenService rotated = service("k1:" + KEY_1 + ",k2:" + KEY_2, "k2", 30, 100);
+        assertNotNull(rotated.validate(token));
+        assertNotNull(rotated.validate(rotated.issueToken(user)));
+
+        SessionTokenService retired = service("k2:" + KEY_2, "k2", 30, 100);
+        assertNull(retired.validate(token));
+    }
+
+    @Test
+    @DisplayName("En utgången token avvisas")
+    void testValidate_ShouldRejectExpiredToken() {
+        SessionTokenService service = service("k1:" + KEY_1, "k1", -1, 100);
+
+        assertNull(service.validate(service.issueToken(user)));
+    }
+
+    @Test
+    @DisplayName("En spärrad token avvisas och spärren sparas i databasen")
+    void testRevoke_ShouldRejectRevokedToken() {
+        SessionTokenService service = service("k1:" + KEY_1, "k1", 30, 100);
+        String token = service.issueToken(user);
+        String other = service.issueToken(user);
+
+        service.revoke(token);
+
+        assertNull(service.validate(token));
+        assertNotNull(service.validate(other));
+        verify(revokedTokenRepository).save(any(RevokedToken.class));
+    }
+
+    @Test
+    @DisplayName("Trasiga tokens med fel antal delar eller okänd version avvisas")
+    void testValidate_ShouldRejectMalformedToken() {
+        SessionTokenService service = service("k1:" + KEY_1, "k1", 30, 100);
+        String[] parts = service.issueToken(user).split("\\.");
+
+        assertNull(service.validate(null));
+        assertNull(service.validate(""));
+        assertNull(service.validate(parts[0] + "." + parts[1] + "." + parts[2]));
+        assertNull(service.validate(String.join(".", parts) + ".extra"));
+        assertNull(service.validate("v2." + parts[1] + "." + parts[2] + "." + parts[3]));
+        assertNull(service.validate("v1.k1.inte-base64!.inte-base64!"));
+    }
+
+    @Test
+    @DisplayName("En spärr som trängs ut ur den fulla spärrlistan gäller ändå tills tokenen går ut")
+    void testRevoke_EvictionShouldNotRestoreRevokedToken() {
+        SessionTokenService service = service("k1:" + KEY_1, "k1", 30, 2);
+        String first = service.issueToken(user);
+        String second = service.issueToken(user);
+        String third = service.issueToken(user);
+        String notRevoked = service.issueToken(user);
+
+        service.revoke(first);
+        service.revoke(second);
+        service.revoke(third);
+
+        assertEquals(2, service.getRevokedCount());
+        assertNull(service.validate(first));
+        assertNull(service.validate(second));
+        assertNull(service.validate(third));
+        assertNotNull(service.validate(notRevoked));
+    }
+
+    private SessionTokenService service(String keys, String activeKey, long ttlMinutes, int maxRevoked) {
+        SessionTokenService service = new SessionTokenService();
+        ReflectionTestUtils.setField(service, "sessionMode", "stateless");
+        ReflectionTestUtils.setField(service, "configuredKeys", keys);
+        ReflectionTestUtils.setField(service, "activeKeyId", activeKey);
+        ReflectionTestUtils.setField(service, "ttlMinutes", ttlMinutes);
+        ReflectionTestUtils.setField(service, "cookieName", "LIBRARY_TOKEN");
+        ReflectionTestUtils.setField(service, "maxRevoked", maxRevoked);
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(service, "revokedTokenRepository", revokedTokenRepository);
+        service.loadKeys();
+        return service;
+    }
+
+    private static String key(char fill) {
+        return Base64.getEncoder().encodeToString(String.valueOf(fill).repeat(32).getBytes(StandardCharsets.US_ASCII));
+    }
+}
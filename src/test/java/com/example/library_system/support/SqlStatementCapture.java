@@ -0,0 +1,61 @@
+package com.example.library_system.support;
+
+import com.example.library_system.monitoring.SqlStatementRecorder;
+import com.example.library_system.monitoring.SqlStatementStats;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Fångar SQL som går genom JDBC-proxyn på testtråden, t.ex. runt ett MockMvc-anrop:
+//
+//   try (SqlStatementCapture sql = SqlStatementCapture.start()) {
+//       mockMvc.perform(get("/books"));
+//       sql.assertAtMost(2);
+//   }
+public final class SqlStatementCapture implements AutoCloseable {
+
+    private final SqlStatementStats stats;
+
+    private SqlStatementCapture(SqlStatementStats stats) {
+        this.stats = stats;
+    }
+
+    public static SqlStatementCapture start() {
+        return new SqlStatementCapture(SqlStatementRecorder.begin());
+    }
+
+    public List<String> getStatements() {
+        return stats.getStatements();
+    }
+
+    public List<String> getStatements(Predicate<String> filter) {
+        return stats.getStatements().stream().filter(filter).toList();
+    }
+
+    public int getStatementCount() {
+        return stats.getStatementCount();
+    }
+
+    // Endpointen får högst ställa max satser
+    public SqlStatementCapture assertAtMost(int max) {
+        assertTrue(stats.getStatementCount() <= max,
+                "Expected at most " + max + " SQL statements but was " + stats.getStatementCount()
+                        + ": " + stats.getStatements());
+        return this;
+    }
+
+    // Ingen sats får upprepas threshold gånger eller mer (N+1)
+    public SqlStatementCapture assertNoRepeats(int threshold) {
+        Map<String, Integer> repeated = stats.getRepeatedFingerprints(threshold);
+        assertTrue(repeated.isEmpty(), "Repeated SQL statements (N+1): " + repeated);
+        return this;
+    }
+
+    @Override
+    public void close() {
+        SqlStatementRecorder.end(stats);
+    }
+}